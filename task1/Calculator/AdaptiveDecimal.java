@@ -0,0 +1,300 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Running result for Calculator's precision mode. The value is kept as a
+// double for as long as every step is provably exact in binary floating
+// point; the first step that would round promotes it to a BigDecimal
+// computed with the configured MathContext, where it stays until reset.
+//
+// Exactness is checked with error-free transformations: the rounding error
+// of a sum comes from TwoSum and that of a product, quotient or square root
+// from a single fma, so the double path costs a few extra flops and no
+// allocation. Inputs are only admitted to the double path when the decimal
+// text they came from is exactly representable.
+//
+// Failures never throw. apply() returns CalculatorState.ENDED for a division
+// by zero, like Calculator.performCalculus(); for a negative square root, a
+// non-positive logarithm or an exponential too large even for BigDecimal the
+// value is left unchanged and getError() names the operation.
+public final class AdaptiveDecimal {
+    public static final MathContext DEFAULT_CONTEXT = MathContext.DECIMAL128;
+
+    private static final Map<Integer, MathContext> CONTEXTS = new ConcurrentHashMap<>();
+    private static final Map<Integer, BigDecimal> LN10 = new ConcurrentHashMap<>();
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    // Products and quotients below this may lose bits to underflow, so fma cannot prove them exact
+    private static final double SAFE_MIN = 0x1p-960;
+
+    private final MathContext context;
+    private double fast;
+    private BigDecimal exact;
+    private Operation error = Operation.NONE;
+
+    public AdaptiveDecimal() {
+        this(DEFAULT_CONTEXT);
+    }
+
+    public AdaptiveDecimal(MathContext context) {
+        this.context = context;
+    }
+
+    // Shared MathContext for a number of significant digits, HALF_EVEN like the DECIMAL contexts
+    public static MathContext context(int digits) {
+        if (digits == 16) return MathContext.DECIMAL64;
+        if (digits == 34) return MathContext.DECIMAL128;
+        return CONTEXTS.computeIfAbsent(digits, d -> new MathContext(d, RoundingMode.HALF_EVEN));
+    }
+
+    public MathContext getContext() {
+        return context;
+    }
+
+    public void set(double value) {
+        this.fast = value;
+        this.exact = null;
+        this.error = Operation.NONE;
+    }
+
+    // Decimal literal such as "19.99"; throws NumberFormatException for malformed text
+    public void set(String literal) {
+        String text = literal.trim();
+        double value = Double.parseDouble(text);
+        if (isExactLiteral(text, value)) {
+            set(value);
+        } else {
+            this.exact = new BigDecimal(text);
+            this.error = Operation.NONE;
+        }
+    }
+
+    public void set(AdaptiveDecimal other) {
+        this.fast = other.fast;
+        this.exact = other.exact;
+        this.error = Operation.NONE;
+    }
+
+    // True while the value is held as an exact double
+    public boolean isFast() {
+        return exact == null;
+    }
+
+    public Operation getError() {
+        return error;
+    }
+
+    public double doubleValue() {
+        return exact == null ? fast : exact.doubleValue();
+    }
+
+    public BigDecimal toBigDecimal() {
+        return exact == null ? new BigDecimal(fast) : exact;
+    }
+
+    // Applies op with operand (ignored by the unary operations) to this value
+    public CalculatorState apply(Operation op, AdaptiveDecimal operand) {
+        this.error = Operation.NONE;
+        switch (op) {
+            case ADDITION: add(operand, false); break;
+            case SUBTRACTION: add(operand, true); break;
+            case MULTIPLICATION: multiply(operand); break;
+            case DIVISION:
+                if (operand.isZero()) {
+                    this.error = Operation.DIVISION;
+                    return CalculatorState.ENDED;
+                }
+                divide(operand);
+                break;
+            case SQUARE_ROOT:
+                if (signum() < 0) {
+                    this.error = Operation.SQUARE_ROOT;
+                } else {
+                    sqrt();
+                }
+                break;
+            case LOGARITHM:
+                if (signum() <= 0) {
+                    this.error = Operation.LOGARITHM;
+                } else {
+                    log();
+                }
+                break;
+            case EXPONENTIAL: exp(); break;
+            default: break;
+        }
+        return CalculatorState.RUNNING;
+    }
+
+    private void add(AdaptiveDecimal operand, boolean subtract) {
+        if (exact == null && operand.exact == null) {
+            double b = subtract ? -operand.fast : operand.fast;
+            double sum = fast + b;
+            double bPart = sum - fast;
+            double roundoff = (fast - (sum - bPart)) + (b - bPart);
+            if (roundoff == 0 && Double.isFinite(sum)) {
+                fast = sum;
+                return;
+            }
+        }
+        BigDecimal other = operand.toBigDecimal();
+        exact = subtract ? toBigDecimal().subtract(other, context) : toBigDecimal().add(other, context);
+    }
+
+    private void multiply(AdaptiveDecimal operand) {
+        if (exact == null && operand.exact == null) {
+            double product = fast * operand.fast;
+            if (isProvenExact(product, Math.fma(fast, operand.fast, -product))
+                    || fast == 0 || operand.fast == 0) {
+                fast = product;
+                return;
+            }
+        }
+        exact = toBigDecimal().multiply(operand.toBigDecimal(), context);
+    }
+
+    private void divide(AdaptiveDecimal operand) {
+        if (exact == null && operand.exact == null) {
+            double quotient = fast / operand.fast;
+            if (isProvenExact(quotient, Math.fma(quotient, operand.fast, -fast)) || fast == 0) {
+                fast = quotient;
+                return;
+            }
+        }
+        exact = toBigDecimal().divide(operand.toBigDecimal(), context);
+    }
+
+    private void sqrt() {
+        if (exact == null) {
+            double root = Math.sqrt(fast);
+            if (isProvenExact(root, Math.fma(root, root, -fast)) || fast == 0) {
+                fast = root;
+                return;
+            }
+        }
+        exact = toBigDecimal().sqrt(context);
+    }
+
+    private void log() {
+        if (exact == null && fast == 1) {
+            fast = 0;
+            return;
+        }
+        exact = ln(toBigDecimal(), context);
+    }
+
+    private void exp() {
+        if (exact == null && fast == 0) {
+            fast = 1;
+            return;
+        }
+        try {
+            exact = exp(toBigDecimal(), context);
+        } catch (ArithmeticException e) {
+            // Result exponent beyond what BigDecimal can hold
+            this.error = Operation.EXPONENTIAL;
+        }
+    }
+
+    private static boolean isProvenExact(double result, double residual) {
+        return residual == 0 && Double.isFinite(result) && Math.abs(result) >= SAFE_MIN;
+    }
+
+    private boolean isZero() {
+        return exact == null ? fast == 0 : exact.signum() == 0;
+    }
+
+    private int signum() {
+        return exact == null ? (int) Math.signum(fast) : exact.signum();
+    }
+
+    // A literal is exact in binary when it is a short integer, or when the
+    // double it parsed to converts back to the same decimal value
+    private static boolean isExactLiteral(String text, double value) {
+        if (!Double.isFinite(value)) return false;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (!(i == 0 && (c == '-' || c == '+'))) {
+                digits = Integer.MAX_VALUE;
+                break;
+            }
+        }
+        if (digits <= 15) return true;
+        return new BigDecimal(value).compareTo(new BigDecimal(text)) == 0;
+    }
+
+    // Natural logarithm: x = m * 10^k with m in [1, 10), then ln(m) = 16 * ln(m^(1/16))
+    // where m^(1/16) is close enough to 1 for a short atanh series.
+    static BigDecimal ln(BigDecimal x, MathContext mc) {
+        MathContext work = new MathContext(mc.getPrecision() + 10, RoundingMode.HALF_EVEN);
+        int k = x.precision() - x.scale() - 1;
+        BigDecimal m = x.scaleByPowerOfTen(-k);
+        for (int i = 0; i < 4; i++) m = m.sqrt(work);
+        BigDecimal z = m.subtract(BigDecimal.ONE).divide(m.add(BigDecimal.ONE), work);
+        BigDecimal z2 = z.multiply(z, work);
+        BigDecimal term = z;
+        BigDecimal sum = z;
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(work.getPrecision() + 1);
+        for (int n = 3; term.abs().compareTo(epsilon) > 0; n += 2) {
+            term = term.multiply(z2, work);
+            sum = sum.add(term.divide(BigDecimal.valueOf(n), work), work);
+        }
+        BigDecimal lnM = sum.multiply(BigDecimal.valueOf(32), work);
+        return lnM.add(ln10(work).multiply(BigDecimal.valueOf(k), work), mc);
+    }
+
+    // e^x = 10^k * e^r with r = x - k ln 10, and e^r = (e^(r / 256))^256 by Taylor series
+    static BigDecimal exp(BigDecimal x, MathContext mc) {
+        MathContext work = new MathContext(mc.getPrecision() + 10, RoundingMode.HALF_EVEN);
+        BigDecimal ln10 = ln10(work);
+        long k = x.divide(ln10, MathContext.DECIMAL64).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        if (Math.abs(k) > Integer.MAX_VALUE / 2) {
+            throw new ArithmeticException("Exponent out of range");
+        }
+        BigDecimal r = x.subtract(ln10.multiply(BigDecimal.valueOf(k), work), work).divide(BigDecimal.valueOf(256), work);
+        BigDecimal term = BigDecimal.ONE;
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(work.getPrecision() + 1);
+        for (int n = 1; term.abs().compareTo(epsilon) > 0; n++) {
+            term = term.multiply(r, work).divide(BigDecimal.valueOf(n), work);
+            sum = sum.add(term, work);
+        }
+        for (int i = 0; i < 8; i++) sum = sum.multiply(sum, work);
+        return sum.scaleByPowerOfTen((int) k).round(mc);
+    }
+
+    // ln 10 to the working precision, cached per precision since every log and exp needs it
+    private static BigDecimal ln10(MathContext work) {
+        return LN10.computeIfAbsent(work.getPrecision(), precision -> {
+            // ln 10 = 3 ln 2 + ln 1.25, both from fast atanh series: ln 2 = 2 atanh(1/3), ln 1.25 = 2 atanh(1/9)
+            MathContext mc = new MathContext(precision + 5, RoundingMode.HALF_EVEN);
+            BigDecimal ln2 = atanhSeries(BigDecimal.ONE.divide(BigDecimal.valueOf(3), mc), mc).multiply(TWO, mc);
+            BigDecimal ln125 = atanhSeries(BigDecimal.ONE.divide(BigDecimal.valueOf(9), mc), mc).multiply(TWO, mc);
+            return ln2.multiply(BigDecimal.valueOf(3), mc).add(ln125, mc).round(new MathContext(precision));
+        });
+    }
+
+    private static BigDecimal atanhSeries(BigDecimal z, MathContext mc) {
+        BigDecimal z2 = z.multiply(z, mc);
+        BigDecimal term = z;
+        BigDecimal sum = z;
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(mc.getPrecision() + 1);
+        for (int n = 3; term.compareTo(epsilon) > 0; n += 2) {
+            term = term.multiply(z2, mc);
+            sum = sum.add(term.divide(BigDecimal.valueOf(n), mc), mc);
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        BigDecimal value = exact == null ? new BigDecimal(fast).round(context) : exact;
+        value = value.stripTrailingZeros();
+        // Plain notation unless that would print a very long run of zeros
+        return value.scale() > -20 && value.scale() < 40 ? value.toPlainString() : value.toString();
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
+
+// Headless calculator: evaluates one expression per line of a file and writes
+// one result per line, in input order, without prompts or ANSI colors.
+//
+//   java Main --batch expressions.txt [--out results.txt] [--threads N]
+//
+// Blank lines stay blank; lines that fail print "Error: <message>".
+public final class BatchRunner {
+    private static final ThreadLocal<ExpressionEvaluator> EVALUATORS =
+            ThreadLocal.withInitial(ExpressionEvaluator::new);
+
+    private final LongAdder errors = new LongAdder();
+
+    // Entry point for "--batch"; args holds everything after the flag. Returns the exit status.
+    public static int run(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: --batch <file> [--out <file>] [--threads <n>]");
+            return 2;
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[0] + ".out");
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--out") && i + 1 < args.length) {
+                    output = Paths.get(args[++i]);
+                } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else {
+                    System.err.println("Unknown batch option: " + args[i]);
+                    return 2;
+                }
+            }
+            if (!Files.isRegularFile(input)) {
+                System.err.println("Input file not found: " + input);
+                return 1;
+            }
+
+            long startTime = System.nanoTime();
+            BatchRunner runner = new BatchRunner();
+            ChunkedFileProcessor processor = new ChunkedFileProcessor(threads);
+            processor.process(input, output, runner::evaluate);
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+
+            System.out.printf("Evaluated %d lines (%d errors) in %.2f s, %.1f MB/s -> %s%n",
+                    processor.getLines(), runner.getErrors(), seconds,
+                    processor.getBytesRead() / 1e6 / seconds, output);
+            return 0;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid thread count: " + e.getMessage());
+            return 2;
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    void evaluate(CharSequence line, StringBuilder out) {
+        if (isBlank(line)) return;
+        try {
+            ExpressionEvaluator evaluator = EVALUATORS.get();
+            double value = evaluator.evaluate(ExpressionParser.parse(line));
+            if (evaluator.getError() == Operation.NONE) {
+                out.append(value);
+                return;
+            }
+            out.append(Calculator.errorMessage(evaluator.getError()));
+        } catch (IllegalArgumentException e) {
+            out.append("Error: ").append(e.getMessage());
+        }
+        errors.increment();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) return false;
+        }
+        return true;
+    }
+}
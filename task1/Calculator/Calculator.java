@@ -1,8 +1,7 @@
-import java.util.*;
+import java.io.PrintStream;
+import java.math.MathContext;
 
 public class Calculator {
-    public static Scanner scanner = new Scanner(System.in);
-
     public static String[] operations = {"+", "-", "*", "/", "sqrt", "log", "exp", "="};
 
     private String message_error = "", operation = "";
@@ -11,11 +10,41 @@ public class Calculator {
     private Memory memoryState = Memory.VOID;
     private double currentResult = 0;
     private double input;
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+    private static final CalculatorMetrics METRICS = CalculatorMetrics.global();
+    // Precision mode: results and operands as AdaptiveDecimal, null when working in plain double
+    private AdaptiveDecimal precise, preciseInput;
+    // Registers and past results, recalled in expressions as M0..M9, ANS and H1, H2, ...
+    private CalculatorMemory memory = new CalculatorMemory();
+    private double[] recalled = new double[4];
+
+    // Each instance reads and writes its own console, so independent sessions can run side by side
+    private final Console console;
+    private final PrintStream out;
+
+    private final String BLUE;
+    private final String GREEN;
+    private final String RED;
+    private final String RESET;
+
+    public Calculator() {
+        this(Console.system());
+    }
+
+    public Calculator(Console console) {
+        this.console = console;
+        this.out = console.out();
+        this.BLUE = console.color("\033[1;34m");
+        this.GREEN = console.color("\033[1;32m");
+        this.RED = console.color("\033[1;31m");
+        this.RESET = console.color("\033[0m");
+    }
 
-    private final String BLUE = "\033[1;34m";
-    private final String GREEN = "\033[1;32m";
-    private final String RED = "\033[1;31m";
-    private final String RESET = "\033[0m";
+    // Every state change goes through here so CalculatorMetrics sees the transition
+    private void setState(CalculatorState next) {
+        if (next != this.state) METRICS.recordTransition(this.state, next);
+        this.state = next;
+    }
 
     private void init() {
         this.currOperation = Operation.NONE;
@@ -23,6 +52,38 @@ public class Calculator {
         this.currentResult = 0;
     }
 
+    // Seeds the state run() builds after the first number, for in-process drivers such as benchmarks
+    void load(Operation operation, double currentResult, double input) {
+        this.currOperation = operation;
+        this.currentResult = currentResult;
+        this.input = input;
+        this.memoryState = Memory.CONTENT;
+        setState(CalculatorState.RUNNING);
+    }
+
+    double getCurrentResult() {
+        return this.currentResult;
+    }
+
+    Operation getCurrentOperation() {
+        return this.currOperation;
+    }
+
+    public CalculatorMemory getMemory() {
+        return this.memory;
+    }
+
+    // Replaces the register file and history, e.g. with one persisted by CalculatorMemory.open()
+    public void setMemory(CalculatorMemory memory) {
+        this.memory = memory;
+    }
+
+    // Turns precision mode on with the given context, or off with null
+    public void setPrecision(MathContext context) {
+        this.precise = context == null ? null : new AdaptiveDecimal(context);
+        this.preciseInput = context == null ? null : new AdaptiveDecimal(context);
+    }
+
     public void operationShifting(String operation) {
         String op = operation.trim().toLowerCase();
         switch (op) {
@@ -37,60 +98,89 @@ public class Calculator {
             default:
                 this.currOperation = Operation.NONE;
                 this.message_error = "Unknown operation: " + operation;
-                System.out.println(RED + this.message_error + RESET);
+                this.out.println(RED + this.message_error + RESET);
         }
     }
 
+    // Applies the current operation, timed per Operation into CalculatorMetrics
     public void performCalculus() {
-        if (this.memoryState == Memory.CONTENT) {
-            switch (this.currOperation) {
-                case ADDITION: this.currentResult += this.input; break;
-                case SUBTRACTION: this.currentResult -= this.input; break;
-                case MULTIPLICATION: this.currentResult *= this.input; break;
-                case DIVISION:
-                    if (this.input == 0) {
-                        System.out.println(RED + "Error: Division by zero." + RESET);
-                        this.state = CalculatorState.ENDED;
-                    } else {
-                        this.currentResult /= this.input;
-                    }
-                    break;
-                case SQUARE_ROOT:
-                    if (this.currentResult < 0) {
-                        System.out.println(RED + "Error: Cannot take square root of a negative number." + RESET);
-                    } else this.currentResult = Math.sqrt(this.currentResult);
-                    break;
-                case LOGARITHM:
-                    if (this.currentResult <= 0) {
-                        System.out.println(RED + "Error: Log undefined for zero or negative numbers." + RESET);
-                    } else this.currentResult = Math.log(this.currentResult);
-                    break;
-                case EXPONENTIAL: this.currentResult = Math.exp(this.currentResult); break;
-                case EQUAL:
-                    System.out.println(GREEN + "=============================");
-                    System.out.println("        Result = " + this.currentResult);
-                    System.out.println("=============================" + RESET);
-                    this.state = CalculatorState.STOPPED;
-                    break;
-                default: break;
-            }
+        if (this.memoryState != Memory.CONTENT) return;
+        Operation operation = this.currOperation;
+        long start = System.nanoTime();
+        calculate();
+        METRICS.recordOperation(operation, System.nanoTime() - start);
+    }
+
+    private void calculate() {
+        if (this.precise != null && this.currOperation != Operation.EQUAL) {
+            performPreciseCalculus();
+            return;
+        }
+        switch (this.currOperation) {
+            case ADDITION: this.currentResult += this.input; break;
+            case SUBTRACTION: this.currentResult -= this.input; break;
+            case MULTIPLICATION: this.currentResult *= this.input; break;
+            case DIVISION:
+                if (this.input == 0) {
+                    this.out.println(RED + errorMessage(Operation.DIVISION) + RESET);
+                    METRICS.recordError(Operation.DIVISION);
+                    setState(CalculatorState.ENDED);
+                } else {
+                    this.currentResult /= this.input;
+                }
+                break;
+            case SQUARE_ROOT:
+                if (this.currentResult < 0) {
+                    this.out.println(RED + errorMessage(Operation.SQUARE_ROOT) + RESET);
+                    METRICS.recordError(Operation.SQUARE_ROOT);
+                } else this.currentResult = Math.sqrt(this.currentResult);
+                break;
+            case LOGARITHM:
+                if (this.currentResult <= 0) {
+                    this.out.println(RED + errorMessage(Operation.LOGARITHM) + RESET);
+                    METRICS.recordError(Operation.LOGARITHM);
+                } else this.currentResult = Math.log(this.currentResult);
+                break;
+            case EXPONENTIAL: this.currentResult = Math.exp(this.currentResult); break;
+            case EQUAL:
+                this.memory.record(this.currentResult);
+                this.out.println(GREEN + "=============================");
+                this.out.println("        Result = " + resultText());
+                this.out.println("=============================" + RESET);
+                StartupTimer.firstResult();
+                setState(CalculatorState.STOPPED);
+                break;
+            default: break;
         }
     }
 
+    private void performPreciseCalculus() {
+        CalculatorState next = this.precise.apply(this.currOperation, this.preciseInput);
+        if (this.precise.getError() != Operation.NONE) {
+            this.out.println(RED + errorMessage(this.precise.getError()) + RESET);
+            METRICS.recordError(this.precise.getError());
+        }
+        if (next == CalculatorState.ENDED) setState(CalculatorState.ENDED);
+        this.currentResult = this.precise.doubleValue();
+    }
+
     public void run() {
         init();
-        this.state = CalculatorState.STARTING;
+        METRICS.recordRunStarted();
+        setState(CalculatorState.STARTING);
         printHeader("ENHANCED CALCULATOR");
 
-        System.out.print(BLUE + "Enter first number >> " + RESET);
+        this.console.prompt(BLUE + "Enter first number or expression >> " + RESET);
         this.currentResult = getNumber();
+        if (this.precise != null) this.precise.set(this.preciseInput);
 
         askOperation();
 
-        this.state = CalculatorState.RUNNING;
+        setState(CalculatorState.RUNNING);
         this.memoryState = Memory.CONTENT;
 
         while (this.state == CalculatorState.RUNNING) {
+            METRICS.recordRunStep();
             if (this.currOperation == Operation.EQUAL) {
                 performCalculus();
                 break;
@@ -100,7 +190,7 @@ public class Calculator {
                 performCalculus();
                 printCurrentResult();
             } else {
-                System.out.print(BLUE + "Enter next number >> " + RESET);
+                this.console.prompt(BLUE + "Enter next number or expression >> " + RESET);
                 this.input = getNumber();
                 performCalculus();
                 if (this.state == CalculatorState.ENDED) break;
@@ -110,15 +200,17 @@ public class Calculator {
             askOperation();
         }
 
-        System.out.println(GREEN + "Calculator stopped." + RESET);
+        METRICS.recordRunCompleted();
+        this.out.println(GREEN + "Calculator stopped." + RESET);
     }
 
     private void askOperation() {
         while (true) {
-            System.out.print(BLUE + "Enter operation (+, -, *, /, sqrt, log, exp, =) >> " + RESET);
-            this.operation = scanner.nextLine().trim().toLowerCase();
+            this.console.prompt(BLUE + "Enter operation (+, -, *, /, sqrt, log, exp, =) >> " + RESET);
+            this.operation = this.console.readLine().trim().toLowerCase();
+            if (memoryCommand(this.operation)) continue;
             if (!checkOperation(this.operation)) {
-                System.out.println(RED + "Invalid operation. Try again." + RESET);
+                this.out.println(RED + "Invalid operation. Try again." + RESET);
             } else {
                 operationShifting(this.operation);
                 break;
@@ -126,18 +218,50 @@ public class Calculator {
         }
     }
 
+    // Handles the memory commands accepted at the operation prompt: ms<n> stores
+    // the current result in register n, mc clears the registers and hist lists
+    // past results. Returns false when op is not one of them.
+    private boolean memoryCommand(String op) {
+        if (op.equals("mc")) {
+            this.memory.clearRegisters();
+            this.out.println(GREEN + "Registers cleared." + RESET);
+            return true;
+        }
+        if (op.equals("hist")) {
+            int shown = Math.min(this.memory.size(), 10);
+            if (shown == 0) this.out.println(GREEN + "No results yet." + RESET);
+            for (int age = 1; age <= shown; age++) {
+                this.out.println(GREEN + "H" + age + " = " + this.memory.recall(age) + RESET);
+            }
+            return true;
+        }
+        if (op.length() > 2 && op.startsWith("ms")) {
+            try {
+                int register = Integer.parseInt(op.substring(2).trim());
+                this.memory.store(register, this.currentResult);
+                this.out.println(GREEN + "Stored " + resultText() + " in M" + register + "." + RESET);
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                this.out.println(RED + "Invalid register: " + op.substring(2).trim() + RESET);
+            }
+            return true;
+        }
+        return false;
+    }
+
     private void printHeader(String title) {
-        System.out.println(GREEN + "===============================");
-        System.out.println("      " + title);
-        System.out.println("===============================" + RESET);
+        if (!this.console.hasPrompts()) return;
+        this.out.println(GREEN + "===============================");
+        this.out.println("      " + title);
+        this.out.println("===============================" + RESET);
     }
 
     private void printCurrentResult() {
-        System.out.println(GREEN + "Current result: " + this.currentResult + RESET);
-        System.out.println("-------------------------------");
+        this.out.println(GREEN + "Current result: " + resultText() + RESET);
+        this.out.println("-------------------------------");
+        StartupTimer.firstResult();
     }
 
-    private boolean checkOperation(String op) {
+    boolean checkOperation(String op) {
         for (String operation : operations) {
             if (operation.equalsIgnoreCase(op)) return true;
         }
@@ -148,17 +272,75 @@ public class Calculator {
         return (op == Operation.SQUARE_ROOT || op == Operation.LOGARITHM || op == Operation.EXPONENTIAL);
     }
 
+    private String resultText() {
+        return this.precise != null ? this.precise.toString() : String.valueOf(this.currentResult);
+    }
+
+    // Reads a plain number or a whole expression such as "3 + 4 * sqrt(16)".
+    // In precision mode the number is also kept exactly in preciseInput.
     private double getNumber() {
         while (true) {
+            String line = this.console.readLine();
+            if (this.precise != null) {
+                try {
+                    this.preciseInput.set(line);
+                    return this.preciseInput.doubleValue();
+                } catch (NumberFormatException e) {
+                    // Not a plain literal: evaluate it as an expression below
+                }
+            }
             try {
-                double val = scanner.nextDouble();
-                scanner.nextLine();
-                return val;
-            } catch (Exception e) {
-                System.out.println(RED + "Invalid number. Please try again." + RESET);
-                System.out.print(BLUE + "Enter number >> " + RESET);
-                scanner.nextLine();
+                Expression expression = ExpressionParser.parse(line);
+                double val = this.evaluator.evaluate(expression, recall(expression));
+                if (this.evaluator.getError() == Operation.NONE) {
+                    if (this.precise != null) this.preciseInput.set(val);
+                    return val;
+                }
+                this.out.println(RED + errorMessage(this.evaluator.getError()) + RESET);
+                METRICS.recordError(this.evaluator.getError());
+            } catch (IllegalArgumentException e) {
+                this.out.println(RED + "Invalid number or expression: " + e.getMessage() + RESET);
             }
+            this.console.prompt(BLUE + "Enter number >> " + RESET);
+        }
+    }
+
+    // Binds the expression's variables to memory: Mn is register n, ANS the
+    // latest result and Hn the n-th latest. Throws IllegalArgumentException for
+    // any other name or an empty register.
+    private double[] recall(Expression expression) {
+        String[] names = expression.variables;
+        if (this.recalled.length < names.length) this.recalled = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].toLowerCase();
+            try {
+                if (name.equals("ans")) {
+                    this.recalled[i] = this.memory.recall(1);
+                } else if (name.length() > 1 && name.charAt(0) == 'h') {
+                    this.recalled[i] = this.memory.recall(Integer.parseInt(name.substring(1)));
+                } else if (name.length() > 1 && name.charAt(0) == 'm') {
+                    int register = Integer.parseInt(name.substring(1));
+                    if (!this.memory.isStored(register)) throw new IllegalArgumentException("M" + register + " is empty");
+                    this.recalled[i] = this.memory.load(register);
+                } else {
+                    throw new IllegalArgumentException("Unknown variable: " + names[i]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Unknown variable: " + names[i]);
+            } catch (IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Nothing to recall for " + names[i]);
+            }
+        }
+        return this.recalled;
+    }
+
+    static String errorMessage(Operation op) {
+        switch (op) {
+            case DIVISION: return "Error: Division by zero.";
+            case SQUARE_ROOT: return "Error: Cannot take square root of a negative number.";
+            case LOGARITHM: return "Error: Log undefined for zero or negative numbers.";
+            case EXPONENTIAL: return "Error: Exponential result out of range.";
+            default: return "Error: " + op + " failed.";
         }
     }
 }
@@ -0,0 +1,79 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Load generator for CalculatorServer. Opens the given number of concurrent
+// sessions, each on a virtual thread, and runs calculations through them back to
+// back, timing each one from sending the input to reading "Calculator stopped.".
+//
+//   java CalculatorLoadClient [port] [sessions] [calculations per session]
+//
+// Prints throughput and latency percentiles.
+public final class CalculatorLoadClient {
+    private static final String CALCULATION = "12\n+\n3 * 10\n=\n";
+    private static final String EXPECTED = "Result = 42.0";
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : CalculatorServer.DEFAULT_PORT;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int calculations = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        long start = System.nanoTime();
+        long[][] latencies = new long[sessions][];
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?>[] futures = new Future<?>[sessions];
+            for (int i = 0; i < sessions; i++) {
+                int session = i;
+                futures[i] = clients.submit(() -> {
+                    latencies[session] = runSession(port, calculations);
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) future.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d sessions x %d calculations = %d in %.2f s -> %.0f calculations/s%n",
+                sessions, calculations, all.length, seconds, all.length / seconds);
+        System.out.printf("latency p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1] / 1e6);
+    }
+
+    private static long[] runSession(int port, int calculations) throws IOException {
+        long[] latencies = new long[calculations];
+        byte[] request = CALCULATION.getBytes(StandardCharsets.UTF_8);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (int i = 0; i < calculations; i++) {
+                long start = System.nanoTime();
+                out.write(request);
+                out.flush();
+                boolean correct = false;
+                String line;
+                while ((line = in.readLine()) != null && !line.endsWith("Calculator stopped.")) {
+                    correct |= line.contains(EXPECTED);
+                }
+                if (line == null) throw new IOException("Server closed the session");
+                if (!correct) throw new IOException("Unexpected result");
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        return latencies;
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
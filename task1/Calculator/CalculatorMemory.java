@@ -0,0 +1,209 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Register file and result history for Calculator. Registers M0..M(n-1)
+// hold values the user stores explicitly; the history keeps the last
+// `capacity` results as a ring buffer, recalled by age in O(1): recall(1) is
+// the latest result, recall(2) the one before, and so on.
+//
+// Everything lives in primitive arrays written in place, so storing a
+// result allocates nothing however long the session runs. Opened on a file,
+// the arrays are loaded from a memory-mapped image of the same layout and
+// every store is written through to the mapping, which the OS flushes to
+// disk, so history survives a restart without any serialization step:
+//
+//   int magic, int version, int registers, int capacity, int head, int size,
+//   double[registers], double[capacity]
+//
+// A file with another layout is reinitialized. Not thread-safe: each
+// Calculator owns its memory.
+public final class CalculatorMemory implements Closeable {
+    public static final int DEFAULT_REGISTERS = 10;
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private static final int MAGIC = 0x454E4D31; // "ENM1"
+    private static final int VERSION = 1;
+    private static final int HEAD_OFFSET = 16;
+    private static final int SIZE_OFFSET = 20;
+    private static final int HEADER_BYTES = 24;
+
+    private final double[] registers;
+    private final double[] history;
+    // Bit i set when register i holds a value
+    private long stored;
+    // Index where the next result goes, and the number of results kept
+    private int head;
+    private int size;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer image;
+
+    public CalculatorMemory() {
+        this(DEFAULT_REGISTERS, DEFAULT_CAPACITY);
+    }
+
+    public CalculatorMemory(int registers, int capacity) {
+        checkSizes(registers, capacity);
+        this.registers = new double[registers];
+        this.history = new double[capacity];
+        this.channel = null;
+        this.image = null;
+    }
+
+    private CalculatorMemory(int registers, int capacity, FileChannel channel) throws IOException {
+        checkSizes(registers, capacity);
+        this.registers = new double[registers];
+        this.history = new double[capacity];
+        this.channel = channel;
+        long length = HEADER_BYTES + 8L * (registers + capacity);
+        this.image = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        this.image.order(ByteOrder.nativeOrder());
+        if (image.getInt(0) == MAGIC && image.getInt(4) == VERSION
+                && image.getInt(8) == registers && image.getInt(12) == capacity) {
+            load();
+        } else {
+            image.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, registers).putInt(12, capacity);
+            image.putInt(HEAD_OFFSET, 0).putInt(SIZE_OFFSET, 0);
+            for (int i = 0; i < registers; i++) image.putDouble(registerOffset(i), Double.NaN);
+        }
+    }
+
+    // Memory persisted in file, created or reinitialized when it does not match the sizes
+    public static CalculatorMemory open(Path file, int registers, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long length = HEADER_BYTES + 8L * (registers + capacity);
+            if (channel.size() != length) channel.truncate(0);
+            return new CalculatorMemory(registers, capacity, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static CalculatorMemory open(Path file) throws IOException {
+        return open(file, DEFAULT_REGISTERS, DEFAULT_CAPACITY);
+    }
+
+    private void load() {
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = image.getDouble(registerOffset(i));
+            // NaN marks an empty register; a stored NaN result cannot be told apart and reads as empty
+            if (!Double.isNaN(registers[i])) stored |= 1L << i;
+        }
+        for (int i = 0; i < history.length; i++) history[i] = image.getDouble(historyOffset(i));
+        int h = image.getInt(HEAD_OFFSET);
+        int s = image.getInt(SIZE_OFFSET);
+        if (h >= 0 && h < history.length && s >= 0 && s <= history.length) {
+            this.head = h;
+            this.size = s;
+        }
+    }
+
+    public int getRegisterCount() {
+        return registers.length;
+    }
+
+    public int getCapacity() {
+        return history.length;
+    }
+
+    // Number of results currently recallable, at most getCapacity()
+    public int size() {
+        return size;
+    }
+
+    public boolean isPersistent() {
+        return image != null;
+    }
+
+    public void store(int register, double value) {
+        checkRegister(register);
+        registers[register] = value;
+        stored |= 1L << register;
+        if (image != null) image.putDouble(registerOffset(register), value);
+    }
+
+    public boolean isStored(int register) {
+        checkRegister(register);
+        return (stored & (1L << register)) != 0;
+    }
+
+    // Value of the register; NaN when nothing was stored in it
+    public double load(int register) {
+        checkRegister(register);
+        return isStored(register) ? registers[register] : Double.NaN;
+    }
+
+    public void clearRegisters() {
+        stored = 0;
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = Double.NaN;
+            if (image != null) image.putDouble(registerOffset(i), Double.NaN);
+        }
+    }
+
+    // Appends a result to the history, overwriting the oldest one when full
+    public void record(double result) {
+        history[head] = result;
+        if (image != null) image.putDouble(historyOffset(head), result);
+        head = head + 1 == history.length ? 0 : head + 1;
+        if (size < history.length) size++;
+        if (image != null) image.putInt(HEAD_OFFSET, head).putInt(SIZE_OFFSET, size);
+    }
+
+    // The age-th most recent result, 1 being the latest
+    public double recall(int age) {
+        if (age < 1 || age > size) {
+            throw new IndexOutOfBoundsException("No result " + age + " in history of " + size);
+        }
+        int index = head - age;
+        return history[index < 0 ? index + history.length : index];
+    }
+
+    public void clearHistory() {
+        head = 0;
+        size = 0;
+        if (image != null) image.putInt(HEAD_OFFSET, 0).putInt(SIZE_OFFSET, 0);
+    }
+
+    // Forces the mapped image to disk; a no-op for memory that is not persistent
+    public void flush() {
+        if (image != null) image.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+        }
+    }
+
+    private void checkRegister(int register) {
+        if (register < 0 || register >= registers.length) {
+            throw new IndexOutOfBoundsException("No register M" + register + ", registers are M0 to M"
+                    + (registers.length - 1));
+        }
+    }
+
+    private static void checkSizes(int registers, int capacity) {
+        // Register occupancy is one bit each in a long
+        if (registers < 1 || registers > 64) throw new IllegalArgumentException("Registers must be 1 to 64");
+        if (capacity < 1) throw new IllegalArgumentException("History capacity must be positive");
+    }
+
+    private static int registerOffset(int register) {
+        return HEADER_BYTES + 8 * register;
+    }
+
+    private int historyOffset(int index) {
+        return HEADER_BYTES + 8 * (registers.length + index);
+    }
+}
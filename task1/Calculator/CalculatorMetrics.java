@@ -0,0 +1,192 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide counters for every Calculator: calls, latency and errors per
+// Operation, transitions between CalculatorStates and run() loop activity.
+// All counters are LongAdders, striped per thread under contention, so the
+// many sessions of a CalculatorServer record without serializing on a
+// shared cache line; reads sum the stripes and may lag a running update.
+//
+// Latencies go into power-of-two nanosecond buckets, one array per
+// operation, so recording is a leading-zero count and an increment.
+// Exposed through JMX once register() has been called, see
+// CalculatorMetricsMXBean.
+public final class CalculatorMetrics implements CalculatorMetricsMXBean {
+    public static final String OBJECT_NAME = "shadowfox.eniac:type=CalculatorMetrics";
+    static final int BUCKETS = 40;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final CalculatorState[] STATES = CalculatorState.values();
+    private static final CalculatorMetrics GLOBAL = new CalculatorMetrics();
+
+    private final LongAdder[] counts = adders(OPERATIONS.length);
+    private final LongAdder[] totalNanos = adders(OPERATIONS.length);
+    private final LongAccumulator[] maxNanos = new LongAccumulator[OPERATIONS.length];
+    private final LongAdder[] histogram = adders(OPERATIONS.length * BUCKETS);
+    private final LongAdder[] errors = adders(OPERATIONS.length);
+    private final LongAdder[] transitions = adders(STATES.length * STATES.length);
+    private final LongAdder runsStarted = new LongAdder();
+    private final LongAdder runsCompleted = new LongAdder();
+    private final LongAdder runSteps = new LongAdder();
+
+    CalculatorMetrics() {
+        for (int i = 0; i < maxNanos.length; i++) maxNanos[i] = new LongAccumulator(Math::max, 0);
+    }
+
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) adders[i] = new LongAdder();
+        return adders;
+    }
+
+    // The instance every Calculator records into
+    public static CalculatorMetrics global() {
+        return GLOBAL;
+    }
+
+    // Registers the global instance with the platform MBean server; later calls do nothing
+    public static synchronized void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) server.registerMBean(GLOBAL, name);
+    }
+
+    void recordOperation(Operation operation, long nanos) {
+        int op = operation.ordinal();
+        counts[op].increment();
+        totalNanos[op].add(nanos);
+        maxNanos[op].accumulate(nanos);
+        histogram[op * BUCKETS + bucket(nanos)].increment();
+    }
+
+    void recordError(Operation operation) {
+        errors[operation.ordinal()].increment();
+    }
+
+    void recordTransition(CalculatorState from, CalculatorState to) {
+        transitions[from.ordinal() * STATES.length + to.ordinal()].increment();
+    }
+
+    void recordRunStarted() {
+        runsStarted.increment();
+    }
+
+    void recordRunCompleted() {
+        runsCompleted.increment();
+    }
+
+    void recordRunStep() {
+        runSteps.increment();
+    }
+
+    static int bucket(long nanos) {
+        return nanos <= 1 ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return byOperation(counts);
+    }
+
+    @Override
+    public Map<String, Long> getOperationMeanNanos() {
+        Map<String, Long> means = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            long count = counts[operation.ordinal()].sum();
+            if (count > 0) means.put(operation.name(), totalNanos[operation.ordinal()].sum() / count);
+        }
+        return means;
+    }
+
+    @Override
+    public Map<String, Long> getOperationMaxNanos() {
+        Map<String, Long> max = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            long value = maxNanos[operation.ordinal()].get();
+            if (value > 0) max.put(operation.name(), value);
+        }
+        return max;
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        return byOperation(errors);
+    }
+
+    @Override
+    public Map<String, Long> getStateTransitions() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (CalculatorState from : STATES) {
+            for (CalculatorState to : STATES) {
+                long count = transitions[from.ordinal() * STATES.length + to.ordinal()].sum();
+                if (count > 0) map.put(from + "->" + to, count);
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public long getRunsStarted() {
+        return runsStarted.sum();
+    }
+
+    @Override
+    public long getRunsCompleted() {
+        return runsCompleted.sum();
+    }
+
+    @Override
+    public long getRunSteps() {
+        return runSteps.sum();
+    }
+
+    @Override
+    public long getLatencyPercentileNanos(String operation, double fraction) {
+        if (!(fraction > 0 && fraction <= 1)) throw new IllegalArgumentException("Fraction must be in (0, 1]: " + fraction);
+        long[] buckets = getLatencyHistogram(operation);
+        long total = 0;
+        for (long count : buckets) total += count;
+        if (total == 0) return 0;
+        long wanted = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= wanted) return (1L << (i + 1)) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public long[] getLatencyHistogram(String operation) {
+        int op = Operation.valueOf(operation.toUpperCase()).ordinal();
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = histogram[op * BUCKETS + i].sum();
+        return buckets;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder[] group : new LongAdder[][]{counts, totalNanos, histogram, errors, transitions}) {
+            for (LongAdder adder : group) adder.reset();
+        }
+        for (LongAccumulator max : maxNanos) max.reset();
+        runsStarted.reset();
+        runsCompleted.reset();
+        runSteps.reset();
+    }
+
+    private static Map<String, Long> byOperation(LongAdder[] adders) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            long count = adders[operation.ordinal()].sum();
+            if (count > 0) map.put(operation.name(), count);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,32 @@
+import java.util.Map;
+
+// Management view of CalculatorMetrics, registered as
+// shadowfox.eniac:type=CalculatorMetrics. Maps are keyed by Operation name,
+// or "FROM->TO" for state transitions, and show up as tables in JConsole.
+public interface CalculatorMetricsMXBean {
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getOperationMeanNanos();
+
+    Map<String, Long> getOperationMaxNanos();
+
+    // Division by zero under DIVISION, domain errors under SQUARE_ROOT and LOGARITHM
+    Map<String, Long> getErrorCounts();
+
+    Map<String, Long> getStateTransitions();
+
+    long getRunsStarted();
+
+    long getRunsCompleted();
+
+    long getRunSteps();
+
+    // Latency below which the given fraction (0..1] of the operation's calls
+    // completed, as the upper bound of its power-of-two histogram bucket
+    long getLatencyPercentileNanos(String operation, double fraction);
+
+    // Calls per bucket: bucket i counts latencies in [2^i, 2^(i+1)) ns, bucket 0 also below 1 ns
+    long[] getLatencyHistogram(String operation);
+
+    void reset();
+}
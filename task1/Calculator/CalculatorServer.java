@@ -0,0 +1,120 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+
+// Serves calculator sessions over a local TCP port. Every connection gets its
+// own Calculator, with its own state machine, reading from and writing to
+// the socket without colors, and runs on a virtual thread so thousands of
+// mostly idle sessions cost little more than their buffers. A session runs
+// calculations back to back until the client disconnects or stays idle for
+// IDLE_TIMEOUT_MS. All sessions record into CalculatorMetrics, published over
+// JMX for as long as the service runs.
+//
+//   java Main --serve [port]          (or java CalculatorServer [port])
+//   printf '12\n+\n30\n=\n' | nc localhost 5050
+public final class CalculatorServer implements Closeable {
+    public static final int DEFAULT_PORT = 5050;
+    static final int IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+
+    private final ServerSocket server;
+    private final ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong served = new AtomicLong();
+
+    public CalculatorServer(int port) throws IOException {
+        // Loopback only: the service is meant for local scripts, not the network
+        this.server = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    // Entry point for "--serve"; args holds everything after the flag. Returns the exit status.
+    public static int run(String[] args) {
+        int port = DEFAULT_PORT;
+        try {
+            if (args.length > 0) port = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid port: " + args[0]);
+            return 2;
+        }
+        try {
+            CalculatorMetrics.register();
+        } catch (JMException e) {
+            System.err.println("Calculator metrics not available over JMX: " + e.getMessage());
+        }
+        try (CalculatorServer server = new CalculatorServer(port)) {
+            System.out.println("Calculator service listening on " + server.getPort());
+            server.serve();
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Calculator service failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getActiveSessions() {
+        return active.get();
+    }
+
+    public long getServedSessions() {
+        return served.get();
+    }
+
+    // Accepts connections until close() is called
+    public void serve() throws IOException {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketException e) {
+                if (server.isClosed()) return;
+                throw e;
+            }
+            sessions.execute(() -> session(socket));
+        }
+    }
+
+    private void session(Socket socket) {
+        active.incrementAndGet();
+        try (Socket s = socket) {
+            s.setSoTimeout(IDLE_TIMEOUT_MS);
+            s.setTcpNoDelay(true);
+            PrintStream out = new PrintStream(new BufferedOutputStream(s.getOutputStream()), false, StandardCharsets.UTF_8);
+            // Prompts on, colors off; the console flushes each prompt before blocking on the answer
+            Console console = new Console(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8), out, false, true);
+            Calculator calculator = new Calculator(console);
+            // The console reports end of input, idle timeout and socket errors alike as NoSuchElementException
+            while (true) calculator.run();
+        } catch (NoSuchElementException | IOException e) {
+            // Client went away
+        } finally {
+            active.decrementAndGet();
+            served.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        sessions.shutdownNow();
+    }
+}
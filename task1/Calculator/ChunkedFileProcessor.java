@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Streams a newline-delimited file through a LineHandler on all cores.
+// The input is memory-mapped a chunk at a time, each chunk cut at its last
+// newline so no line is split, and chunks are handled in parallel. Output
+// chunks are written in input order, one output line per input line, so
+// a bounded number of chunks is ever held in memory whatever the file size.
+public final class ChunkedFileProcessor {
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    // Turns one input line into its output text; the processor adds the newline.
+    // Called concurrently from worker threads, each with its own line view.
+    public interface LineHandler {
+        void handle(CharSequence line, StringBuilder out);
+    }
+
+    private final int threads;
+    private final int chunkSize;
+    // Written only by the thread running process(), read by progress reporters
+    private volatile long lines;
+    private volatile long bytesRead;
+
+    public ChunkedFileProcessor(int threads) {
+        this(threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedFileProcessor(int threads, int chunkSize) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be positive");
+        if (chunkSize < 1) throw new IllegalArgumentException("chunkSize must be positive");
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    public void process(Path input, Path output, LineHandler handler) throws IOException {
+        process(input, 0, output, new byte[0], handler);
+    }
+
+    // Processes input from byte offset start, e.g. just past a header line, and
+    // writes header to the output before the first result
+    public void process(Path input, long start, Path output, byte[] header, LineHandler handler) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<ChunkResult>> pending = new ArrayDeque<>();
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(ByteBuffer.wrap(header), out);
+            long size = in.size();
+            long pos = start;
+            while (pos < size) {
+                long length = Math.min(chunkSize, size - pos);
+                MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, pos, length);
+                int cut = (int) length;
+                if (pos + length < size) {
+                    cut = lastNewline(mapped, cut) + 1;
+                    if (cut == 0) throw new IOException("Line longer than " + chunkSize + " bytes at offset " + pos);
+                }
+                ByteBuffer chunk = mapped.slice(0, cut);
+                pending.add(pool.submit(() -> handle(chunk, handler)));
+                pos += cut;
+                // Bound memory: write finished chunks in order before reading further ahead
+                while (pending.size() >= threads * 2) write(pending.poll(), out);
+            }
+            while (!pending.isEmpty()) write(pending.poll(), out);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    private void write(Future<ChunkResult> future, FileChannel out) throws IOException {
+        ChunkResult result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Chunk failed: " + e.getCause(), e.getCause());
+        }
+        writeFully(ByteBuffer.wrap(result.output), out);
+        lines = lines + result.lines;
+        bytesRead = bytesRead + result.inputBytes;
+    }
+
+    private static void writeFully(ByteBuffer bytes, FileChannel out) throws IOException {
+        while (bytes.hasRemaining()) out.write(bytes);
+    }
+
+    private static ChunkResult handle(ByteBuffer chunk, LineHandler handler) {
+        ByteChars line = new ByteChars(chunk);
+        StringBuilder out = new StringBuilder(chunk.limit() + (chunk.limit() >> 1));
+        int limit = chunk.limit();
+        int start = 0;
+        long count = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && chunk.get(end) != '\n') end++;
+            int next = end + 1;
+            if (end > start && chunk.get(end - 1) == '\r') end--;
+            line.window(start, end);
+            handler.handle(line, out);
+            out.append('\n');
+            count++;
+            start = next;
+        }
+        return new ChunkResult(out.toString().getBytes(StandardCharsets.ISO_8859_1), count, limit);
+    }
+
+    private static int lastNewline(ByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static final class ChunkResult {
+        final byte[] output;
+        final long lines;
+        final long inputBytes;
+
+        ChunkResult(byte[] output, long lines, long inputBytes) {
+            this.output = output;
+            this.lines = lines;
+            this.inputBytes = inputBytes;
+        }
+    }
+
+    // Single-byte character view over a window of a buffer, reused for every line
+    static final class ByteChars implements CharSequence {
+        private final ByteBuffer buffer;
+        private int start;
+        private int end;
+
+        ByteChars(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void window(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(start + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            byte[] bytes = new byte[to - from];
+            buffer.get(start + from, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+// An expression turned into executable form by ExpressionCompiler. Instances
+// are immutable and safe to share between threads. eval() returns NaN where
+// ExpressionEvaluator would report a division by zero or a domain error.
+public abstract class CompiledExpression {
+    private final Expression expression;
+
+    CompiledExpression(Expression expression) {
+        this.expression = expression;
+    }
+
+    // vars[i] binds the i-th name of getVariables()
+    public abstract double eval(double[] vars);
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    public String[] getVariables() {
+        return expression.getVariables();
+    }
+
+    public int indexOf(String variable) {
+        return expression.indexOf(variable);
+    }
+
+    // True when eval() runs generated bytecode rather than the interpreter
+    public boolean isGenerated() {
+        return !(this instanceof Interpreted);
+    }
+
+    @Override
+    public String toString() {
+        return expression.getSource();
+    }
+
+    // Operations with a guarded domain, called from generated code so that
+    // both execution paths agree on NaN for invalid input.
+    static double divide(double dividend, double divisor) {
+        return divisor == 0 ? Double.NaN : dividend / divisor;
+    }
+
+    static double log(double value) {
+        return value <= 0 ? Double.NaN : Math.log(value);
+    }
+
+    // Fallback used when bytecode generation is unavailable
+    static final class Interpreted extends CompiledExpression {
+        private static final ThreadLocal<ExpressionEvaluator> EVALUATORS =
+                ThreadLocal.withInitial(ExpressionEvaluator::new);
+
+        Interpreted(Expression expression) {
+            super(expression);
+        }
+
+        @Override
+        public double eval(double[] vars) {
+            return EVALUATORS.get().evaluate(getExpression(), vars);
+        }
+    }
+}
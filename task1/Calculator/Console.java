@@ -0,0 +1,133 @@
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.NoSuchElementException;
+
+// Line-oriented console shared by Main, Calculator and Converter. There is a
+// single input buffer per console, so piped input is consumed line by line
+// in order no matter which part of the program asks for it, and output
+// goes through one buffered PrintStream that is flushed only when no whole
+// line is left in the input buffer (or on flush()), so a piped run writes in
+// large blocks while an interactive user still sees every prompt before
+// typing, even after pasting part of a line.
+//
+// In plain mode, the default when stdout is not a terminal, ANSI colors and
+// prompts are left out and only results and messages are printed.
+// -Dconsole.plain=true or false overrides the detection.
+public final class Console {
+    private static Console system;
+
+    private final Reader in;
+    private final PrintStream out;
+    private final boolean colors;
+    private final boolean prompts;
+    // Input read but not yet returned is buffer[start, end)
+    private final char[] buffer = new char[8192];
+    private int start;
+    private int end;
+    // The last line ended with '\r', so a '\n' right after it belongs to that line
+    private boolean skipLineFeed;
+
+    public Console(Reader in, PrintStream out, boolean colors, boolean prompts) {
+        this.in = in;
+        this.out = out;
+        this.colors = colors;
+        this.prompts = prompts;
+    }
+
+    // The console on System.in and stdout, created on first use
+    public static synchronized Console system() {
+        if (system == null) {
+            String property = System.getProperty("console.plain");
+            boolean plain = property != null ? Boolean.parseBoolean(property) : !isTerminal();
+            PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                    false);
+            system = new Console(new InputStreamReader(System.in), out, !plain, !plain);
+        }
+        return system;
+    }
+
+    // System.console() is null when either end is redirected up to JDK 21; later
+    // versions always return one and tell a terminal apart with isTerminal()
+    private static boolean isTerminal() {
+        java.io.Console console = System.console();
+        if (console == null) return false;
+        try {
+            return (Boolean) java.io.Console.class.getMethod("isTerminal").invoke(console);
+        } catch (ReflectiveOperationException e) {
+            return true;
+        }
+    }
+
+    public PrintStream out() {
+        return out;
+    }
+
+    public boolean hasColors() {
+        return colors;
+    }
+
+    public boolean hasPrompts() {
+        return prompts;
+    }
+
+    // The escape sequence in color mode, empty in plain mode
+    public String color(String ansi) {
+        return colors ? ansi : "";
+    }
+
+    // Prints a prompt, without a line break; nothing in plain mode
+    public void prompt(String text) {
+        if (prompts) out.print(text);
+    }
+
+    // Next input line without its terminator ("\n", "\r" or "\r\n"). Pending output is
+    // flushed first unless a whole line is already buffered, since only then can the read
+    // not block. Throws NoSuchElementException at end of input, like Scanner.
+    public String readLine() {
+        try {
+            StringBuilder partial = null;
+            while (true) {
+                if (skipLineFeed && start < end) {
+                    if (buffer[start] == '\n') start++;
+                    skipLineFeed = false;
+                }
+                for (int i = start; i < end; i++) {
+                    char c = buffer[i];
+                    if (c == '\n' || c == '\r') {
+                        String line = partial == null ? new String(buffer, start, i - start)
+                                : partial.append(buffer, start, i - start).toString();
+                        start = i + 1;
+                        skipLineFeed = c == '\r';
+                        return line;
+                    }
+                }
+                if (partial == null) partial = new StringBuilder();
+                partial.append(buffer, start, end - start);
+                start = 0;
+                end = 0;
+                out.flush();
+                int read = in.read(buffer, 0, buffer.length);
+                if (read < 0) {
+                    // A last line without a terminator still counts
+                    if (partial.length() > 0) return partial.toString();
+                    throw new NoSuchElementException("End of input");
+                }
+                end = read;
+            }
+        } catch (IOException e) {
+            out.flush();
+            NoSuchElementException end = new NoSuchElementException("Input failed: " + e.getMessage());
+            end.initCause(e);
+            throw end;
+        }
+    }
+
+    public void flush() {
+        out.flush();
+    }
+}
@@ -1,25 +1,77 @@
-import java.util.*;
+import java.io.PrintStream;
+import java.util.List;
 
 public class Converter {
-    public static Scanner scanner = new Scanner(System.in);
-    public static String services[] = {"TEMPERATURE", "CURRENCY", "DISTANCE"};
+    static final UnitRegistry DEFAULT_UNITS = UnitRegistry.defaults();
+    private static final Unit CELSIUS = DEFAULT_UNITS.find("C");
+    private static final Unit FAHRENHEIT = DEFAULT_UNITS.find("F");
+    private static final Unit KILOMETER = DEFAULT_UNITS.find("km");
+    private static final Unit MILE = DEFAULT_UNITS.find("mi");
+    private static final Unit USD = DEFAULT_UNITS.find("USD");
+    private static final Unit EUR = DEFAULT_UNITS.find("EUR");
+
     private int choice;
+    // Services are the dimensions of this table, see UnitRegistry; a copy of the defaults, as
+    // Main may load more units into it
+    private final UnitRegistry units = DEFAULT_UNITS.copy();
+    // Live currency rates replacing the table's currency dimension, null to use the table
+    private CurrencyRates rates;
+
+    private final Console console;
+    private final PrintStream out;
+
+    private final String BLUE;
+    private final String GREEN;
+    private final String RED;
+    private final String YELLOW;
+    private final String RESET;
+
+    public Converter() {
+        this(Console.system());
+    }
+
+    public Converter(Console console) {
+        this.console = console;
+        this.out = console.out();
+        this.BLUE = console.color("\033[1;34m");
+        this.GREEN = console.color("\033[1;32m");
+        this.RED = console.color("\033[1;31m");
+        this.YELLOW = console.color("\033[1;33m");
+        this.RESET = console.color("\033[0m");
+    }
+
+    public UnitRegistry getUnits() {
+        return units;
+    }
+
+    public void setRates(CurrencyRates rates) {
+        this.rates = rates;
+    }
+
+    // The dimension to convert with: the latest rate snapshot stands in for the table's currencies
+    UnitDimension resolve(UnitDimension dimension) {
+        if (rates != null && dimension.getName().equalsIgnoreCase("currency")) return rates.current().getDimension();
+        return dimension;
+    }
 
     // Display conversion services with styling
-    public static void showServices() {
-        System.out.println("\033[1;34m================ Conversion Services ================\033[0m");
-        for (int i = 0; i < services.length; i++) {
-            System.out.println((i + 1) + "\t" + services[i]);
+    public void showServices() {
+        List<UnitDimension> dimensions = units.getDimensions();
+        out.println(BLUE + "================ Conversion Services ================" + RESET);
+        for (int i = 0; i < dimensions.size(); i++) {
+            out.println((i + 1) + "\t" + dimensions.get(i).getName().toUpperCase());
         }
-        System.out.println("\033[1;34m===================================================\033[0m");
+        out.println(BLUE + "===================================================" + RESET);
     }
 
     // Main run method
     public void run() {
         clearScreen();
-        showServices();
-        System.out.println("\033[1;32mUnits Converter is running...\033[0m");
-        System.out.println("Choose a service by entering the corresponding number:");
+        if (console.hasPrompts()) {
+            showServices();
+            out.println(GREEN + "Units Converter is running..." + RESET);
+            out.println("Choose a service by entering the corresponding number:");
+        }
         this.choice = getChoice();
         convert();
     }
@@ -27,138 +79,121 @@ public class Converter {
     // Safely read integer input for choices
     public int getChoice() {
         while (true) {
+            String line = console.readLine().trim();
             try {
-                int val = scanner.nextInt();
-                scanner.nextLine(); // clear buffer
-                return val;
-            } catch (InputMismatchException e) {
-                System.out.print("\033[1;31mInvalid choice. Enter a number >> \033[0m");
-                scanner.nextLine(); // clear buffer
+                return Integer.parseInt(line);
+            } catch (NumberFormatException e) {
+                out.println(RED + "Invalid choice: " + line + RESET);
+                console.prompt("Enter a number >> ");
             }
         }
     }
 
-    // Conversion dispatcher
+    // Conversion dispatcher: the choice numbers the registry's dimensions
     public void convert() {
-        switch (this.choice) {
-            case 1:
-                temperatureMenu();
-                break;
-            case 2:
-                currencyMenu();
-                break;
-            case 3:
-                distanceMenu();
-                break;
-            default:
-                System.out.println("\033[1;31mInvalid service choice.\033[0m");
-                break;
+        List<UnitDimension> dimensions = units.getDimensions();
+        if (this.choice < 1 || this.choice > dimensions.size()) {
+            out.println(RED + "Invalid service choice." + RESET);
+            return;
         }
+        UnitDimension dimension = resolve(dimensions.get(this.choice - 1));
+        if (rates != null && console.hasPrompts() && dimension != dimensions.get(this.choice - 1)) {
+            RateSnapshot snapshot = rates.current();
+            out.println(YELLOW + "Rates as of " + snapshot.getTime() + " from " + snapshot.getSource()
+                    + (rates.isStale() ? " (stale)" : "") + RESET);
+        }
+        unitMenu(dimension);
     }
 
-    private void temperatureMenu() {
-        System.out.println("\033[1;33mTemperature Conversion Selected.\033[0m");
-        System.out.println("1. Celsius to Fahrenheit");
-        System.out.println("2. Fahrenheit to Celsius");
-        System.out.print("Enter your choice >> ");
-        int tempChoice = getChoice();
-        convertTemperature(tempChoice);
-    }
-
-    private void currencyMenu() {
-        System.out.println("\033[1;33mCurrency Conversion Selected.\033[0m");
-        System.out.println("1. USD to EUR");
-        System.out.println("2. EUR to USD");
-        System.out.print("Enter your choice >> ");
-        int currChoice = getChoice();
-        convertCurrency(currChoice);
+    private void unitMenu(UnitDimension dimension) {
+        if (console.hasPrompts()) {
+            out.println(YELLOW + capitalize(dimension.getName()) + " Conversion Selected." + RESET);
+            for (int i = 0; i < dimension.size(); i++) {
+                out.println((i + 1) + ". " + dimension.getSymbol(i) + "\t" + dimension.getName(i));
+            }
+        }
+        console.prompt("Convert from (number or unit) >> ");
+        int from = getUnitInput(dimension);
+        console.prompt("Convert to (number or unit) >> ");
+        int to = getUnitInput(dimension);
+        console.prompt("Enter value in " + dimension.getName(from) + " >> ");
+        double value = getDoubleInput();
+        double result = dimension.convert(from, to, value);
+        out.println(value + " " + dimension.getSymbol(from) + " = " + result + " " + dimension.getSymbol(to));
+        StartupTimer.firstResult();
     }
 
-    private void distanceMenu() {
-        System.out.println("\033[1;33mDistance Conversion Selected.\033[0m");
-        System.out.println("1. Kilometers to Miles");
-        System.out.println("2. Miles to Kilometers");
-        System.out.print("Enter your choice >> ");
-        int distChoice = getChoice();
-        convertDistance(distChoice);
+    // Reads a unit of the dimension by its menu number, symbol or name
+    private int getUnitInput(UnitDimension dimension) {
+        while (true) {
+            String line = console.readLine().trim();
+            int unit = dimension.indexOf(line);
+            if (unit >= 0) return unit;
+            try {
+                unit = Integer.parseInt(line) - 1;
+                if (unit >= 0 && unit < dimension.size()) return unit;
+            } catch (NumberFormatException e) {
+                // Neither a unit nor a number
+            }
+            out.println(RED + "Invalid " + dimension.getName() + " unit: " + line + RESET);
+            console.prompt("Enter again >> ");
+        }
     }
 
     // Safely read a double value
     private double getDoubleInput() {
         while (true) {
+            String line = console.readLine().trim();
             try {
-                double input = scanner.nextDouble();
-                scanner.nextLine(); // clear buffer
-                return input;
-            } catch (InputMismatchException e) {
-                System.out.print("\033[1;31mInvalid number. Enter again >> \033[0m");
-                scanner.nextLine();
+                return Double.parseDouble(line);
+            } catch (NumberFormatException e) {
+                out.println(RED + "Invalid number: " + line + RESET);
+                console.prompt("Enter again >> ");
             }
         }
     }
 
-    // Temperature conversions
-    private void convertTemperature(int choice) {
-        if (choice == 1) {
-            System.out.print("Enter temperature in Celsius >> ");
-            double celsius = getDoubleInput();
-            double fahrenheit = (celsius * 9 / 5) + 32;
-            System.out.println(celsius + " °C = " + fahrenheit + " °F");
-        } else if (choice == 2) {
-            System.out.print("Enter temperature in Fahrenheit >> ");
-            double fahrenheit = getDoubleInput();
-            double celsius = (fahrenheit - 32) * 5 / 9;
-            System.out.println(fahrenheit + " °F = " + celsius + " °C");
-        } else {
-            System.out.println("\033[1;31mInvalid temperature conversion choice.\033[0m");
-        }
+    private static String capitalize(String name) {
+        return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
     }
 
-    // Distance conversions
-    private void convertDistance(int choice) {
-        if (choice == 1) {
-            System.out.print("Enter distance in Kilometers >> ");
-            double km = getDoubleInput();
-            double miles = km * 0.621371;
-            System.out.println(km + " km = " + miles + " miles");
-        } else if (choice == 2) {
-            System.out.print("Enter distance in Miles >> ");
-            double miles = getDoubleInput();
-            double km = miles / 0.621371;
-            System.out.println(miles + " miles = " + km + " km");
-        } else {
-            System.out.println("\033[1;31mInvalid distance conversion choice.\033[0m");
-        }
+    // Conversion formulas of the original menus, over the default unit table
+    static double celsiusToFahrenheit(double celsius) {
+        return CELSIUS.convert(celsius, FAHRENHEIT);
     }
 
-    // Currency conversions
-    private void convertCurrency(int choice) {
-        if (choice == 1) {
-            System.out.print("Enter amount in USD >> ");
-            double usd = getDoubleInput();
-            double eur = usd * 0.85; // example rate
-            System.out.println(usd + " USD = " + eur + " EUR");
-        } else if (choice == 2) {
-            System.out.print("Enter amount in EUR >> ");
-            double eur = getDoubleInput();
-            double usd = eur / 0.85;
-            System.out.println(eur + " EUR = " + usd + " USD");
-        } else {
-            System.out.println("\033[1;31mInvalid currency conversion choice.\033[0m");
-        }
+    static double fahrenheitToCelsius(double fahrenheit) {
+        return FAHRENHEIT.convert(fahrenheit, CELSIUS);
+    }
+
+    static double kilometersToMiles(double km) {
+        return KILOMETER.convert(km, MILE);
+    }
+
+    static double milesToKilometers(double miles) {
+        return MILE.convert(miles, KILOMETER);
+    }
+
+    static double usdToEur(double usd) {
+        return USD.convert(usd, EUR);
+    }
+
+    static double eurToUsd(double eur) {
+        return EUR.convert(eur, USD);
     }
 
-    // Clear console screen
+    // Clear console screen; plain mode output is not a screen
     private void clearScreen() {
+        if (!console.hasColors()) return;
         try {
             if (System.getProperty("os.name").toLowerCase().contains("windows")) {
+                out.flush();
                 new ProcessBuilder("cmd", "/c", "cls").inheritIO().start().waitFor();
             } else {
-                System.out.print("\033[H\033[2J");
-                System.out.flush();
+                out.print("\033[H\033[2J");
             }
         } catch (Exception e) {
-            System.out.println("Error clearing screen: " + e.getMessage());
+            out.println("Error clearing screen: " + e.getMessage());
         }
     }
 }
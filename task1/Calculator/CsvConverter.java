@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Headless bulk Converter: streams a CSV file through ChunkedFileProcessor and
+// converts numeric columns between units, leaving every other field as it is.
+//
+//   java Main --convert data.csv --column 2:km:mi --column price:USD:EUR
+//             [--out data.csv.out] [--threads N] [--units table.txt] [--no-header]
+//
+// A column is its 1-based number or, with a header line, its name. Fields are
+// read in place from the mapped chunk; only converted values are formatted.
+// Quoted fields are kept intact, and a converted field that is not a number is
+// left unchanged and counted as an error, as is a row too short to have
+// every converted field. Output lines always end in LF, the header's
+// included, whatever the input used. Progress goes to stderr every second.
+public final class CsvConverter {
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
+    private final char delimiter;
+    // Per field number: the conversion applied to it, unconverted beyond the array
+    private final boolean[] converted;
+    private final double[] scale;
+    private final double[] offset;
+    // Counted as rows are converted, ahead of what ChunkedFileProcessor has written
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder conversions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    CsvConverter(char delimiter, int[] columns, Unit[] from, Unit[] to) {
+        int fields = 0;
+        for (int column : columns) fields = Math.max(fields, column + 1);
+        this.delimiter = delimiter;
+        this.converted = new boolean[fields];
+        this.scale = new double[fields];
+        this.offset = new double[fields];
+        for (int c = 0; c < columns.length; c++) {
+            if (from[c].getDimension() != to[c].getDimension()) {
+                throw new IllegalArgumentException("Cannot convert " + from[c].getSymbol() + " ("
+                        + from[c].getDimension().getName() + ") to " + to[c].getSymbol() + " ("
+                        + to[c].getDimension().getName() + ")");
+            }
+            UnitDimension dimension = from[c].getDimension();
+            converted[columns[c]] = true;
+            scale[columns[c]] = dimension.getScale(from[c].getIndex(), to[c].getIndex());
+            offset[columns[c]] = dimension.getOffset(from[c].getIndex(), to[c].getIndex());
+        }
+    }
+
+    // Entry point for "--convert"; args holds everything after the flag. Returns the exit status.
+    public static int run(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: --convert <file> --column <column>:<from>:<to> ... [--out <file>]"
+                    + " [--threads <n>] [--units <file>] [--delimiter <c>] [--no-header]");
+            return 2;
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[0] + ".out");
+        int threads = Runtime.getRuntime().availableProcessors();
+        char delimiter = ',';
+        boolean header = true;
+        List<String> specs = new ArrayList<>();
+        UnitRegistry units = UnitRegistry.defaults();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--column") && i + 1 < args.length) {
+                    specs.add(args[++i]);
+                } else if (args[i].equals("--out") && i + 1 < args.length) {
+                    output = Paths.get(args[++i]);
+                } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--units") && i + 1 < args.length) {
+                    units.load(Paths.get(args[++i]));
+                } else if (args[i].equals("--delimiter") && i + 1 < args.length) {
+                    String value = args[++i];
+                    if (!value.equals("tab") && value.length() != 1) {
+                        System.err.println("Invalid convert delimiter: \"" + value + "\" (one character or tab)");
+                        return 2;
+                    }
+                    delimiter = value.equals("tab") ? '\t' : value.charAt(0);
+                } else if (args[i].equals("--no-header")) {
+                    header = false;
+                } else {
+                    System.err.println("Unknown convert option: " + args[i]);
+                    return 2;
+                }
+            }
+            if (specs.isEmpty()) {
+                System.err.println("No --column to convert");
+                return 2;
+            }
+            if (!Files.isRegularFile(input)) {
+                System.err.println("Input file not found: " + input);
+                return 1;
+            }
+
+            byte[] headerLine = header ? readHeader(input) : new byte[0];
+            List<String> names = header ? splitHeader(headerLine, delimiter) : List.of();
+            int[] columns = new int[specs.size()];
+            Unit[] from = new Unit[specs.size()];
+            Unit[] to = new Unit[specs.size()];
+            for (int c = 0; c < specs.size(); c++) {
+                // The name may itself contain ':', the two units never do
+                String spec = specs.get(c);
+                int second = spec.lastIndexOf(':');
+                int first = second > 0 ? spec.lastIndexOf(':', second - 1) : -1;
+                if (first < 0) throw new IllegalArgumentException("Expected <column>:<from>:<to> but got " + spec);
+                columns[c] = column(spec.substring(0, first), names);
+                from[c] = require(units, spec.substring(first + 1, second));
+                to[c] = require(units, spec.substring(second + 1));
+            }
+
+            CsvConverter converter = new CsvConverter(delimiter, columns, from, to);
+            ChunkedFileProcessor processor = new ChunkedFileProcessor(threads);
+            long size = Files.size(input);
+            long startTime = System.nanoTime();
+            ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "convert-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progress.scheduleAtFixedRate(() -> report(System.err, processor, converter, size, startTime),
+                    PROGRESS_INTERVAL_MILLIS, PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            try {
+                processor.process(input, headerLine.length, output, withLineFeed(headerLine), converter::convert);
+            } finally {
+                progress.shutdownNow();
+            }
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+
+            System.out.printf("Converted %d values in %d rows (%d errors) in %.2f s, %.1f MB/s -> %s%n",
+                    converter.getConversions(), processor.getLines(), converter.getErrors(), seconds,
+                    processor.getBytesRead() / 1e6 / seconds, output);
+            return 0;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid thread count: " + e.getMessage());
+            return 2;
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Conversion failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static void report(PrintStream err, ChunkedFileProcessor processor, CsvConverter converter,
+                               long size, long startTime) {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        long rows = converter.getRows();
+        err.printf("%5.1f%% written  %d rows  %d values  %.0f rows/s%n",
+                size == 0 ? 100.0 : 100.0 * processor.getBytesRead() / size,
+                rows, converter.getConversions(), rows / seconds);
+    }
+
+    // Converts the configured fields of one row; called concurrently, see LineHandler
+    void convert(CharSequence line, StringBuilder out) {
+        rows.increment();
+        int length = line.length();
+        int start = 0;
+        for (int field = 0; ; field++) {
+            int end = fieldEnd(line, start, length);
+            if (field < converted.length && converted[field]) {
+                convertField(line, start, end, field, out);
+            } else {
+                out.append(line, start, end);
+            }
+            if (end >= length) {
+                // A row that ends before the last converted field is missing a value
+                if (field < converted.length - 1 && length > 0) errors.increment();
+                return;
+            }
+            out.append(delimiter);
+            start = end + 1;
+        }
+    }
+
+    private void convertField(CharSequence line, int start, int end, int field, StringBuilder out) {
+        int from = start;
+        int to = end;
+        while (from < to && line.charAt(from) == ' ') from++;
+        while (to > from && line.charAt(to - 1) == ' ') to--;
+        if (to - from >= 2 && line.charAt(from) == '"' && line.charAt(to - 1) == '"') {
+            from++;
+            to--;
+        }
+        if (from == to) return; // empty stays empty
+        try {
+            double value = ExpressionParser.parseDecimal(line, from, to);
+            out.append(value * scale[field] + offset[field]);
+            conversions.increment();
+        } catch (NumberFormatException e) {
+            out.append(line, start, end);
+            errors.increment();
+        }
+    }
+
+    // End of the field starting at start: the next delimiter outside double quotes
+    private int fieldEnd(CharSequence line, int start, int length) {
+        boolean quoted = false;
+        for (int i = start; i < length; i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == delimiter && !quoted) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    long getRows() {
+        return rows.sum();
+    }
+
+    long getConversions() {
+        return conversions.sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    // The first line including its newline, as raw bytes so it is copied unchanged but for the newline
+    private static byte[] readHeader(Path input) throws IOException {
+        try (InputStream in = Files.newInputStream(input)) {
+            byte[] line = new byte[256];
+            int length = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                line[length++] = (byte) b;
+                if (b == '\n') break;
+            }
+            return Arrays.copyOf(line, length);
+        }
+    }
+
+    // The header with a CRLF ending turned into LF, like the rows ChunkedFileProcessor writes
+    private static byte[] withLineFeed(byte[] header) {
+        int length = header.length;
+        if (length < 2 || header[length - 2] != '\r' || header[length - 1] != '\n') return header;
+        byte[] line = Arrays.copyOf(header, length - 1);
+        line[length - 2] = '\n';
+        return line;
+    }
+
+    private static List<String> splitHeader(byte[] header, char delimiter) {
+        String line = new String(header, StandardCharsets.UTF_8).strip();
+        List<String> names = new ArrayList<>();
+        for (String name : line.split(Pattern.quote(String.valueOf(delimiter)), -1)) {
+            name = name.strip();
+            if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+                name = name.substring(1, name.length() - 1);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    // 1-based column number, or a header name
+    private static int column(String column, List<String> names) {
+        int index = names.indexOf(column);
+        if (index >= 0) return index;
+        try {
+            index = Integer.parseInt(column) - 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown column: " + column);
+        }
+        if (index < 0) throw new IllegalArgumentException("Column numbers start at 1: " + column);
+        if (!names.isEmpty() && index >= names.size()) {
+            throw new IllegalArgumentException("Column " + column + " is past the " + names.size()
+                    + " columns of the header");
+        }
+        return index;
+    }
+
+    private static Unit require(UnitRegistry units, String unit) {
+        Unit found = units.find(unit);
+        if (found == null) throw new IllegalArgumentException("Unknown unit: " + unit);
+        return found;
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Live currency rates for Converter. The current RateSnapshot is published
+// through an AtomicReference: readers take it with one volatile read and
+// never lock or wait, and a refresh swaps in a complete new table at once,
+// so a conversion never mixes rates of two tables.
+//
+// start() publishes the last good snapshot saved in the cache file (or the
+// fallback when there is none) without touching the network, then a daemon
+// thread fetches from the provider right away and again every TTL. Each
+// successful fetch is published and written to the cache; a failed one keeps
+// the previous snapshot and is only recorded, see getLastError().
+public final class CurrencyRates implements Closeable {
+    private final RateProvider provider;
+    private final Path cache;
+    private final Duration ttl;
+    private final AtomicReference<RateSnapshot> current;
+    private final AtomicReference<Exception> lastError = new AtomicReference<>();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private ScheduledExecutorService refresher;
+
+    // cache may be null to keep nothing on disk
+    public CurrencyRates(RateProvider provider, Path cache, Duration ttl, RateSnapshot fallback) {
+        if (ttl.isZero() || ttl.isNegative()) throw new IllegalArgumentException("TTL must be positive");
+        this.provider = provider;
+        this.cache = cache;
+        this.ttl = ttl;
+        this.current = new AtomicReference<>(fallback);
+    }
+
+    // Loads the cache and schedules the refreshes; never blocks on the provider
+    public synchronized void start() {
+        if (refresher != null) return;
+        RateSnapshot cached = loadCache();
+        if (cached != null) current.set(cached);
+        refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "currency-rates");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, 0, ttl.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // The table to convert with; never null
+    public RateSnapshot current() {
+        return current.get();
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    // True when the current table is older than the TTL, e.g. while the provider is unreachable
+    public boolean isStale() {
+        return current.get().getTime().plus(ttl).isBefore(Instant.now());
+    }
+
+    // Failure of the last refresh, null if it succeeded
+    public Exception getLastError() {
+        return lastError.get();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    // Fetches and publishes a new table now; returns false and keeps the current one on failure
+    public boolean refresh() {
+        RateSnapshot fresh;
+        try {
+            fresh = provider.fetch();
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            lastError.set(e);
+            return false;
+        }
+        current.set(fresh);
+        refreshes.incrementAndGet();
+        lastError.set(null);
+        try {
+            saveCache(fresh);
+        } catch (IOException e) {
+            // The table is in use; only the copy for the next start is missing
+            lastError.set(e);
+        }
+        return true;
+    }
+
+    private RateSnapshot loadCache() {
+        if (cache == null) return null;
+        try (Reader in = Files.newBufferedReader(cache, StandardCharsets.UTF_8)) {
+            return RateSnapshot.read(in, cache.toString());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // A damaged cache is as good as none; the next refresh rewrites it
+            lastError.set(e);
+            return null;
+        }
+    }
+
+    // Written next to the cache and moved over it, so a crash never leaves half a table
+    private void saveCache(RateSnapshot snapshot) throws IOException {
+        if (cache == null) return;
+        Path parent = cache.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, cache.getFileName().toString(), ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                snapshot.write(out);
+            }
+            try {
+                Files.move(temp, cache, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+// Compiled form of an arithmetic expression: a flat postfix program over a
+// primitive op array, produced once by ExpressionParser and evaluated many
+// times by ExpressionEvaluator without allocating.
+public final class Expression {
+    static final byte PUSH = 0;
+    static final byte ADD = 1;
+    static final byte SUBTRACT = 2;
+    static final byte MULTIPLY = 3;
+    static final byte DIVIDE = 4;
+    static final byte SQRT = 5;
+    static final byte LOG = 6;
+    static final byte EXP = 7;
+    static final byte NEGATE = 8;
+    static final byte LOAD = 9;
+
+    private final String source;
+    // Postfix opcodes; every PUSH consumes the next entry of constants and
+    // every LOAD the next entry of slots, in order.
+    final byte[] code;
+    final double[] constants;
+    final int[] slots;
+    final String[] variables;
+    final int maxStack;
+
+    Expression(String source, byte[] code, double[] constants, int[] slots, String[] variables, int maxStack) {
+        this.source = source;
+        this.code = code;
+        this.constants = constants;
+        this.slots = slots;
+        this.variables = variables;
+        this.maxStack = maxStack;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    // Variable names in slot order: vars[i] passed to evaluation binds variables[i]
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    // Slot of a variable, or -1 when the expression does not use it
+    public int indexOf(String variable) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(variable)) return i;
+        }
+        return -1;
+    }
+
+    // Calculator operation carried out by an opcode, NONE for PUSH, LOAD and NEGATE
+    static Operation operationOf(byte op) {
+        switch (op) {
+            case ADD: return Operation.ADDITION;
+            case SUBTRACT: return Operation.SUBTRACTION;
+            case MULTIPLY: return Operation.MULTIPLICATION;
+            case DIVIDE: return Operation.DIVISION;
+            case SQRT: return Operation.SQUARE_ROOT;
+            case LOG: return Operation.LOGARITHM;
+            case EXP: return Operation.EXPONENTIAL;
+            default: return Operation.NONE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.Random;
+
+// Compares a formula compiled by ExpressionCompiler with the same formula run
+// by the interpreter (ExpressionCompiler.interpret), both through
+// CompiledExpression.eval(double[]) with fresh variable values each call.
+//
+//   java ExpressionBenchmark [formula] [calls] [rounds]
+//
+// Prints the best time per call of each and checks that both return the
+// same results.
+public final class ExpressionBenchmark {
+    public static void main(String[] args) {
+        String formula = args.length > 0 ? args[0] : "base * (1 + rate) - discount / qty";
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Expression expression = ExpressionParser.parse(formula);
+        CompiledExpression compiled = ExpressionCompiler.compile(expression);
+        CompiledExpression interpreted = ExpressionCompiler.interpret(expression);
+        int variables = expression.getVariables().length;
+
+        // A small pool of bindings, cycled so the values change from call to call
+        Random random = new Random(42);
+        double[][] bindings = new double[1024][variables];
+        for (double[] vars : bindings) {
+            for (int v = 0; v < variables; v++) vars[v] = 1 + random.nextDouble() * 100;
+        }
+
+        System.out.printf("%s, %d variables, %,d calls%n", formula, variables, calls);
+        if (!compiled.isGenerated()) System.out.println("bytecode generation unavailable, both run the interpreter");
+        double generatedSum = report("compiled", compiled, bindings, calls, rounds);
+        double interpretedSum = report("interpreted", interpreted, bindings, calls, rounds);
+        if (Double.compare(generatedSum, interpretedSum) != 0) {
+            System.out.println("results differ: " + generatedSum + " and " + interpretedSum);
+        }
+    }
+
+    // Prints the best time per call and returns the sum of the results of the last round
+    private static double report(String name, CompiledExpression expression, double[][] bindings, int calls,
+                                 int rounds) {
+        double sum = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            sum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) sum += expression.eval(bindings[i & (bindings.length - 1)]);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-12s %8.2f ns/call%n", name, (double) best / calls);
+        return sum;
+    }
+}
@@ -0,0 +1,265 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compiles expressions with named variables into hidden classes whose
+// eval(double[]) is straight-line JVM bytecode, so the JIT can inline a
+// formula at its call site instead of interpreting opcodes. Compiled
+// expressions are cached by source text; when a class cannot be defined the
+// interpreter is used instead.
+//
+// It is a library API for code that evaluates one formula many times:
+// Calculator and BatchRunner evaluate each line once, where compiling would
+// cost more than it saves. ExpressionBenchmark measures the difference.
+//
+//   CompiledExpression price = ExpressionCompiler.compile("base * (1 + rate) - discount");
+//   double[] vars = new double[price.getVariables().length];
+//   vars[price.indexOf("base")] = 120; ...
+//   double value = price.eval(vars);
+public final class ExpressionCompiler {
+    private static final int MAX_CACHED = 4096;
+    private static final Map<String, CompiledExpression> CACHE = new ConcurrentHashMap<>();
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final String SUPER_CLASS = "CompiledExpression";
+    private static final String GENERATED_CLASS = "CompiledExpression$Generated";
+
+    private ExpressionCompiler() {
+    }
+
+    // Parses and compiles text, or returns the instance cached for it
+    public static CompiledExpression compile(String text) {
+        CompiledExpression cached = CACHE.get(text);
+        if (cached != null) return cached;
+        CompiledExpression compiled = compile(ExpressionParser.parse(text));
+        if (CACHE.size() >= MAX_CACHED) CACHE.clear();
+        CompiledExpression raced = CACHE.putIfAbsent(text, compiled);
+        return raced != null ? raced : compiled;
+    }
+
+    public static CompiledExpression compile(Expression expression) {
+        try {
+            byte[] bytes = generate(expression);
+            if (bytes != null) {
+                Class<?> generated = LOOKUP.defineHiddenClass(bytes, true).lookupClass();
+                return (CompiledExpression) generated.getDeclaredConstructor(Expression.class).newInstance(expression);
+            }
+        } catch (IOException | ReflectiveOperationException | LinkageError | IllegalArgumentException e) {
+            // Fall through: restricted runtimes may refuse to define classes
+        }
+        return interpret(expression);
+    }
+
+    public static CompiledExpression interpret(Expression expression) {
+        return new CompiledExpression.Interpreted(expression);
+    }
+
+    public static int cacheSize() {
+        return CACHE.size();
+    }
+
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    // Class file for: final class CompiledExpression$Generated extends CompiledExpression,
+    // with a constructor forwarding the Expression and eval() holding the program.
+    // Returns null when the program is too large for a single method.
+    static byte[] generate(Expression expression) throws IOException {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classRef(GENERATED_CLASS);
+        int superClass = pool.classRef(SUPER_CLASS);
+        int superInit = pool.methodRef(SUPER_CLASS, "<init>", "(LExpression;)V");
+        int initName = pool.utf8("<init>");
+        int initType = pool.utf8("(LExpression;)V");
+        int evalName = pool.utf8("eval");
+        int evalType = pool.utf8("([D)D");
+        int codeAttribute = pool.utf8("Code");
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int constant = 0;
+        int slot = 0;
+        for (byte op : expression.code) {
+            switch (op) {
+                case Expression.PUSH: {
+                    double value = expression.constants[constant++];
+                    if (Double.doubleToRawLongBits(value) == 0L) {
+                        body.write(0x0e); // dconst_0
+                    } else if (value == 1.0) {
+                        body.write(0x0f); // dconst_1
+                    } else {
+                        body.write(0x14); // ldc2_w
+                        writeShort(body, pool.doubleConstant(value));
+                    }
+                    break;
+                }
+                case Expression.LOAD:
+                    body.write(0x2b); // aload_1
+                    pushInt(body, pool, expression.slots[slot++]);
+                    body.write(0x31); // daload
+                    break;
+                case Expression.ADD: body.write(0x63); break; // dadd
+                case Expression.SUBTRACT: body.write(0x67); break; // dsub
+                case Expression.MULTIPLY: body.write(0x6b); break; // dmul
+                case Expression.NEGATE: body.write(0x77); break; // dneg
+                case Expression.DIVIDE: invokeStatic(body, pool.methodRef(SUPER_CLASS, "divide", "(DD)D")); break;
+                case Expression.LOG: invokeStatic(body, pool.methodRef(SUPER_CLASS, "log", "(D)D")); break;
+                case Expression.SQRT: invokeStatic(body, pool.methodRef("java/lang/Math", "sqrt", "(D)D")); break;
+                case Expression.EXP: invokeStatic(body, pool.methodRef("java/lang/Math", "exp", "(D)D")); break;
+                default: throw new IllegalStateException("Bad opcode " + op);
+            }
+        }
+        body.write(0xaf); // dreturn
+        if (body.size() > 65535 || pool.size() > 65535) return null;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(52);
+        pool.writeTo(out);
+        out.writeShort(0x0030); // final, super
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(2); // methods
+
+        // <init>(Expression): aload_0, aload_1, invokespecial super, return
+        byte[] init = {0x2a, 0x2b, (byte) 0xb7, (byte) (superInit >> 8), (byte) superInit, (byte) 0xb1};
+        writeMethod(out, 0x0001, initName, initType, codeAttribute, 2, 2, init);
+        // Doubles take two stack slots; LOAD briefly adds an array and an index on top
+        writeMethod(out, 0x0011, evalName, evalType, codeAttribute,
+                expression.maxStack * 2 + 2, 2, body.toByteArray());
+
+        out.writeShort(0); // class attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int access, int name, int type, int codeAttribute,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(type);
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // code attributes
+    }
+
+    private static void pushInt(ByteArrayOutputStream body, ConstantPool pool, int value) {
+        if (value <= 5) {
+            body.write(0x03 + value); // iconst_<n>
+        } else if (value <= Byte.MAX_VALUE) {
+            body.write(0x10); // bipush
+            body.write(value);
+        } else if (value <= Short.MAX_VALUE) {
+            body.write(0x11); // sipush
+            writeShort(body, value);
+        } else {
+            body.write(0x13); // ldc_w
+            writeShort(body, pool.intConstant(value));
+        }
+    }
+
+    private static void invokeStatic(ByteArrayOutputStream body, int methodRef) {
+        body.write(0xb8);
+        writeShort(body, methodRef);
+    }
+
+    private static void writeShort(ByteArrayOutputStream body, int value) {
+        body.write(value >>> 8);
+        body.write(value);
+    }
+
+    // Minimal constant pool with de-duplicated entries
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(entries);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int next = 1;
+
+        int size() {
+            return next;
+        }
+
+        int utf8(String value) {
+            return entry("U" + value, 1, () -> out.writeUTF(value));
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, 1, () -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int typeIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + descriptor, 1, () -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(typeIndex);
+            });
+            return entry("M" + owner + "." + name + descriptor, 1, () -> {
+                out.writeByte(10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        int intConstant(int value) {
+            return entry("I" + value, 1, () -> {
+                out.writeByte(3);
+                out.writeInt(value);
+            });
+        }
+
+        // Keyed on the raw bits so that -0.0 and distinct NaNs stay distinct
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            return entry("D" + bits, 2, () -> {
+                out.writeByte(6);
+                out.writeLong(bits);
+            });
+        }
+
+        private int entry(String key, int width, Writer writer) {
+            Integer existing = indexes.get(key);
+            if (existing != null) return existing;
+            try {
+                if (key.charAt(0) == 'U') out.writeByte(1);
+                writer.write();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            int index = next;
+            next += width;
+            indexes.put(key, index);
+            return index;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            out.flush();
+            target.writeShort(next);
+            entries.writeTo(target);
+        }
+
+        private interface Writer {
+            void write() throws IOException;
+        }
+    }
+}
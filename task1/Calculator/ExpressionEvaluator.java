@@ -0,0 +1,69 @@
+// Stack machine running Expression programs. One evaluator owns a reusable
+// operand stack, so evaluating any number of expressions allocates nothing
+// once the stack has grown to the deepest program seen. Not thread-safe:
+// give each thread its own evaluator.
+public final class ExpressionEvaluator {
+    private static final double[] NO_VARIABLES = new double[0];
+
+    private double[] stack = new double[16];
+    private Operation error = Operation.NONE;
+
+    public double evaluate(Expression expression) {
+        return evaluate(expression, NO_VARIABLES);
+    }
+
+    // Returns the value of the expression with vars[i] bound to the i-th
+    // variable, or NaN when an operation failed; getError() then names the
+    // operation (DIVISION, SQUARE_ROOT or LOGARITHM).
+    public double evaluate(Expression expression, double[] vars) {
+        if (vars.length < expression.variables.length) {
+            throw new IllegalArgumentException("Unknown variable: " + expression.variables[vars.length]);
+        }
+        if (stack.length < expression.maxStack) stack = new double[expression.maxStack];
+        final byte[] code = expression.code;
+        final double[] constants = expression.constants;
+        final int[] slots = expression.slots;
+        final double[] s = this.stack;
+        int top = -1;
+        int next = 0;
+        int nextSlot = 0;
+
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case Expression.PUSH: s[++top] = constants[next++]; break;
+                case Expression.LOAD: s[++top] = vars[slots[nextSlot++]]; break;
+                case Expression.ADD: s[top - 1] += s[top]; top--; break;
+                case Expression.SUBTRACT: s[top - 1] -= s[top]; top--; break;
+                case Expression.MULTIPLY: s[top - 1] *= s[top]; top--; break;
+                case Expression.DIVIDE:
+                    if (s[top] == 0) return fail(Operation.DIVISION);
+                    s[top - 1] /= s[top];
+                    top--;
+                    break;
+                case Expression.SQRT:
+                    if (s[top] < 0) return fail(Operation.SQUARE_ROOT);
+                    s[top] = Math.sqrt(s[top]);
+                    break;
+                case Expression.LOG:
+                    if (s[top] <= 0) return fail(Operation.LOGARITHM);
+                    s[top] = Math.log(s[top]);
+                    break;
+                case Expression.EXP: s[top] = Math.exp(s[top]); break;
+                case Expression.NEGATE: s[top] = -s[top]; break;
+                default: throw new IllegalStateException("Bad opcode " + code[pc]);
+            }
+        }
+        this.error = Operation.NONE;
+        return s[0];
+    }
+
+    // Operation that failed during the last evaluate() call, NONE if it succeeded
+    public Operation getError() {
+        return error;
+    }
+
+    private double fail(Operation operation) {
+        this.error = operation;
+        return Double.NaN;
+    }
+}
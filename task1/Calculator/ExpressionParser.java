@@ -0,0 +1,298 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Recursive-descent parser turning text such as "3 + 4 * sqrt(16) - log(2)"
+// into an Expression. Grammar, lowest precedence first:
+//
+//   expression := term (('+' | '-') term)*
+//   term       := unary (('*' | '/') unary)*
+//   unary      := ('+' | '-') unary | primary
+//   primary    := number | variable | function '(' expression ')' | '(' expression ')'
+//   function   := sqrt | log | exp
+//   variable   := letter (letter | digit | '_')*
+//
+// Variables get slots in order of first appearance, see Expression.getVariables().
+// Syntax errors are reported as IllegalArgumentException with the offending
+// position so callers can show them the same way as other invalid input.
+public final class ExpressionParser {
+    // Exact powers of ten for the fast number path (10^22 is the largest exact double)
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final CharSequence text;
+    private final int start;
+    private final int end;
+    private int pos;
+
+    private byte[] code = new byte[16];
+    private int codeLength;
+    private double[] constants = new double[8];
+    private int constantCount;
+    private int[] slots = new int[4];
+    private int slotCount;
+    private List<String> variables;
+    private int depth;
+    private int maxDepth;
+
+    private ExpressionParser(CharSequence text, int start, int end) {
+        this.text = text;
+        this.start = start;
+        this.pos = start;
+        this.end = end;
+    }
+
+    public static Expression parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    // Parses text[start, end) so callers holding a larger buffer need not copy lines out
+    public static Expression parse(CharSequence text, int start, int end) {
+        ExpressionParser parser = new ExpressionParser(text, start, end);
+        parser.skipSpaces();
+        if (parser.pos >= end) throw new IllegalArgumentException("Empty expression");
+        parser.parseExpression();
+        parser.skipSpaces();
+        if (parser.pos < end) throw parser.error("Unexpected '" + text.charAt(parser.pos) + "'");
+        return new Expression(text.subSequence(start, end).toString().trim(),
+                Arrays.copyOf(parser.code, parser.codeLength),
+                Arrays.copyOf(parser.constants, parser.constantCount),
+                Arrays.copyOf(parser.slots, parser.slotCount),
+                parser.variables == null ? new String[0] : parser.variables.toArray(new String[0]),
+                parser.maxDepth);
+    }
+
+    private void parseExpression() {
+        parseTerm();
+        while (true) {
+            skipSpaces();
+            if (accept('+')) {
+                parseTerm();
+                emit(Expression.ADD, -1);
+            } else if (accept('-')) {
+                parseTerm();
+                emit(Expression.SUBTRACT, -1);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void parseTerm() {
+        parseUnary();
+        while (true) {
+            skipSpaces();
+            if (accept('*')) {
+                parseUnary();
+                emit(Expression.MULTIPLY, -1);
+            } else if (accept('/')) {
+                parseUnary();
+                emit(Expression.DIVIDE, -1);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void parseUnary() {
+        skipSpaces();
+        if (accept('-')) {
+            parseUnary();
+            emit(Expression.NEGATE, 0);
+        } else if (accept('+')) {
+            parseUnary();
+        } else {
+            parsePrimary();
+        }
+    }
+
+    private void parsePrimary() {
+        if (pos >= end) throw error("Unexpected end of expression");
+        char c = text.charAt(pos);
+        if (c == '(') {
+            pos++;
+            parseExpression();
+            expect(')');
+        } else if (isDigit(c) || c == '.') {
+            push(parseNumber());
+        } else if (Character.isLetter(c)) {
+            int nameStart = pos;
+            while (pos < end && isNamePart(text.charAt(pos))) pos++;
+            int nameEnd = pos;
+            skipSpaces();
+            if (pos >= end || text.charAt(pos) != '(') {
+                load(text.subSequence(nameStart, nameEnd).toString());
+                return;
+            }
+            byte function = functionOf(nameStart, nameEnd);
+            if (function < 0) {
+                pos = nameStart;
+                throw error("Unknown function: " + text.subSequence(nameStart, nameEnd));
+            }
+            expect('(');
+            parseExpression();
+            expect(')');
+            emit(function, 0);
+        } else {
+            throw error("Unexpected '" + c + "'");
+        }
+    }
+
+    private byte functionOf(int from, int to) {
+        if (matches(from, to, "sqrt")) return Expression.SQRT;
+        if (matches(from, to, "log")) return Expression.LOG;
+        if (matches(from, to, "exp")) return Expression.EXP;
+        return -1;
+    }
+
+    private boolean matches(int from, int to, String name) {
+        if (to - from != name.length()) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.toLowerCase(text.charAt(from + i)) != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Decimal literal with optional exponent, converted by parseDecimal
+    private double parseNumber() {
+        int numberStart = pos;
+        boolean seenDigit = false;
+        while (pos < end && isDigit(text.charAt(pos))) {
+            pos++;
+            seenDigit = true;
+        }
+        if (pos < end && text.charAt(pos) == '.') {
+            pos++;
+            while (pos < end && isDigit(text.charAt(pos))) {
+                pos++;
+                seenDigit = true;
+            }
+        }
+        if (!seenDigit) throw error("Invalid number");
+
+        if (pos < end && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            int mark = pos++;
+            if (pos < end && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) pos++;
+            if (pos >= end || !isDigit(text.charAt(pos))) {
+                pos = mark;
+                throw error("Invalid exponent");
+            }
+            while (pos < end && isDigit(text.charAt(pos))) pos++;
+        }
+        return parseDecimal(text, numberStart, pos);
+    }
+
+    // Decimal number text[start, end) with optional sign and exponent, without
+    // copying it out. Up to 15 significant digits and a small exponent are
+    // converted exactly in place; anything longer goes through
+    // Double.parseDouble for correct rounding. Throws NumberFormatException.
+    static double parseDecimal(CharSequence text, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+            negative = text.charAt(pos++) == '-';
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean fraction = false;
+        for (; pos < end; pos++) {
+            char c = text.charAt(pos);
+            if (isDigit(c)) {
+                // Past 18 digits the long would overflow; the slow path takes over anyway
+                if (digits < 18) mantissa = mantissa * 10 + (c - '0');
+                digits += (mantissa != 0 || c != '0') ? 1 : 0;
+                if (fraction) scale--;
+                seenDigit = true;
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (!seenDigit) throw new NumberFormatException("Invalid number: " + text.subSequence(start, end));
+
+        if (pos < end && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                negativeExponent = text.charAt(pos++) == '-';
+            }
+            if (pos >= end || !isDigit(text.charAt(pos))) {
+                throw new NumberFormatException("Invalid exponent: " + text.subSequence(start, end));
+            }
+            int exponent = 0;
+            for (; pos < end && isDigit(text.charAt(pos)); pos++) {
+                if (exponent < 100000) exponent = exponent * 10 + (text.charAt(pos) - '0');
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (pos < end) throw new NumberFormatException("Invalid number: " + text.subSequence(start, end));
+
+        if (digits <= 15 && scale >= -22 && scale <= 22) {
+            double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(text.subSequence(start, end).toString());
+    }
+
+    private void push(double value) {
+        if (constantCount == constants.length) constants = Arrays.copyOf(constants, constantCount * 2);
+        constants[constantCount++] = value;
+        emit(Expression.PUSH, 1);
+    }
+
+    private void load(String variable) {
+        if (variables == null) variables = new ArrayList<>();
+        int slot = variables.indexOf(variable);
+        if (slot < 0) {
+            slot = variables.size();
+            variables.add(variable);
+        }
+        if (slotCount == slots.length) slots = Arrays.copyOf(slots, slotCount * 2);
+        slots[slotCount++] = slot;
+        emit(Expression.LOAD, 1);
+    }
+
+    // Appends an opcode and tracks the evaluation stack depth it leaves behind
+    private void emit(byte op, int stackDelta) {
+        if (codeLength == code.length) code = Arrays.copyOf(code, codeLength * 2);
+        code[codeLength++] = op;
+        depth += stackDelta;
+        if (depth > maxDepth) maxDepth = depth;
+    }
+
+    private boolean accept(char c) {
+        if (pos < end && text.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        skipSpaces();
+        if (!accept(c)) {
+            throw error(pos < end ? "Expected '" + c + "' but found '" + text.charAt(pos) + "'" : "Expected '" + c + "'");
+        }
+    }
+
+    private void skipSpaces() {
+        while (pos < end && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + (pos - start + 1));
+    }
+}
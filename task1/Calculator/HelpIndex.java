@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// The help manual, memory-mapped on first use instead of read at startup.
+// Topics are the paragraphs of the file, separated by blank lines; the index
+// keeps only their byte ranges, and a topic is decoded when it is shown or
+// searched. Nothing is read until help is asked for.
+public final class HelpIndex {
+    private final MappedByteBuffer text;
+    // Start and end byte of each topic, as pairs
+    private final int[] ranges;
+    private final String[] decoded;
+
+    private HelpIndex(MappedByteBuffer text, int[] ranges) {
+        this.text = text;
+        this.ranges = ranges;
+        this.decoded = new String[ranges.length / 2];
+    }
+
+    public static HelpIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer text = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new HelpIndex(text, index(text));
+        }
+    }
+
+    private static int[] index(ByteBuffer text) {
+        List<Integer> ranges = new ArrayList<>();
+        int limit = text.limit();
+        int start = -1;
+        int lineStart = 0;
+        int lastContent = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && text.get(i) != '\n') continue;
+            if (isBlank(text, lineStart, i)) {
+                if (start >= 0) {
+                    ranges.add(start);
+                    ranges.add(lastContent);
+                    start = -1;
+                }
+            } else {
+                if (start < 0) start = lineStart;
+                lastContent = i > lineStart && text.get(i - 1) == '\r' ? i - 1 : i;
+            }
+            lineStart = i + 1;
+        }
+        if (start >= 0) {
+            ranges.add(start);
+            ranges.add(lastContent);
+        }
+        int[] array = new int[ranges.size()];
+        for (int i = 0; i < array.length; i++) array[i] = ranges.get(i);
+        return array;
+    }
+
+    private static boolean isBlank(ByteBuffer text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = text.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        return decoded.length;
+    }
+
+    public String topic(int index) {
+        String topic = decoded[index];
+        if (topic == null) {
+            byte[] bytes = new byte[ranges[2 * index + 1] - ranges[2 * index]];
+            text.get(ranges[2 * index], bytes);
+            topic = decoded[index] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return topic;
+    }
+
+    // Topics containing every word of the query, ignoring case, in manual order
+    public List<String> search(String query) {
+        String[] words = query.toLowerCase(Locale.ROOT).trim().split("\\s+");
+        List<String> found = new ArrayList<>();
+        for (int i = 0; i < size(); i++) {
+            String topic = topic(i);
+            String lower = topic.toLowerCase(Locale.ROOT);
+            boolean all = true;
+            for (String word : words) all &= lower.contains(word);
+            if (all) found.add(topic);
+        }
+        return found;
+    }
+}
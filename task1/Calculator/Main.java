@@ -1,113 +1,245 @@
 import java.util.*;
 import java.io.*;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import javax.management.JMException;
 
 public class Main {
-    public static Scanner scanner = new Scanner(System.in);
-    public static File help = new File("docs/help.txt");
-    public static Scanner helpScanner;
+    public static Path help = Paths.get("docs", "help.txt");
+    // Mapped and indexed on the first request for help, see HelpIndex
+    private static HelpIndex helpIndex;
 
-    static {
-        try {
-            helpScanner = new Scanner(help);
-        } catch (FileNotFoundException e) {
-            System.err.println("Help file not found: " + e.getMessage());
-        }
-    }
+    // One console for the menus, the calculator and the converter, see Console
+    private static Console console;
+    private static PrintStream out;
+    private static String BLUE, GREEN, RED, RESET;
+
+    // Each subsystem is built with its options when its menu entry is first chosen,
+    // so a run that never converts never loads the unit table or the rates
+    private static Calculator calculator;
+    private static Converter converter;
+    private static MathContext precision;
+    private static Path memoryFile;
+    private static final List<Path> unitFiles = new ArrayList<>();
+    private static String ratesSource;
+    private static Path ratesCache;
+    private static Duration ratesTtl = Duration.ofHours(1);
+    // Text after the number in the last menu choice, e.g. the topic in "3 currency"
+    private static String menuArgument = "";
 
     public static void main(String[] args) {
-        Calculator calculator = new Calculator();
-        Converter converter = new Converter();
+        StartupTimer.begin(args);
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(BatchRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("--convert")) {
+            System.exit(CsvConverter.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            System.exit(CalculatorServer.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        console = Console.system();
+        out = console.out();
+        BLUE = console.color("\033[1;34m");
+        GREEN = console.color("\033[1;32m");
+        RED = console.color("\033[1;31m");
+        RESET = console.color("\033[0m");
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--precision") && i + 1 < args.length) {
+                try {
+                    precision = AdaptiveDecimal.context(Integer.parseInt(args[++i]));
+                } catch (IllegalArgumentException e) {
+                    out.println(RED + "Invalid precision: " + args[i] + RESET);
+                }
+            } else if (args[i].equals("--units") && i + 1 < args.length) {
+                unitFiles.add(Paths.get(args[++i]));
+            } else if (args[i].equals("--rates") && i + 1 < args.length) {
+                ratesSource = args[++i];
+            } else if (args[i].equals("--rates-cache") && i + 1 < args.length) {
+                ratesCache = Paths.get(args[++i]);
+            } else if (args[i].equals("--rates-ttl") && i + 1 < args.length) {
+                try {
+                    ratesTtl = Duration.ofMinutes(Long.parseLong(args[++i]));
+                } catch (NumberFormatException e) {
+                    out.println(RED + "Invalid rates TTL in minutes: " + args[i] + RESET);
+                }
+            } else if (args[i].equals("--memory") && i + 1 < args.length) {
+                memoryFile = Paths.get(args[++i]);
+            } else if (args[i].equals("--jmx")) {
+                try {
+                    CalculatorMetrics.register();
+                } catch (JMException e) {
+                    out.println(RED + "Cannot publish calculator metrics: " + e.getMessage() + RESET);
+                }
+            } else if (args[i].equals("--help")) {
+                // Prints the manual, or the topics matching the words after it, and exits
+                StringBuilder topic = new StringBuilder();
+                while (i + 1 < args.length && !args[i + 1].startsWith("--")) topic.append(args[++i]).append(' ');
+                showHelp(topic.toString().trim());
+                console.flush();
+                System.exit(0);
+            }
+        }
         String[] options = {"ENHANCED CALCULATOR", "UNITS CONVERTER", "HELP", "CLEAR SCREEN", "EXIT"};
         int choice;
 
-        while (true) {
-            printHeader("__NEW ENIAC__");
-            printMenu(options);
-
-            System.out.print(">> Choose an option: ");
-            choice = getIntInput();
-
-            switch (choice) {
-                case 1:
-                    clearScreen();
-                    calculator.run();
-                    break;
-                case 2:
-                    clearScreen();
-                    converter.run();
-                    break;
-                case 3:
-                    clearScreen();
-                    showHelp();
-                    break;
-                case 4:
-                    clearScreen();
-                    break;
-                case 5:
-                    System.out.println("Exiting... Goodbye!");
-                    System.exit(0);
-                    break;
-                default:
-                    System.out.println("\033[1;31mInvalid option. Please try again.\033[0m");
-                    break;
+        try {
+            while (true) {
+                if (console.hasPrompts()) {
+                    printHeader("__NEW ENIAC__");
+                    printMenu(options);
+                }
+
+                console.prompt(">> Choose an option: ");
+                StartupTimer.firstPrompt();
+                choice = getIntInput();
+
+                switch (choice) {
+                    case 1:
+                        clearScreen();
+                        calculator().run();
+                        break;
+                    case 2:
+                        clearScreen();
+                        converter().run();
+                        break;
+                    case 3:
+                        clearScreen();
+                        showHelp(menuArgument);
+                        break;
+                    case 4:
+                        clearScreen();
+                        break;
+                    case 5:
+                        out.println("Exiting... Goodbye!");
+                        console.flush();
+                        System.exit(0);
+                        break;
+                    default:
+                        out.println(RED + "Invalid option. Please try again." + RESET);
+                        break;
+                }
             }
+        } catch (NoSuchElementException e) {
+            // Piped input ended: exit like option 5, without the trace
+            console.flush();
         }
     }
 
     // Print header with decoration
     private static void printHeader(String title) {
-        System.out.println("\033[1;34m=====================================\033[0m");
-        System.out.println("\033[1;32m          " + title + "          \033[0m");
-        System.out.println("\033[1;34m=====================================\033[0m");
+        out.println(BLUE + "=====================================" + RESET);
+        out.println(GREEN + "          " + title + "          " + RESET);
+        out.println(BLUE + "=====================================" + RESET);
     }
 
     // Print menu options
     private static void printMenu(String[] options) {
         for (int i = 0; i < options.length; i++) {
-            System.out.println((i + 1) + "\t" + options[i]);
+            out.println((i + 1) + "\t" + options[i]);
         }
     }
 
-    // Clear console screen
+    // Clear console screen; plain mode output is not a screen
     public static void clearScreen() {
+        if (!console.hasColors()) return;
         try {
             if (System.getProperty("os.name").toLowerCase().contains("windows")) {
+                out.flush();
                 new ProcessBuilder("cmd", "/c", "cls").inheritIO().start().waitFor();
             } else {
-                System.out.print("\033[H\033[2J");
-                System.out.flush();
+                out.print("\033[H\033[2J");
             }
         } catch (IOException | InterruptedException ex) {
-            System.out.println("Error clearing screen: " + ex.getMessage());
+            out.println("Error clearing screen: " + ex.getMessage());
         }
     }
 
-    // Display help file content
-    private static void showHelp() {
-        if (helpScanner != null) {
-            while (helpScanner.hasNextLine()) {
-                System.out.println(helpScanner.nextLine());
+    private static Calculator calculator() {
+        if (calculator == null) {
+            calculator = new Calculator(console);
+            if (precision != null) calculator.setPrecision(precision);
+            if (memoryFile != null) {
+                try {
+                    calculator.setMemory(CalculatorMemory.open(memoryFile));
+                } catch (IOException e) {
+                    out.println(RED + "Cannot open memory file " + memoryFile + ": " + e.getMessage() + RESET);
+                }
             }
+        }
+        return calculator;
+    }
+
+    private static Converter converter() {
+        if (converter == null) {
+            converter = new Converter(console);
+            for (Path file : unitFiles) {
+                try {
+                    converter.getUnits().load(file);
+                } catch (IOException | IllegalArgumentException e) {
+                    out.println(RED + "Cannot load units from " + file + ": " + e.getMessage() + RESET);
+                }
+            }
+            if (ratesSource != null) {
+                Path cache = ratesCache != null ? ratesCache
+                        : Paths.get(System.getProperty("user.home"), ".new-eniac", "rates.txt");
+                try {
+                    RateSnapshot fallback = RateSnapshot.of(converter.getUnits().getDimension("currency"), "built-in table");
+                    CurrencyRates rates = new CurrencyRates(RateProvider.of(ratesSource), cache, ratesTtl, fallback);
+                    rates.start();
+                    converter.setRates(rates);
+                } catch (IllegalArgumentException e) {
+                    out.println(RED + "Invalid rates source " + ratesSource + ": " + e.getMessage() + RESET);
+                }
+            }
+        }
+        return converter;
+    }
+
+    // Display the help manual, or only its topics containing every word of the query
+    private static void showHelp(String query) {
+        if (helpIndex == null) {
             try {
-                helpScanner = new Scanner(help); // reset scanner for next time
-            } catch (FileNotFoundException e) {
-                System.err.println("Help file not found: " + e.getMessage());
+                helpIndex = HelpIndex.open(help);
+            } catch (IOException e) {
+                out.println(RED + "Help file not available: " + e.getMessage() + RESET);
+                return;
+            }
+        }
+        if (query.isEmpty()) {
+            for (int i = 0; i < helpIndex.size(); i++) {
+                out.println(helpIndex.topic(i));
+                out.println();
+            }
+            if (console.hasPrompts()) {
+                out.println(GREEN + "Tip: type 3 followed by a word, for example 3 currency, to see only that topic." + RESET);
             }
-        } else {
-            System.out.println("\033[1;31mHelp file not available.\033[0m");
+            return;
+        }
+        List<String> topics = helpIndex.search(query);
+        if (topics.isEmpty()) out.println(RED + "No help topic mentions " + query + "." + RESET);
+        for (String topic : topics) {
+            out.println(topic);
+            out.println();
         }
     }
 
     // Safely read integer input
     private static int getIntInput() {
         while (true) {
+            String line = console.readLine().trim();
+            int space = line.indexOf(' ');
             try {
-                int val = scanner.nextInt();
-                scanner.nextLine(); // clear buffer
-                return val;
-            } catch (InputMismatchException e) {
-                System.out.print("\033[1;31mInvalid input. Enter a number >> \033[0m");
-                scanner.nextLine();
+                int choice = Integer.parseInt(space < 0 ? line : line.substring(0, space));
+                menuArgument = space < 0 ? "" : line.substring(space + 1).trim();
+                return choice;
+            } catch (NumberFormatException e) {
+                out.println(RED + "Invalid input: " + line + RESET);
+                console.prompt("Enter a number >> ");
             }
         }
     }
@@ -0,0 +1,220 @@
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+// Bulk form of Calculator.performCalculus(): applies one Operation to every
+// element of a column. Unary operations (SQUARE_ROOT, LOGARITHM, EXPONENTIAL)
+// transform each element; binary ones combine each element with a scalar
+// operand, e.g. out[i] = in[i] / operand for DIVISION.
+//
+// Domain errors are not printed. Each failing element is written as NaN and
+// its bit is set in an error bitmap of (length + 63) / 64 longs, see
+// newErrorBitmap() and isError(). The loops are plain counted loops over
+// primitive arrays so C2 can vectorize them. When the VectorKernels class
+// (vector/VectorKernels.java) is on the classpath and jdk.incubator.vector
+// is enabled, it takes over the transform:
+//
+//   javac --add-modules jdk.incubator.vector -cp . -d vector vector/VectorKernels.java
+//   java --add-modules jdk.incubator.vector -cp .:vector ...
+//
+// -Dcalculator.vector=false turns that path off.
+public final class OperationKernels {
+    // Transform step of a kernel; error detection always stays in OperationKernels
+    interface Kernel {
+        void apply(Operation op, double[] in, int inOffset, double[] out, int outOffset, int length, double operand);
+    }
+
+    private static final Kernel SCALAR = OperationKernels::transform;
+    private static final Kernel KERNEL = loadVectorKernel();
+
+    private OperationKernels() {
+    }
+
+    public static long[] newErrorBitmap(int length) {
+        return new long[(length + 63) >>> 6];
+    }
+
+    public static boolean isError(long[] errors, int index) {
+        return (errors[index >>> 6] & (1L << index)) != 0;
+    }
+
+    // True when the jdk.incubator.vector implementation is in use
+    public static boolean isVectorized() {
+        return KERNEL != SCALAR;
+    }
+
+    public static int apply(Operation op, double[] in, double[] out, long[] errors) {
+        return apply(op, in, 0, out, 0, in.length, 0, errors);
+    }
+
+    public static int apply(Operation op, double[] in, double operand, double[] out, long[] errors) {
+        return apply(op, in, 0, out, 0, in.length, operand, errors);
+    }
+
+    // Applies op to in[inOffset, inOffset + length) into out[outOffset, ...).
+    // in and out may be the same array. Returns the number of failed elements;
+    // errors, when not null, gets bit i set for the i-th element of the range.
+    public static int apply(Operation op, double[] in, int inOffset, double[] out, int outOffset,
+                            int length, double operand, long[] errors) {
+        checkRange(in.length, inOffset, length);
+        checkRange(out.length, outOffset, length);
+        if (op == Operation.NONE) throw new IllegalArgumentException("No operation selected");
+        if (errors != null) {
+            if (errors.length < (length + 63) >>> 6) throw new IllegalArgumentException("Error bitmap too small");
+            Arrays.fill(errors, 0, (length + 63) >>> 6, 0L);
+        }
+
+        // Mark errors before transforming, in case the transform overwrites in. A zero divisor
+        // has already filled out with NaN; the other failing elements get NaN from the transform
+        int failed = markErrors(op, in, inOffset, length, operand, errors, out, outOffset);
+        if (op == Operation.DIVISION && failed > 0) return failed;
+        KERNEL.apply(op, in, inOffset, out, outOffset, length, operand);
+        if (failed > 0 && op == Operation.LOGARITHM) {
+            // Math.log gives -Infinity only for zero, which must read NaN like negatives
+            for (int i = 0; i < length; i++) {
+                if (out[outOffset + i] == Double.NEGATIVE_INFINITY) out[outOffset + i] = Double.NaN;
+            }
+        }
+        return failed;
+    }
+
+    // Buffers backed by arrays go through the array kernels; direct buffers
+    // are processed element by element with absolute get/put.
+    public static int apply(Operation op, DoubleBuffer in, double operand, DoubleBuffer out, long[] errors) {
+        int length = in.remaining();
+        if (out.remaining() < length) throw new IllegalArgumentException("Output buffer too small");
+        if (in.hasArray() && out.hasArray() && !out.isReadOnly()) {
+            return apply(op, in.array(), in.arrayOffset() + in.position(),
+                    out.array(), out.arrayOffset() + out.position(), length, operand, errors);
+        }
+        if (op == Operation.NONE) throw new IllegalArgumentException("No operation selected");
+        if (errors != null) {
+            if (errors.length < (length + 63) >>> 6) throw new IllegalArgumentException("Error bitmap too small");
+            Arrays.fill(errors, 0, (length + 63) >>> 6, 0L);
+        }
+        int inBase = in.position();
+        int outBase = out.position();
+        int failed = 0;
+        for (int i = 0; i < length; i++) {
+            double value = in.get(inBase + i);
+            if (isDomainError(op, value, operand)) {
+                failed++;
+                if (errors != null) errors[i >>> 6] |= 1L << i;
+                out.put(outBase + i, Double.NaN);
+            } else {
+                out.put(outBase + i, compute(op, value, operand));
+            }
+        }
+        return failed;
+    }
+
+    private static int markErrors(Operation op, double[] in, int inOffset, int length, double operand,
+                                  long[] errors, double[] out, int outOffset) {
+        int failed = 0;
+        switch (op) {
+            case SQUARE_ROOT:
+                for (int i = 0; i < length; i++) {
+                    if (in[inOffset + i] < 0) {
+                        failed++;
+                        if (errors != null) errors[i >>> 6] |= 1L << i;
+                    }
+                }
+                break;
+            case LOGARITHM:
+                for (int i = 0; i < length; i++) {
+                    if (in[inOffset + i] <= 0) {
+                        failed++;
+                        if (errors != null) errors[i >>> 6] |= 1L << i;
+                    }
+                }
+                break;
+            case DIVISION:
+                if (operand == 0) {
+                    // Every element fails, as a zero divisor ends the Calculator session
+                    failed = length;
+                    Arrays.fill(out, outOffset, outOffset + length, Double.NaN);
+                    if (errors != null) {
+                        Arrays.fill(errors, 0, length >>> 6, -1L);
+                        if ((length & 63) != 0) errors[length >>> 6] = (1L << length) - 1;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        return failed;
+    }
+
+    // Scalar transform, one counted loop per operation so each one vectorizes on its own
+    static void transform(Operation op, double[] in, int inOffset, double[] out, int outOffset,
+                          int length, double operand) {
+        switch (op) {
+            case ADDITION:
+                for (int i = 0; i < length; i++) out[outOffset + i] = in[inOffset + i] + operand;
+                break;
+            case SUBTRACTION:
+                for (int i = 0; i < length; i++) out[outOffset + i] = in[inOffset + i] - operand;
+                break;
+            case MULTIPLICATION:
+                for (int i = 0; i < length; i++) out[outOffset + i] = in[inOffset + i] * operand;
+                break;
+            case DIVISION:
+                for (int i = 0; i < length; i++) out[outOffset + i] = in[inOffset + i] / operand;
+                break;
+            case SQUARE_ROOT:
+                for (int i = 0; i < length; i++) out[outOffset + i] = Math.sqrt(in[inOffset + i]);
+                break;
+            case LOGARITHM:
+                for (int i = 0; i < length; i++) out[outOffset + i] = Math.log(in[inOffset + i]);
+                break;
+            case EXPONENTIAL:
+                for (int i = 0; i < length; i++) out[outOffset + i] = Math.exp(in[inOffset + i]);
+                break;
+            case EQUAL:
+                System.arraycopy(in, inOffset, out, outOffset, length);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + op);
+        }
+    }
+
+    static boolean isDomainError(Operation op, double value, double operand) {
+        switch (op) {
+            case DIVISION: return operand == 0;
+            case SQUARE_ROOT: return value < 0;
+            case LOGARITHM: return value <= 0;
+            default: return false;
+        }
+    }
+
+    // Single-element form used for direct buffers, for values already checked by isDomainError()
+    static double compute(Operation op, double value, double operand) {
+        switch (op) {
+            case ADDITION: return value + operand;
+            case SUBTRACTION: return value - operand;
+            case MULTIPLICATION: return value * operand;
+            case DIVISION: return value / operand;
+            case SQUARE_ROOT: return Math.sqrt(value);
+            case LOGARITHM: return Math.log(value);
+            case EXPONENTIAL: return Math.exp(value);
+            case EQUAL: return value;
+            default: throw new IllegalArgumentException("Unsupported operation: " + op);
+        }
+    }
+
+    private static void checkRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length
+                    + ") out of bounds for length " + arrayLength);
+        }
+    }
+
+    private static Kernel loadVectorKernel() {
+        if ("false".equals(System.getProperty("calculator.vector"))) return SCALAR;
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) return SCALAR;
+        try {
+            return (Kernel) Class.forName("VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+}
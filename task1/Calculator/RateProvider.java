@@ -0,0 +1,52 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+// Source of currency rate tables for CurrencyRates. fetch() may block on
+// disk or network; CurrencyRates only calls it from its refresh thread.
+public interface RateProvider {
+    RateSnapshot fetch() throws IOException;
+
+    // "http://..." or "https://..." for an endpoint, anything else for a local file
+    static RateProvider of(String location) {
+        if (location.startsWith("http://") || location.startsWith("https://")) return http(URI.create(location));
+        return file(Paths.get(location));
+    }
+
+    // A table in RateSnapshot's text form, read again on every refresh
+    static RateProvider file(Path path) {
+        return () -> {
+            try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                return RateSnapshot.read(in, path.toString());
+            }
+        };
+    }
+
+    // An endpoint answering GET with a table in RateSnapshot's text form
+    static RateProvider http(URI uri) {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(10)).GET().build();
+        return () -> {
+            HttpResponse<String> response;
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while fetching " + uri, e);
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode() + " from " + uri);
+            }
+            return RateSnapshot.read(new StringReader(response.body()), uri.toString());
+        };
+    }
+}
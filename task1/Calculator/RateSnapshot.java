@@ -0,0 +1,148 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Immutable cross-rate table: how many units of each currency one unit of
+// the base currency buys, when it was published and where it came from.
+// The currency UnitDimension is built once here, by whichever thread
+// produced the snapshot, so readers convert straight from its matrices.
+//
+// The same text form is used by rate sources and the on-disk cache:
+//
+//   base USD
+//   time 2026-10-18T09:00:00Z
+//   USD 1
+//   EUR 0.85   euro
+//
+// Codes are followed by the rate and optionally a name; '#' starts a comment.
+public final class RateSnapshot {
+    private final String base;
+    private final String[] codes;
+    private final double[] rates;
+    private final Instant time;
+    private final String source;
+    private final UnitDimension dimension;
+
+    public RateSnapshot(String base, String[] codes, String[] names, double[] rates, Instant time, String source) {
+        int baseIndex = -1;
+        for (int i = 0; i < codes.length; i++) {
+            if (!(rates[i] > 0 && Double.isFinite(rates[i]))) {
+                throw new IllegalArgumentException("Invalid rate for " + codes[i] + ": " + rates[i]);
+            }
+            if (codes[i].equals(base)) baseIndex = i;
+        }
+        if (baseIndex != 0) throw new IllegalArgumentException("The base currency " + base + " must be listed first");
+        this.base = base;
+        this.codes = codes.clone();
+        this.rates = rates.clone();
+        this.time = time;
+        this.source = source;
+        double[] offsets = new double[codes.length];
+        this.dimension = new UnitDimension("currency", this.codes, names, this.rates, offsets);
+    }
+
+    // Snapshot of the rates a currency dimension already holds, e.g. the built-in table
+    public static RateSnapshot of(UnitDimension currency, String source) {
+        int n = currency.size();
+        String[] codes = new String[n];
+        String[] names = new String[n];
+        double[] rates = new double[n];
+        for (int i = 0; i < n; i++) {
+            codes[i] = currency.getSymbol(i);
+            names[i] = currency.getName(i);
+            rates[i] = currency.getScale(0, i);
+        }
+        return new RateSnapshot(codes[0], codes, names, rates, Instant.EPOCH, source);
+    }
+
+    // Reads the text form; a missing time line means now. Throws IllegalArgumentException when malformed.
+    public static RateSnapshot read(Reader text, String source) throws IOException {
+        BufferedReader in = text instanceof BufferedReader ? (BufferedReader) text : new BufferedReader(text);
+        String base = null;
+        Instant time = null;
+        List<String> codes = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Double> rates = new ArrayList<>();
+        String line;
+        for (int number = 1; (line = in.readLine()) != null; number++) {
+            int comment = line.indexOf('#');
+            String[] words = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+", 3);
+            if (words[0].isEmpty()) continue;
+            if (words.length < 2) throw new IllegalArgumentException("Missing value at line " + number + " of " + source);
+            try {
+                if (words[0].equals("base")) {
+                    base = words[1];
+                } else if (words[0].equals("time")) {
+                    time = Instant.parse(words[1]);
+                } else if (codes.contains(words[0])) {
+                    throw new IllegalArgumentException("Duplicate currency " + words[0] + " at line " + number + " of " + source);
+                } else {
+                    codes.add(words[0]);
+                    rates.add(Double.parseDouble(words[1]));
+                    names.add(words.length > 2 ? words[2].trim() : words[0]);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid line " + number + " of " + source + ": " + line, e);
+            }
+        }
+        if (base == null) throw new IllegalArgumentException("No base currency in " + source);
+        // Put the base first, which UnitDimension takes as its base unit
+        int baseIndex = codes.indexOf(base);
+        if (baseIndex < 0) {
+            codes.add(0, base);
+            names.add(0, base);
+            rates.add(0, 1.0);
+        } else if (baseIndex > 0) {
+            codes.add(0, codes.remove(baseIndex));
+            names.add(0, names.remove(baseIndex));
+            rates.add(0, rates.remove(baseIndex));
+        }
+        if (rates.get(0) != 1) throw new IllegalArgumentException("Base " + base + " must have rate 1 in " + source);
+        double[] values = new double[rates.size()];
+        for (int i = 0; i < values.length; i++) values[i] = rates.get(i);
+        return new RateSnapshot(base, codes.toArray(new String[0]), names.toArray(new String[0]), values,
+                time != null ? time : Instant.now(), source);
+    }
+
+    public void write(Writer out) throws IOException {
+        out.write("base " + base + "\n");
+        out.write("time " + time + "\n");
+        for (int i = 0; i < codes.length; i++) {
+            out.write(codes[i] + " " + rates[i]);
+            if (!dimension.getName(i).equals(codes[i])) out.write(" " + dimension.getName(i));
+            out.write("\n");
+        }
+    }
+
+    public String getBase() {
+        return base;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    public Instant getTime() {
+        return time;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // The rates as the "currency" dimension of a UnitRegistry
+    public UnitDimension getDimension() {
+        return dimension;
+    }
+
+    public double convert(double amount, String from, String to) {
+        int i = dimension.indexOf(from);
+        int j = dimension.indexOf(to);
+        if (i < 0 || j < 0) throw new IllegalArgumentException("Unknown currency: " + (i < 0 ? from : to));
+        return dimension.convert(i, j, amount);
+    }
+}
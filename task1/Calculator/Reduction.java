@@ -0,0 +1,199 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.DoubleStream;
+
+// Parallel, numerically stable reductions for long ADDITION and
+// MULTIPLICATION chains that would otherwise accumulate one operand at a
+// time into Calculator's currentResult.
+//
+// Sums use Neumaier's compensated summation: every leaf keeps the rounding
+// error of each addition in a second double and partial results are merged
+// with the same error-free transformation, so the result is as accurate as
+// summing in twice the precision and does not depend on the split.
+// Products use the compensated product (FMA recovers each rounding error)
+// on a mantissa kept in a safe range with a separate binary exponent, so long
+// chains neither overflow nor underflow before the final result does.
+public final class Reduction {
+    // Below this many operands a task runs sequentially
+    static final int LEAF_SIZE = 1 << 15;
+
+    private Reduction() {
+    }
+
+    public static double sum(double[] values) {
+        return sum(values, ForkJoinPool.commonPool());
+    }
+
+    public static double sum(double[] values, ForkJoinPool pool) {
+        return pool.invoke(new SumTask(values, 0, values.length)).result();
+    }
+
+    public static double product(double[] values) {
+        return product(values, ForkJoinPool.commonPool());
+    }
+
+    public static double product(double[] values, ForkJoinPool pool) {
+        return pool.invoke(new ProductTask(values, 0, values.length)).result();
+    }
+
+    // Stream forms; a parallel stream is reduced on the common pool
+    public static double sum(DoubleStream values) {
+        return values.collect(Sum::new, Sum::add, Sum::merge).result();
+    }
+
+    public static double product(DoubleStream values) {
+        return values.collect(Product::new, Product::multiply, Product::merge).result();
+    }
+
+    // Running compensated sum; sum + compensation is the total to about twice double precision
+    static final class Sum {
+        double sum;
+        double compensation;
+
+        void add(double value) {
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+
+        void merge(Sum other) {
+            add(other.sum);
+            compensation += other.compensation;
+        }
+
+        double result() {
+            // Once the sum is infinite or NaN the compensation is meaningless
+            return Double.isFinite(sum) ? sum + compensation : sum;
+        }
+    }
+
+    // Running compensated product (high + low) * 2^exponent over the finite,
+    // non-zero operands, with |high| kept within 2^±256 so no step can
+    // overflow or underflow. Zeros, infinities and
+    // NaNs only set flags, so they decide the result exactly as IEEE would.
+    static final class Product {
+        private static final int RESCALE_LIMIT = 256;
+
+        double high = 1.0;
+        double low;
+        long exponent;
+        boolean zero;
+        boolean infinite;
+        boolean nan;
+        // Sign contributed by zeros and infinities, which are not in high
+        boolean negative;
+
+        void multiply(double value) {
+            if (value == 0 || Double.isInfinite(value) || Double.isNaN(value)) {
+                zero |= value == 0;
+                infinite |= Double.isInfinite(value);
+                nan |= Double.isNaN(value);
+                negative ^= Math.copySign(1.0, value) < 0;
+                return;
+            }
+            int shift = Math.getExponent(value);
+            if (shift > RESCALE_LIMIT || shift < -RESCALE_LIMIT) {
+                // Only extreme operands are scaled; typical ones multiply in directly
+                if (shift < Double.MIN_EXPONENT) shift = Math.getExponent(value * 0x1p54) - 54;
+                value = Math.scalb(value, -shift);
+                exponent += shift;
+            }
+            double p = high * value;
+            low = low * value + Math.fma(high, value, -p);
+            high = p;
+            if (Math.abs(Math.getExponent(high)) > RESCALE_LIMIT) rescale();
+        }
+
+        void merge(Product other) {
+            zero |= other.zero;
+            infinite |= other.infinite;
+            nan |= other.nan;
+            negative ^= other.negative;
+            double p = high * other.high;
+            low = high * other.low + low * other.high + Math.fma(high, other.high, -p);
+            high = p;
+            exponent += other.exponent;
+            rescale();
+        }
+
+        private void rescale() {
+            int shift = Math.getExponent(high);
+            high = Math.scalb(high, -shift);
+            low = Math.scalb(low, -shift);
+            exponent += shift;
+        }
+
+        double result() {
+            if (nan || (zero && infinite)) return Double.NaN;
+            double sign = negative ? -Math.signum(high) : Math.signum(high);
+            if (infinite) return sign * Double.POSITIVE_INFINITY;
+            if (zero) return sign * 0.0;
+            // scalb saturates to infinity or zero beyond the double range
+            return Math.scalb(high + low, (int) Math.max(-4096, Math.min(4096, exponent)));
+        }
+    }
+
+    private static final class SumTask extends RecursiveTask<Sum> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final int from;
+        private final int to;
+
+        SumTask(double[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Sum compute() {
+            if (to - from <= LEAF_SIZE) {
+                Sum sum = new Sum();
+                for (int i = from; i < to; i++) sum.add(values[i]);
+                return sum;
+            }
+            int middle = (from + to) >>> 1;
+            SumTask left = new SumTask(values, from, middle);
+            left.fork();
+            Sum right = new SumTask(values, middle, to).compute();
+            Sum result = left.join();
+            result.merge(right);
+            return result;
+        }
+    }
+
+    private static final class ProductTask extends RecursiveTask<Product> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final int from;
+        private final int to;
+
+        ProductTask(double[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Product compute() {
+            if (to - from <= LEAF_SIZE) {
+                Product product = new Product();
+                for (int i = from; i < to; i++) product.multiply(values[i]);
+                return product;
+            }
+            int middle = (from + to) >>> 1;
+            ProductTask left = new ProductTask(values, from, middle);
+            left.fork();
+            Product right = new ProductTask(values, middle, to).compute();
+            Product result = left.join();
+            result.merge(right);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+
+// Compares Reduction against the sequential loop Calculator runs for a
+// chain of ADDITION or MULTIPLICATION steps (currentResult += input).
+//
+//   java ReductionBenchmark [operands] [rounds]
+//
+// Prints throughput in millions of operands per second and the relative
+// error of each method against an exact BigDecimal reference.
+public final class ReductionBenchmark {
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Random random = new Random(42);
+
+        // Mixed magnitudes and signs make naive summation lose digits
+        double[] addends = new double[n];
+        for (int i = 0; i < n; i++) {
+            addends[i] = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12));
+        }
+        // Factors near 1 keep the product in range while rounding errors pile up
+        double[] factors = new double[n];
+        for (int i = 0; i < n; i++) {
+            factors[i] = 1 + (random.nextDouble() - 0.5) * 1e-3;
+        }
+
+        System.out.printf("%,d operands, %d threads%n", n, Runtime.getRuntime().availableProcessors());
+        BigDecimal exactSum = BigDecimal.ZERO;
+        for (double value : addends) exactSum = exactSum.add(new BigDecimal(value));
+        // 40 digits is far beyond double precision, enough for a reference
+        MathContext reference = new MathContext(40);
+        BigDecimal exactProduct = BigDecimal.ONE;
+        for (double value : factors) exactProduct = exactProduct.multiply(new BigDecimal(value), reference);
+
+        report("sequential sum", exactSum, rounds, n, () -> {
+            double result = 0;
+            for (double value : addends) result += value;
+            return result;
+        });
+        report("Reduction.sum", exactSum, rounds, n, () -> Reduction.sum(addends));
+        report("sequential product", exactProduct, rounds, n, () -> {
+            double result = 1;
+            for (double value : factors) result *= value;
+            return result;
+        });
+        report("Reduction.product", exactProduct, rounds, n, () -> Reduction.product(factors));
+    }
+
+    private interface Run {
+        double run();
+    }
+
+    private static void report(String name, BigDecimal exact, int rounds, int n, Run run) {
+        double result = 0;
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            result = run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double error = new BigDecimal(result).subtract(exact).abs()
+                .divide(exact.abs(), MathContext.DECIMAL64).doubleValue();
+        System.out.printf("%-20s %10.1f Mops/s   relative error %.3e%n", name, n / (best / 1e3), error);
+    }
+}
@@ -0,0 +1,57 @@
+import java.time.Instant;
+
+// Startup timing for scripted launches, switched on with --timing or
+// -Deniac.timing=true. Reports to stderr, so results on stdout are untouched:
+//
+//   [timing] class load    62 ms after JVM start
+//   [timing] first prompt  71 ms (+9)
+//   [timing] first result  95 ms (+24)
+//
+// Class load is the time until Main.main() runs, taken from the process
+// start time the OS reports. When timing is off every mark is one static
+// boolean read.
+public final class StartupTimer {
+    private static boolean enabled;
+    private static boolean prompted;
+    private static boolean resulted;
+    // main() entry, and milliseconds from JVM start to it and to the last mark
+    private static long mainNanos;
+    private static long mainMillis;
+    private static long lastMillis;
+
+    private StartupTimer() {
+    }
+
+    // Called first thing in main(); args may switch timing on
+    static void begin(String[] args) {
+        boolean on = Boolean.getBoolean("eniac.timing");
+        for (String arg : args) on |= arg.equals("--timing");
+        if (!on) return;
+        mainNanos = System.nanoTime();
+        long now = System.currentTimeMillis();
+        mainMillis = now - ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli).orElse(now);
+        lastMillis = mainMillis;
+        enabled = true;
+        System.err.printf("[timing] class load   %4d ms after JVM start%n", mainMillis);
+    }
+
+    // Before the first read of user input
+    static void firstPrompt() {
+        if (!enabled || prompted) return;
+        prompted = true;
+        mark("first prompt ");
+    }
+
+    // After the first calculation or conversion result is printed
+    static void firstResult() {
+        if (!enabled || resulted) return;
+        resulted = true;
+        mark("first result ");
+    }
+
+    private static synchronized void mark(String event) {
+        long millis = mainMillis + (System.nanoTime() - mainNanos) / 1_000_000;
+        System.err.printf("[timing] %s %4d ms (+%d)%n", event, millis, millis - lastMillis);
+        lastMillis = millis;
+    }
+}
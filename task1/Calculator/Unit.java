@@ -0,0 +1,42 @@
+// A unit of a UnitDimension, identified by its row in the dimension's
+// conversion matrices. Units are created by UnitDimension and looked up
+// through UnitRegistry.find().
+public final class Unit {
+    private final UnitDimension dimension;
+    private final int index;
+
+    Unit(UnitDimension dimension, int index) {
+        this.dimension = dimension;
+        this.index = index;
+    }
+
+    public UnitDimension getDimension() {
+        return dimension;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getSymbol() {
+        return dimension.getSymbol(index);
+    }
+
+    public String getName() {
+        return dimension.getName(index);
+    }
+
+    // value in this unit expressed in target; throws IllegalArgumentException across dimensions
+    public double convert(double value, Unit target) {
+        if (target.dimension != dimension) {
+            throw new IllegalArgumentException("Cannot convert " + getSymbol() + " (" + dimension.getName()
+                    + ") to " + target.getSymbol() + " (" + target.dimension.getName() + ")");
+        }
+        return dimension.convert(index, target.index, value);
+    }
+
+    @Override
+    public String toString() {
+        return getSymbol();
+    }
+}
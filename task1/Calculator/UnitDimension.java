@@ -0,0 +1,122 @@
+import java.util.Arrays;
+
+// One physical dimension (length, temperature, ...) with its units and the
+// precomputed conversion between every pair of them. Each unit is an affine
+// function of the dimension's first unit, its base; from those the
+// constructor fills two dense n x n matrices so that converting from unit i
+// to unit j is
+//
+//   value * scale[i * n + j] + offset[i * n + j]
+//
+// with no search and no branching on the pair. Offsets are zero except for
+// affine scales such as temperatures. Immutable, so a dimension can be
+// shared between threads and replaced as a whole.
+public final class UnitDimension {
+    private final String name;
+    private final String[] symbols;
+    private final String[] names;
+    private final Unit[] units;
+    private final double[] scale;
+    private final double[] offset;
+
+    // Unit i has value baseScale[i] * base + baseOffset[i]; unit 0 is the base itself
+    public UnitDimension(String name, String[] symbols, String[] names, double[] baseScale, double[] baseOffset) {
+        this(name, symbols, names, baseScale, ones(baseScale.length), baseOffset);
+    }
+
+    // Scales given as fractions baseNumerator[i] / baseDenominator[i]. Each
+    // pair factor is then formed in one division, so a unit defined as
+    // base / 1609.344 converts back to the base by exactly 1609.344.
+    public UnitDimension(String name, String[] symbols, String[] names,
+                         double[] baseNumerator, double[] baseDenominator, double[] baseOffset) {
+        int n = symbols.length;
+        if (n == 0 || names.length != n || baseNumerator.length != n || baseDenominator.length != n
+                || baseOffset.length != n) {
+            throw new IllegalArgumentException("Dimension " + name + " needs one name, scale and offset per unit");
+        }
+        this.name = name;
+        this.symbols = symbols.clone();
+        this.names = names.clone();
+        this.units = new Unit[n];
+        this.scale = new double[n * n];
+        this.offset = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            double a = baseNumerator[i] / baseDenominator[i];
+            if (!(a != 0 && Double.isFinite(a) && Double.isFinite(baseOffset[i]))) {
+                throw new IllegalArgumentException("Unit " + symbols[i] + " has no usable conversion to the base unit");
+            }
+            units[i] = new Unit(this, i);
+        }
+        // i -> base: (v - b_i) / a_i, then base -> j: a_j * base + b_j
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double factor = i == j ? 1 : (baseNumerator[j] * baseDenominator[i]) / (baseDenominator[j] * baseNumerator[i]);
+                scale[i * n + j] = factor;
+                offset[i * n + j] = i == j ? 0 : baseOffset[j] - factor * baseOffset[i];
+            }
+        }
+    }
+
+    private static double[] ones(int length) {
+        double[] ones = new double[length];
+        Arrays.fill(ones, 1);
+        return ones;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    public String getSymbol(int unit) {
+        return symbols[unit];
+    }
+
+    public String getName(int unit) {
+        return names[unit];
+    }
+
+    public Unit getUnit(int unit) {
+        return units[unit];
+    }
+
+    // Index of the unit with this symbol (case-sensitive) or name (case-insensitive), -1 if none
+    public int indexOf(String unit) {
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i].equals(unit)) return i;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(unit)) return i;
+        }
+        return -1;
+    }
+
+    public double convert(int from, int to, double value) {
+        int k = from * symbols.length + to;
+        return value * scale[k] + offset[k];
+    }
+
+    // Converts in[0, length) from one unit to another into out; in and out may be the same array
+    public void convert(int from, int to, double[] in, double[] out, int length) {
+        int k = from * symbols.length + to;
+        double a = scale[k];
+        double b = offset[k];
+        for (int i = 0; i < length; i++) out[i] = in[i] * a + b;
+    }
+
+    public double getScale(int from, int to) {
+        return scale[from * symbols.length + to];
+    }
+
+    public double getOffset(int from, int to) {
+        return offset[from * symbols.length + to];
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + Arrays.toString(symbols);
+    }
+}
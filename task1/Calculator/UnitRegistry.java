@@ -0,0 +1,415 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Units the Converter knows, grouped into dimensions and read from a plain
+// text table, so adding a dimension or a unit needs no code:
+//
+//   [length]
+//   m    meter
+//   km   kilometer   = m / 1000
+//   ft   foot        = m / 0.3048
+//
+// A section starts a dimension; each line below names a unit by symbol and
+// full name and, after '=', gives its value as a linear or affine expression
+// of exactly one other unit of the section, e.g. "F fahrenheit = C * 9 / 5 + 32".
+// These definitions are the edges of a conversion graph. The section's first
+// unit is its base, every other unit must be connected to it, and edges that
+// close a cycle must agree with the path already found. Definitions may refer
+// to units defined further down. '#' starts a comment.
+//
+// The registry is filled at startup (defaults() plus any load()) and only
+// read afterwards; UnitDimension holds the precomputed conversions. Those are
+// immutable, so copy() shares them and only copies the lookup maps.
+public final class UnitRegistry {
+    // Relative disagreement tolerated between two paths of the same graph
+    private static final double CYCLE_TOLERANCE = 1e-9;
+
+    // The original three Converter services first, so the menu keeps their numbers
+    static final String DEFAULT_TABLE = String.join("\n",
+            "[temperature]",
+            "C    celsius",
+            "F    fahrenheit          = C * 9 / 5 + 32",
+            "K    kelvin              = C + 273.15",
+            "R    rankine             = K * 9 / 5",
+            "",
+            "[currency]",
+            "USD  US dollar",
+            "EUR  euro                = USD * 0.85",
+            "",
+            "[distance]",
+            "m    meter",
+            "km   kilometer           = m / 1000",
+            "cm   centimeter          = m * 100",
+            "mm   millimeter          = m * 1000",
+            "mi   mile                = m / 1609.344",
+            "yd   yard                = m / 0.9144",
+            "ft   foot                = yd * 3",
+            "in   inch                = ft * 12",
+            "nmi  nautical mile       = m / 1852",
+            "",
+            "[mass]",
+            "kg   kilogram",
+            "g    gram                = kg * 1000",
+            "mg   milligram           = g * 1000",
+            "t    tonne               = kg / 1000",
+            "lb   pound               = kg / 0.45359237",
+            "oz   ounce               = lb * 16",
+            "st   stone               = lb / 14",
+            "",
+            "[volume]",
+            "l    liter",
+            "ml   milliliter          = l * 1000",
+            "m3   cubic meter         = l / 1000",
+            "gal  US gallon           = l / 3.785411784",
+            "qt   US quart            = gal * 4",
+            "pt   US pint             = qt * 2",
+            "cup  US cup              = pt * 2",
+            "floz US fluid ounce      = cup * 8",
+            "",
+            "[time]",
+            "s    second",
+            "ms   millisecond         = s * 1000",
+            "min  minute              = s / 60",
+            "h    hour                = min / 60",
+            "d    day                 = h / 24",
+            "wk   week                = d / 7",
+            "");
+
+    private final Map<String, UnitDimension> dimensions = new LinkedHashMap<>();
+    private final Map<String, Unit> symbols = new HashMap<>();
+    private final Map<String, Unit> names = new HashMap<>();
+
+    public UnitRegistry() {
+    }
+
+    private UnitRegistry(UnitRegistry other) {
+        dimensions.putAll(other.dimensions);
+        symbols.putAll(other.symbols);
+        names.putAll(other.names);
+    }
+
+    // The built-in table: temperature, currency, distance, mass, volume and time
+    public static UnitRegistry defaults() {
+        UnitRegistry registry = new UnitRegistry();
+        try {
+            registry.load(new StringReader(DEFAULT_TABLE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return registry;
+    }
+
+    // A registry with the same dimensions that can be loaded into without affecting this one
+    public UnitRegistry copy() {
+        return new UnitRegistry(this);
+    }
+
+    public void load(Path file) throws IOException {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            load(in);
+        }
+    }
+
+    // Adds the dimensions of a table; one with the name of an existing
+    // dimension replaces it. A malformed table, or one whose units clash with
+    // another dimension's, throws IllegalArgumentException and adds nothing:
+    // the dimensions are put into a copy first and taken over only if all fit.
+    public void load(Reader table) throws IOException {
+        List<UnitDimension> parsed = new ArrayList<>();
+        BufferedReader in = table instanceof BufferedReader ? (BufferedReader) table : new BufferedReader(table);
+        Section section = null;
+        String line;
+        for (int number = 1; (line = in.readLine()) != null; number++) {
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) continue;
+            if (text.startsWith("[")) {
+                if (!text.endsWith("]") || text.length() < 3) throw error(number, "Malformed section " + text);
+                if (section != null) parsed.add(section.build());
+                section = new Section(text.substring(1, text.length() - 1).trim());
+            } else if (section == null) {
+                throw error(number, "Unit outside of a [dimension] section");
+            } else {
+                section.add(number, text);
+            }
+        }
+        if (section != null) parsed.add(section.build());
+        UnitRegistry staged = copy();
+        for (UnitDimension dimension : parsed) staged.put(dimension);
+        dimensions.clear();
+        dimensions.putAll(staged.dimensions);
+        symbols.clear();
+        symbols.putAll(staged.symbols);
+        names.clear();
+        names.putAll(staged.names);
+    }
+
+    // Adds a dimension, replacing any with the same name
+    public void put(UnitDimension dimension) {
+        String key = dimension.getName().toLowerCase(Locale.ROOT);
+        UnitDimension previous = dimensions.get(key);
+        for (int i = 0; i < dimension.size(); i++) {
+            Unit clash = symbols.get(dimension.getSymbol(i));
+            if (clash != null && clash.getDimension() != previous) {
+                throw new IllegalArgumentException("Unit " + dimension.getSymbol(i) + " of " + dimension.getName()
+                        + " is already defined in " + clash.getDimension().getName());
+            }
+        }
+        if (previous != null) {
+            for (int i = 0; i < previous.size(); i++) {
+                symbols.remove(previous.getSymbol(i));
+                names.remove(previous.getName(i).toLowerCase(Locale.ROOT), previous.getUnit(i));
+            }
+        }
+        dimensions.put(key, dimension);
+        for (int i = 0; i < dimension.size(); i++) {
+            symbols.put(dimension.getSymbol(i), dimension.getUnit(i));
+            names.putIfAbsent(dimension.getName(i).toLowerCase(Locale.ROOT), dimension.getUnit(i));
+        }
+    }
+
+    public List<UnitDimension> getDimensions() {
+        return Collections.unmodifiableList(new ArrayList<>(dimensions.values()));
+    }
+
+    public UnitDimension getDimension(String name) {
+        return dimensions.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    // Unit by symbol (case-sensitive, "m" is not "M") or full name (case-insensitive); null if unknown
+    public Unit find(String unit) {
+        Unit found = symbols.get(unit);
+        return found != null ? found : names.get(unit.toLowerCase(Locale.ROOT));
+    }
+
+    public double convert(double value, String from, String to) {
+        return require(from).convert(value, require(to));
+    }
+
+    private Unit require(String unit) {
+        Unit found = find(unit);
+        if (found == null) throw new IllegalArgumentException("Unknown unit: " + unit);
+        return found;
+    }
+
+    private static IllegalArgumentException error(int line, String message) {
+        return new IllegalArgumentException(message + " at line " + line);
+    }
+
+    // Units of one section while it is read, resolved to base coordinates by build()
+    private static final class Section {
+        private final String name;
+        private final List<String> symbols = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Edge> edges = new ArrayList<>();
+
+        Section(String name) {
+            this.name = name;
+        }
+
+        void add(int line, String text) {
+            int equals = text.indexOf('=');
+            String head = (equals >= 0 ? text.substring(0, equals) : text).trim();
+            String[] words = head.split("\\s+", 2);
+            String symbol = words[0];
+            if (!isSymbol(symbol)) throw error(line, "Invalid unit symbol " + symbol);
+            if (symbols.contains(symbol)) throw error(line, "Unit " + symbol + " defined twice");
+            symbols.add(symbol);
+            names.add(words.length > 1 ? words[1].trim() : symbol);
+            if (equals >= 0) edges.add(new Edge(line, symbols.size() - 1, text.substring(equals + 1)));
+        }
+
+        UnitDimension build() {
+            int n = symbols.size();
+            if (n == 0) throw new IllegalArgumentException("Dimension " + name + " has no units");
+            List<List<Edge>> adjacent = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) adjacent.add(new ArrayList<>());
+            for (Edge edge : edges) {
+                edge.resolve(symbols);
+                adjacent.get(edge.unit).add(edge);
+                adjacent.get(edge.reference).add(edge);
+            }
+
+            // Breadth-first from the base, composing each edge or its inverse
+            double[] numerator = new double[n];
+            double[] denominator = new double[n];
+            double[] offset = new double[n];
+            boolean[] known = new boolean[n];
+            numerator[0] = 1;
+            denominator[0] = 1;
+            known[0] = true;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(0);
+            while (!queue.isEmpty()) {
+                int u = queue.poll();
+                for (Edge edge : adjacent.get(u)) {
+                    int v = edge.unit == u ? edge.reference : edge.unit;
+                    double num;
+                    double den;
+                    double b;
+                    if (edge.reference == u) {
+                        // v = s * u + o
+                        num = edge.numerator * numerator[u];
+                        den = edge.denominator * denominator[u];
+                        b = edge.numerator * offset[u] / edge.denominator + edge.offset;
+                    } else {
+                        // u = s * v + o, so v = (u - o) / s
+                        num = edge.denominator * numerator[u];
+                        den = edge.numerator * denominator[u];
+                        b = (offset[u] - edge.offset) * edge.denominator / edge.numerator;
+                    }
+                    if (!known[v]) {
+                        numerator[v] = num;
+                        denominator[v] = den;
+                        offset[v] = b;
+                        known[v] = true;
+                        queue.add(v);
+                    } else if (!close(numerator[v] / denominator[v], num / den) || !close(offset[v], b)) {
+                        throw error(edge.line, "Definition of " + symbols.get(edge.unit)
+                                + " contradicts another path between " + symbols.get(edge.unit)
+                                + " and " + symbols.get(edge.reference));
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (!known[i]) {
+                    throw new IllegalArgumentException("Unit " + symbols.get(i) + " of " + name
+                            + " is not connected to " + symbols.get(0));
+                }
+            }
+            return new UnitDimension(name, symbols.toArray(new String[0]), names.toArray(new String[0]),
+                    numerator, denominator, offset);
+        }
+
+        private static boolean close(double expected, double actual) {
+            return Math.abs(expected - actual) <= CYCLE_TOLERANCE * Math.max(1, Math.max(Math.abs(expected), Math.abs(actual)));
+        }
+
+        private static boolean isSymbol(String symbol) {
+            if (!Character.isLetter(symbol.charAt(0))) return false;
+            for (int i = 1; i < symbol.length(); i++) {
+                char c = symbol.charAt(i);
+                if (!Character.isLetterOrDigit(c) && c != '_') return false;
+            }
+            return true;
+        }
+    }
+
+    // unit = numerator / denominator * reference + offset, taken from the
+    // expression after '='. The scale is kept as a fraction so that "m / 1609.344"
+    // and its inverse both convert with the constant as written, without 1 / x rounding.
+    private static final class Edge {
+        final int line;
+        final int unit;
+        final String definition;
+        int reference;
+        double numerator;
+        double denominator;
+        double offset;
+
+        Edge(int line, int unit, String definition) {
+            this.line = line;
+            this.unit = unit;
+            this.definition = definition;
+        }
+
+        void resolve(List<String> symbols) {
+            Expression expression;
+            try {
+                expression = ExpressionParser.parse(definition);
+            } catch (IllegalArgumentException e) {
+                throw error(line, e.getMessage());
+            }
+            if (expression.getVariableCount() != 1) {
+                throw error(line, "Definition of " + symbols.get(unit) + " must use exactly one other unit");
+            }
+            String name = expression.getVariables()[0];
+            reference = symbols.indexOf(name);
+            if (reference < 0) throw error(line, "Unknown unit " + name);
+            if (reference == unit) throw error(line, "Unit " + name + " defined in terms of itself");
+            if (!affine(expression) || numerator == 0 || !Double.isFinite(numerator / denominator) || !Double.isFinite(offset)) {
+                throw error(line, "Definition of " + symbols.get(unit) + " is not a linear or affine function of " + name);
+            }
+        }
+
+        // Runs the program over values n / d * x + b instead of numbers; false
+        // as soon as x would be multiplied by itself, divided into or passed to a function
+        private boolean affine(Expression expression) {
+            double[] n = new double[expression.maxStack];
+            double[] d = new double[expression.maxStack];
+            double[] b = new double[expression.maxStack];
+            int top = -1;
+            int next = 0;
+            for (byte op : expression.code) {
+                switch (op) {
+                    case Expression.PUSH: top++; n[top] = 0; d[top] = 1; b[top] = expression.constants[next++]; break;
+                    case Expression.LOAD: top++; n[top] = 1; d[top] = 1; b[top] = 0; break;
+                    case Expression.ADD:
+                    case Expression.SUBTRACT: {
+                        double sign = op == Expression.ADD ? 1 : -1;
+                        if (n[top] == 0) {
+                            b[top - 1] += sign * b[top];
+                        } else if (n[top - 1] == 0) {
+                            n[top - 1] = sign * n[top];
+                            d[top - 1] = d[top];
+                            b[top - 1] += sign * b[top];
+                        } else {
+                            n[top - 1] = n[top - 1] * d[top] + sign * n[top] * d[top - 1];
+                            d[top - 1] *= d[top];
+                            b[top - 1] += sign * b[top];
+                        }
+                        top--;
+                        break;
+                    }
+                    case Expression.MULTIPLY:
+                        if (n[top] == 0) {
+                            n[top - 1] *= b[top];
+                            b[top - 1] *= b[top];
+                        } else if (n[top - 1] == 0) {
+                            double c = b[top - 1];
+                            n[top - 1] = n[top] * c;
+                            d[top - 1] = d[top];
+                            b[top - 1] = b[top] * c;
+                        } else {
+                            return false;
+                        }
+                        top--;
+                        break;
+                    case Expression.DIVIDE:
+                        if (n[top] != 0 || b[top] == 0) return false;
+                        d[top - 1] *= b[top];
+                        b[top - 1] /= b[top];
+                        top--;
+                        break;
+                    case Expression.NEGATE: n[top] = -n[top]; b[top] = -b[top]; break;
+                    case Expression.SQRT:
+                    case Expression.LOG:
+                    case Expression.EXP:
+                        if (n[top] != 0) return false;
+                        b[top] = op == Expression.SQRT ? Math.sqrt(b[top]) : op == Expression.LOG ? Math.log(b[top]) : Math.exp(b[top]);
+                        break;
+                    default:
+                        return false;
+                }
+            }
+            numerator = n[0];
+            denominator = d[0];
+            offset = b[0];
+            return true;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Precision mode: exact steps stay on doubles, the first inexact one moves to
+// BigDecimal, and the results match BigDecimal arithmetic either way.
+class AdaptiveDecimalTest {
+    private static AdaptiveDecimal of(String literal) {
+        AdaptiveDecimal value = new AdaptiveDecimal();
+        value.set(literal);
+        return value;
+    }
+
+    private static AdaptiveDecimal apply(String start, Operation op, String operand) {
+        AdaptiveDecimal value = of(start);
+        assertEquals(CalculatorState.RUNNING, value.apply(op, of(operand)));
+        return value;
+    }
+
+    @Test
+    void exactStepsStayFast() {
+        AdaptiveDecimal value = apply("1.5", Operation.ADDITION, "2.25");
+        assertTrue(value.isFast());
+        assertEquals("3.75", value.toString());
+        assertTrue(apply("12", Operation.DIVISION, "4").isFast());
+        assertTrue(apply("3", Operation.MULTIPLICATION, "0.5").isFast());
+        assertTrue(apply("16", Operation.SQUARE_ROOT, "0").isFast());
+        assertEquals("4", apply("16", Operation.SQUARE_ROOT, "0").toString());
+    }
+
+    @Test
+    void decimalFractionsAreExact() {
+        AdaptiveDecimal value = apply("0.1", Operation.ADDITION, "0.2");
+        assertFalse(value.isFast());
+        assertEquals("0.3", value.toString());
+        assertEquals(new BigDecimal("0.3"), value.toBigDecimal());
+        assertEquals("0.01", apply("1.1", Operation.SUBTRACTION, "1.09").toString());
+        assertEquals("33.3", apply("3.33", Operation.MULTIPLICATION, "10").toString());
+    }
+
+    @Test
+    void inexactResultsUseTheContext() {
+        AdaptiveDecimal third = apply("1", Operation.DIVISION, "3");
+        assertFalse(third.isFast());
+        assertEquals(BigDecimal.ONE.divide(new BigDecimal(3), MathContext.DECIMAL128), third.toBigDecimal());
+
+        AdaptiveDecimal root = apply("2", Operation.SQUARE_ROOT, "0");
+        assertEquals(new BigDecimal(2).sqrt(MathContext.DECIMAL128), root.toBigDecimal());
+
+        AdaptiveDecimal short16 = new AdaptiveDecimal(AdaptiveDecimal.context(16));
+        short16.set(1);
+        short16.apply(Operation.DIVISION, of("7"));
+        assertEquals(16, short16.toBigDecimal().precision());
+    }
+
+    @Test
+    void logAndExpMatchKnownDigits() {
+        assertEquals("0.6931471805599453094172321214581766",
+                apply("2", Operation.LOGARITHM, "0").toBigDecimal().toPlainString());
+        assertEquals("2.718281828459045235360287471352662",
+                apply("1", Operation.EXPONENTIAL, "0").toBigDecimal().toPlainString());
+        assertEquals("0", apply("1", Operation.LOGARITHM, "0").toString());
+        assertEquals("1", apply("0", Operation.EXPONENTIAL, "0").toString());
+        AdaptiveDecimal roundTrip = apply("12.5", Operation.LOGARITHM, "0");
+        roundTrip.apply(Operation.EXPONENTIAL, of("0"));
+        assertEquals(12.5, roundTrip.doubleValue(), 1e-30);
+    }
+
+    @Test
+    void failuresLeaveTheValueAndNameTheOperation() {
+        AdaptiveDecimal value = of("-4");
+        assertEquals(CalculatorState.RUNNING, value.apply(Operation.SQUARE_ROOT, of("0")));
+        assertEquals(Operation.SQUARE_ROOT, value.getError());
+        assertEquals("-4", value.toString());
+        assertEquals(CalculatorState.RUNNING, value.apply(Operation.LOGARITHM, of("0")));
+        assertEquals(Operation.LOGARITHM, value.getError());
+        assertEquals(CalculatorState.ENDED, value.apply(Operation.DIVISION, of("0")));
+        assertEquals(Operation.DIVISION, value.getError());
+        value.apply(Operation.ADDITION, of("5"));
+        assertEquals(Operation.NONE, value.getError());
+        assertEquals("1", value.toString());
+    }
+
+    @Test
+    void longChainsAgreeWithBigDecimal() {
+        AdaptiveDecimal value = of("0");
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 1; i <= 1000; i++) {
+            String step = i + "." + (i % 100);
+            value.apply(i % 3 == 0 ? Operation.SUBTRACTION : Operation.ADDITION, of(step));
+            expected = i % 3 == 0 ? expected.subtract(new BigDecimal(step)) : expected.add(new BigDecimal(step));
+        }
+        assertEquals(0, expected.compareTo(value.toBigDecimal()), value.toString());
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// --batch: one result per input line, in input order, however the file is
+// cut into chunks and spread over threads.
+class BatchRunnerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void resultsFollowInputOrderAcrossChunks() throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add(i + " * 2 + 1");
+            expected.add(String.valueOf((double) (i * 2 + 1)));
+        }
+        Path input = write(String.join("\n", lines) + "\n");
+        Path output = dir.resolve("out.txt");
+        BatchRunner runner = new BatchRunner();
+        ChunkedFileProcessor processor = new ChunkedFileProcessor(4, 64);
+        processor.process(input, output, runner::evaluate);
+
+        assertEquals(expected, Files.readAllLines(output));
+        assertEquals(5000, processor.getLines());
+        assertEquals(Files.size(input), processor.getBytesRead());
+        assertEquals(0, runner.getErrors());
+    }
+
+    @Test
+    void blankLinesStayBlankAndErrorsAreCounted() throws IOException {
+        Path input = write("1 + 1\r\n\n   \n1 / 0\nsqrt(-4)\n2 *\nlog(1)");
+        Path output = dir.resolve("out.txt");
+        BatchRunner runner = new BatchRunner();
+        new ChunkedFileProcessor(2, 16).process(input, output, runner::evaluate);
+
+        assertEquals(List.of("2.0", "", "", "Error: Division by zero.",
+                "Error: Cannot take square root of a negative number.",
+                "Error: Unexpected end of expression at position 4", "0.0"), Files.readAllLines(output));
+        assertEquals(3, runner.getErrors());
+    }
+
+    @Test
+    void lineLongerThanAChunkFails() throws IOException {
+        Path input = write("1 + 2 + 3 + 4 + 5\n1\n");
+        ChunkedFileProcessor processor = new ChunkedFileProcessor(1, 8);
+        assertThrows(IOException.class, () -> processor.process(input, dir.resolve("out.txt"), (line, out) -> {
+        }));
+    }
+
+    @Test
+    void runWritesNextToTheInputByDefault() throws IOException {
+        Path input = write("6 * 7\n");
+        assertEquals(0, BatchRunner.run(new String[]{input.toString(), "--threads", "2"}));
+        assertEquals(List.of("42.0"), Files.readAllLines(Path.of(input + ".out")));
+        assertEquals(2, BatchRunner.run(new String[]{input.toString(), "--bogus"}));
+        assertEquals(1, BatchRunner.run(new String[]{dir.resolve("missing.txt").toString()}));
+    }
+
+    private Path write(String text) throws IOException {
+        Path input = dir.resolve("in.txt");
+        Files.write(input, text.getBytes(StandardCharsets.ISO_8859_1));
+        return input;
+    }
+}
@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Registers and the result history ring buffer, in memory and mapped to a file.
+class CalculatorMemoryTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void historyRecallsByAgeAcrossWrapAround() {
+        CalculatorMemory memory = new CalculatorMemory(4, 5);
+        List<Double> all = new ArrayList<>();
+        for (int i = 1; i <= 13; i++) {
+            memory.record(i * 1.5);
+            all.add(i * 1.5);
+            assertEquals(Math.min(i, 5), memory.size());
+            for (int age = 1; age <= memory.size(); age++) {
+                assertEquals(all.get(all.size() - age), memory.recall(age), "age " + age + " after " + i);
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> memory.recall(6));
+        assertThrows(IndexOutOfBoundsException.class, () -> memory.recall(0));
+        memory.clearHistory();
+        assertEquals(0, memory.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> memory.recall(1));
+    }
+
+    @Test
+    void registers() {
+        CalculatorMemory memory = new CalculatorMemory(3, 2);
+        assertFalse(memory.isStored(1));
+        assertTrue(Double.isNaN(memory.load(1)));
+        memory.store(1, -2.5);
+        assertTrue(memory.isStored(1));
+        assertEquals(-2.5, memory.load(1));
+        memory.clearRegisters();
+        assertFalse(memory.isStored(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> memory.store(3, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CalculatorMemory(65, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CalculatorMemory(1, 0));
+    }
+
+    @Test
+    void fileSurvivesReopening() throws IOException {
+        Path file = dir.resolve("memory.bin");
+        try (CalculatorMemory memory = CalculatorMemory.open(file, 4, 3)) {
+            assertTrue(memory.isPersistent());
+            memory.store(2, 42);
+            for (int i = 1; i <= 4; i++) memory.record(i);
+        }
+        try (CalculatorMemory memory = CalculatorMemory.open(file, 4, 3)) {
+            assertTrue(memory.isStored(2));
+            assertFalse(memory.isStored(0));
+            assertEquals(42, memory.load(2));
+            assertEquals(3, memory.size());
+            assertEquals(4, memory.recall(1));
+            assertEquals(2, memory.recall(3));
+            memory.record(5);
+        }
+        try (CalculatorMemory memory = CalculatorMemory.open(file, 4, 3)) {
+            assertEquals(5, memory.recall(1));
+            assertEquals(3, memory.recall(3));
+        }
+    }
+
+    @Test
+    void otherLayoutIsReinitialized() throws IOException {
+        Path file = dir.resolve("memory.bin");
+        try (CalculatorMemory memory = CalculatorMemory.open(file, 4, 3)) {
+            memory.store(0, 1);
+            memory.record(1);
+        }
+        try (CalculatorMemory memory = CalculatorMemory.open(file, 4, 8)) {
+            assertFalse(memory.isStored(0));
+            assertEquals(0, memory.size());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Console line splitting, and that output is flushed before every read that
+// could block: whenever no whole line is buffered, even with part of one.
+class ConsoleTest {
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(new BufferedOutputStream(sink, 1 << 16), false);
+
+    // Hands out one chunk per read() and records what had reached the sink by then
+    private final class Chunks extends Reader {
+        private final ArrayDeque<String> chunks;
+        final List<String> flushedBeforeRead = new ArrayList<>();
+
+        Chunks(String... chunks) {
+            this.chunks = new ArrayDeque<>(Arrays.asList(chunks));
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            flushedBeforeRead.add(sink.toString(StandardCharsets.UTF_8));
+            String chunk = chunks.poll();
+            if (chunk == null) return -1;
+            chunk.getChars(0, chunk.length(), buffer, offset);
+            return chunk.length();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void splitsLinesOnEveryTerminator() {
+        Console console = new Console(new StringReader("a\nb\r\nc\rd\n\ne"), out, false, true);
+        for (String expected : new String[]{"a", "b", "c", "d", "", "e"}) assertEquals(expected, console.readLine());
+        assertThrows(NoSuchElementException.class, console::readLine);
+    }
+
+    @Test
+    void carriageReturnAndLineFeedInSeparateReads() {
+        Console console = new Console(new Chunks("1\r", "\n2\n"), out, false, true);
+        assertEquals("1", console.readLine());
+        assertEquals("2", console.readLine());
+    }
+
+    @Test
+    void promptIsFlushedBeforeWaitingForTheRestOfALine() {
+        Chunks input = new Chunks("1 + 1\n2 +", " 3\n");
+        Console console = new Console(input, out, false, true);
+        console.prompt("> ");
+        assertEquals("1 + 1", console.readLine());
+        console.prompt("> ");
+        assertEquals("2 + 3", console.readLine());
+        // The second prompt went out before the read completing "2 +", which was already buffered
+        assertEquals(List.of("> ", "> > "), input.flushedBeforeRead);
+    }
+
+    @Test
+    void wholeBufferedLinesAreReadWithoutFlushing() {
+        Chunks input = new Chunks("1\n2\n3\n");
+        Console console = new Console(input, out, false, false);
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(String.valueOf(i), console.readLine());
+            out.print(i);
+        }
+        assertEquals(List.of(""), input.flushedBeforeRead);
+        assertThrows(NoSuchElementException.class, console::readLine);
+        assertEquals("123", sink.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void linesLongerThanTheBuffer() {
+        char[] chars = new char[20_000];
+        Arrays.fill(chars, 'x');
+        String longLine = new String(chars);
+        Console console = new Console(new StringReader(longLine + "\nshort"), out, false, false);
+        assertEquals(longLine, console.readLine());
+        assertEquals("short", console.readLine());
+    }
+}
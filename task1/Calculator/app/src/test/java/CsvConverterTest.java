@@ -0,0 +1,92 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// --convert on small files: quoting, empty and malformed fields, short rows,
+// header names and numbers, delimiters and line endings.
+class CsvConverterTest {
+    @TempDir
+    Path dir;
+
+    private static final UnitRegistry UNITS = UnitRegistry.defaults();
+
+    private static String convertRow(String line, char delimiter, int column, String from, String to) {
+        CsvConverter converter = new CsvConverter(delimiter, new int[]{column},
+                new Unit[]{UNITS.find(from)}, new Unit[]{UNITS.find(to)});
+        StringBuilder out = new StringBuilder();
+        converter.convert(line, out);
+        return out + " errors=" + converter.getErrors();
+    }
+
+    @Test
+    void rows() {
+        assertEquals("a,1.0,b errors=0", convertRow("a,1000,b", ',', 1, "m", "km"));
+        assertEquals("a,1.0,b errors=0", convertRow("a, \"1000\" ,b", ',', 1, "m", "km"));
+        assertEquals("\"x,y\",2.0 errors=0", convertRow("\"x,y\",2000", ',', 1, "m", "km"));
+        assertEquals("a,,b errors=0", convertRow("a,,b", ',', 1, "m", "km"));
+        assertEquals("a,n/a,b errors=1", convertRow("a,n/a,b", ',', 1, "m", "km"));
+        assertEquals("a errors=1", convertRow("a", ',', 1, "m", "km"));
+        assertEquals(" errors=0", convertRow("", ',', 1, "m", "km"));
+        assertEquals("212.0;x errors=0", convertRow("100;x", ';', 0, "C", "F"));
+    }
+
+    @Test
+    void convertsByHeaderNameAndNumber() throws IOException {
+        Path input = write("name,distance,time\r\nrun,5,0.5\r\nwalk,2,1\r\n");
+        assertEquals(0, run(input, "--column", "distance:km:m", "--column", "3:h:min"));
+        assertEquals("name,distance,time\nrun,5000.0,30.0\nwalk,2000.0,60.0\n", output());
+    }
+
+    @Test
+    void noHeader() throws IOException {
+        Path input = write("1,2\n3,4\n");
+        assertEquals(0, run(input, "--no-header", "--column", "2:kg:g"));
+        assertEquals("1,2000.0\n3,4000.0\n", output());
+    }
+
+    @Test
+    void tabDelimiter() throws IOException {
+        Path input = write("a\tb\n1\t2\n");
+        assertEquals(0, run(input, "--delimiter", "tab", "--column", "b:km:m"));
+        assertEquals("a\tb\n1\t2000.0\n", output());
+    }
+
+    @Test
+    void rejectsBadOptions() throws IOException {
+        Path input = write("a,b,c,d\n1,2,3,4\n");
+        assertEquals(2, run(input, "--delimiter", "", "--column", "1:km:m"));
+        assertEquals(2, run(input, "--delimiter", ";;", "--column", "1:km:m"));
+        assertEquals(2, run(input));
+        assertEquals(2, run(input, "--bogus"));
+        assertEquals(1, run(input, "--column", "9:km:m"));
+        assertEquals(1, run(input, "--column", "0:km:m"));
+        assertEquals(1, run(input, "--column", "e:km:m"));
+        assertEquals(1, run(input, "--column", "a:km:kg"));
+        assertEquals(1, run(input, "--column", "a:km:parsec"));
+    }
+
+    private int run(Path input, String... options) {
+        String[] args = new String[options.length + 3];
+        args[0] = input.toString();
+        System.arraycopy(options, 0, args, 1, options.length);
+        args[options.length + 1] = "--out";
+        args[options.length + 2] = dir.resolve("out.csv").toString();
+        return CsvConverter.run(args);
+    }
+
+    private String output() throws IOException {
+        return Files.readString(dir.resolve("out.csv"), StandardCharsets.UTF_8);
+    }
+
+    private Path write(String text) throws IOException {
+        Path input = dir.resolve("in.csv");
+        Files.writeString(input, text, StandardCharsets.UTF_8);
+        return input;
+    }
+}
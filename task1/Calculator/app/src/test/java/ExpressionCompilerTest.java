@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Generated bytecode must return exactly what the interpreter returns,
+// including NaN for every domain error.
+class ExpressionCompilerTest {
+    private static final String[] FORMULAS = {
+            "42",
+            "-x",
+            "a * b + c",
+            "base * (1 + rate) - discount / qty",
+            "sqrt(x) + log(y) - exp(z / 10)",
+            "x / (y - y)",
+            "sqrt(x - 50) * log(y - 50)",
+            "a - b - c - (a * (b - (c / (a + 1))))",
+    };
+
+    @Test
+    void compiledMatchesInterpreter() {
+        Random random = new Random(1);
+        for (String formula : FORMULAS) {
+            Expression expression = ExpressionParser.parse(formula);
+            CompiledExpression compiled = ExpressionCompiler.compile(expression);
+            CompiledExpression interpreted = ExpressionCompiler.interpret(expression);
+            assertTrue(compiled.isGenerated(), formula);
+            double[] vars = new double[expression.getVariableCount()];
+            for (int i = 0; i < 1000; i++) {
+                for (int v = 0; v < vars.length; v++) vars[v] = (random.nextDouble() - 0.2) * 100;
+                assertEquals(interpreted.eval(vars), compiled.eval(vars), formula);
+            }
+        }
+    }
+
+    @Test
+    void domainErrorsGiveNaN() {
+        CompiledExpression compiled = ExpressionCompiler.compile(ExpressionParser.parse("a / b + sqrt(c) + log(d)"));
+        assertTrue(compiled.isGenerated());
+        assertTrue(Double.isNaN(compiled.eval(new double[]{1, 0, 1, 1})));
+        assertTrue(Double.isNaN(compiled.eval(new double[]{1, 1, -1, 1})));
+        assertTrue(Double.isNaN(compiled.eval(new double[]{1, 1, 1, 0})));
+        assertEquals(1 + 2 + Math.log(3), compiled.eval(new double[]{1, 1, 4, 3}));
+    }
+
+    @Test
+    void cachesBySourceText() {
+        ExpressionCompiler.clearCache();
+        CompiledExpression first = ExpressionCompiler.compile("p * q");
+        assertSame(first, ExpressionCompiler.compile("p * q"));
+        assertEquals(1, ExpressionCompiler.cacheSize());
+        assertEquals(1, first.indexOf("q"));
+        assertEquals(12, first.eval(new double[]{3, 4}));
+    }
+
+    @Test
+    void longProgramsStillEvaluate() {
+        StringBuilder text = new StringBuilder("x");
+        for (int i = 0; i < 20_000; i++) text.append(" + x");
+        Expression expression = ExpressionParser.parse(text.toString());
+        CompiledExpression compiled = ExpressionCompiler.compile(expression);
+        assertEquals(20_001, compiled.eval(new double[]{1}));
+    }
+}
@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// ExpressionParser and ExpressionEvaluator: precedence, functions, variables,
+// domain errors and syntax errors.
+class ExpressionParserTest {
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+    private double eval(String text, double... vars) {
+        return evaluator.evaluate(ExpressionParser.parse(text), vars);
+    }
+
+    @Test
+    void precedenceAndAssociativity() {
+        assertEquals(14, eval("2 + 3 * 4"));
+        assertEquals(20, eval("(2 + 3) * 4"));
+        assertEquals(3, eval("10 - 4 - 3"));
+        assertEquals(2.5, eval("20 / 4 / 2"));
+        assertEquals(-1, eval("-3 + 2"));
+        assertEquals(9, eval("-(-3) * 3"));
+        assertEquals(5, eval("+5"));
+    }
+
+    @Test
+    void functions() {
+        assertEquals(3 + 4 * 4 - Math.log(2), eval("3 + 4 * sqrt(16) - log(2)"));
+        assertEquals(Math.exp(1), eval("EXP(1)"));
+        assertEquals(2, eval("sqrt ( 2 + 2 )"));
+    }
+
+    @Test
+    void numbers() {
+        assertEquals(0.5, eval(".5"));
+        assertEquals(1500, eval("1.5e3"));
+        assertEquals(0.1 + 0.2, eval("0.1 + 0.2"));
+        assertEquals(1.2345678901234567e-30, eval("1.2345678901234567e-30"));
+        for (String text : new String[]{"0", "7", "123.456", "-0.001", "9007199254740993", "1e22", "1e23", "4.9e-324"}) {
+            assertEquals(Double.parseDouble(text), ExpressionParser.parseDecimal(text, 0, text.length()), text);
+        }
+        assertThrows(NumberFormatException.class, () -> ExpressionParser.parseDecimal("1e", 0, 2));
+        assertThrows(NumberFormatException.class, () -> ExpressionParser.parseDecimal("1.2.3", 0, 5));
+    }
+
+    @Test
+    void variablesBindInOrderOfFirstUse() {
+        Expression expression = ExpressionParser.parse("rate * base + rate");
+        assertArrayEquals(new String[]{"rate", "base"}, expression.getVariables());
+        assertEquals(1, expression.indexOf("base"));
+        assertEquals(-1, expression.indexOf("missing"));
+        assertEquals(0.5 * 10 + 0.5, evaluator.evaluate(expression, new double[]{0.5, 10}));
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluate(expression, new double[]{1}));
+    }
+
+    @Test
+    void parsesRangeOfLargerText() {
+        String line = "x = 6 * 7;";
+        assertEquals(42, evaluator.evaluate(ExpressionParser.parse(line, 4, 9)));
+        assertEquals("6 * 7", ExpressionParser.parse(line, 4, 9).getSource());
+    }
+
+    @Test
+    void domainErrorsGiveNaNAndNameTheOperation() {
+        assertTrue(Double.isNaN(eval("1 / (2 - 2)")));
+        assertEquals(Operation.DIVISION, evaluator.getError());
+        assertTrue(Double.isNaN(eval("sqrt(-1)")));
+        assertEquals(Operation.SQUARE_ROOT, evaluator.getError());
+        assertTrue(Double.isNaN(eval("log(0)")));
+        assertEquals(Operation.LOGARITHM, evaluator.getError());
+        assertEquals(1, eval("1"));
+        assertEquals(Operation.NONE, evaluator.getError());
+    }
+
+    @Test
+    void stackIsSizedForTheDeepestProgram() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) text.append("(1 + ");
+        text.append('1');
+        for (int i = 0; i < 40; i++) text.append(')');
+        assertEquals(41, eval(text.toString()));
+    }
+
+    @Test
+    void syntaxErrorsCarryThePosition() {
+        assertEquals("Empty expression", message("   "));
+        assertEquals("Unexpected ')' at position 3", message("1 )"));
+        assertEquals("Expected ')' at position 7", message("(1 + 2"));
+        assertEquals("Unknown function: foo at position 1", message("foo(1)"));
+        assertEquals("Invalid exponent at position 2", message("1e+"));
+        assertEquals("Unexpected end of expression at position 4", message("1 +"));
+    }
+
+    private static String message(String text) {
+        return assertThrows(IllegalArgumentException.class, () -> ExpressionParser.parse(text)).getMessage();
+    }
+}
@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// OperationKernels against the scalar definition: every element matches
+// compute(), and every failing element reads NaN with its error bit set,
+// including when all of them fail, in place, and through direct buffers.
+class OperationKernelsTest {
+    private static final double[] VALUES = {-4, -1, -0.0, 0, 0.25, 1, 2, 9, 100, 1e300, Double.MIN_VALUE};
+
+    @Test
+    void matchesScalarDefinition() {
+        for (Operation op : Operation.values()) {
+            if (op == Operation.NONE) continue;
+            for (double operand : new double[]{3, -2, 0}) {
+                double[] out = new double[VALUES.length];
+                long[] errors = OperationKernels.newErrorBitmap(VALUES.length);
+                int failed = OperationKernels.apply(op, VALUES, operand, out, errors);
+                checkAgainstScalar(op, VALUES, operand, out, errors, failed);
+            }
+        }
+    }
+
+    @Test
+    void everyElementFailing() {
+        checkAllFail(Operation.SQUARE_ROOT, new double[]{-1, -4}, 0);
+        checkAllFail(Operation.LOGARITHM, new double[]{-1, 0, -0.0}, 0);
+        checkAllFail(Operation.DIVISION, new double[]{1, 2, 3}, 0);
+        double[] many = new double[130];
+        Arrays.fill(many, -1);
+        checkAllFail(Operation.SQUARE_ROOT, many, 0);
+        checkAllFail(Operation.DIVISION, many, 0);
+    }
+
+    private static void checkAllFail(Operation op, double[] in, double operand) {
+        double[] out = new double[in.length];
+        Arrays.fill(out, 7);
+        long[] errors = OperationKernels.newErrorBitmap(in.length);
+        assertEquals(in.length, OperationKernels.apply(op, in, operand, out, errors), op.toString());
+        for (int i = 0; i < in.length; i++) {
+            assertTrue(Double.isNaN(out[i]), op + " out[" + i + "]");
+            assertTrue(OperationKernels.isError(errors, i), op + " bit " + i);
+        }
+
+        double[] inPlace = in.clone();
+        assertEquals(in.length, OperationKernels.apply(op, inPlace, 0, inPlace, 0, in.length, operand, null));
+        for (double value : inPlace) assertTrue(Double.isNaN(value), op + " in place");
+    }
+
+    @Test
+    void inPlaceAndOffsets() {
+        double[] data = {0, 0, 4, -9, 16, 0, 0};
+        long[] errors = OperationKernels.newErrorBitmap(3);
+        assertEquals(1, OperationKernels.apply(Operation.SQUARE_ROOT, data, 2, data, 2, 3, 0, errors));
+        assertEquals(2, data[2]);
+        assertTrue(Double.isNaN(data[3]));
+        assertEquals(4, data[4]);
+        assertEquals(0, data[1]);
+        assertEquals(0, data[5]);
+        assertFalse(OperationKernels.isError(errors, 0));
+        assertTrue(OperationKernels.isError(errors, 1));
+        assertFalse(OperationKernels.isError(errors, 2));
+    }
+
+    @Test
+    void staleErrorBitsAreCleared() {
+        long[] errors = {-1L};
+        assertEquals(0, OperationKernels.apply(Operation.ADDITION, new double[]{1, 2}, 1, new double[2], errors));
+        assertEquals(0, errors[0]);
+    }
+
+    @Test
+    void directBuffersFollowTheSameContract() {
+        for (Operation op : new Operation[]{Operation.SQUARE_ROOT, Operation.LOGARITHM, Operation.DIVISION,
+                Operation.MULTIPLICATION}) {
+            DoubleBuffer in = ByteBuffer.allocateDirect(VALUES.length * 8).asDoubleBuffer().put(VALUES);
+            in.flip();
+            DoubleBuffer out = ByteBuffer.allocateDirect(VALUES.length * 8).asDoubleBuffer();
+            long[] errors = OperationKernels.newErrorBitmap(VALUES.length);
+            int failed = OperationKernels.apply(op, in, 0, out, errors);
+            double[] result = new double[VALUES.length];
+            out.get(0, result);
+            checkAgainstScalar(op, VALUES, 0, result, errors, failed);
+        }
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        double[] in = new double[4];
+        assertThrows(IllegalArgumentException.class, () -> OperationKernels.apply(Operation.NONE, in, in, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> OperationKernels.apply(Operation.EQUAL, new double[65], new double[65], new long[1]));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> OperationKernels.apply(Operation.EQUAL, in, 2, in, 0, 3, 0, null));
+    }
+
+    private static void checkAgainstScalar(Operation op, double[] in, double operand, double[] out, long[] errors,
+                                           int failed) {
+        int expectedFailures = 0;
+        for (int i = 0; i < in.length; i++) {
+            String where = op + " " + operand + " at " + in[i];
+            if (OperationKernels.isDomainError(op, in[i], operand)) {
+                expectedFailures++;
+                assertTrue(Double.isNaN(out[i]), where);
+                assertTrue(OperationKernels.isError(errors, i), where);
+            } else {
+                assertEquals(OperationKernels.compute(op, in[i], operand), out[i], Math.ulp(out[i]), where);
+                assertFalse(OperationKernels.isError(errors, i), where);
+            }
+        }
+        assertEquals(expectedFailures, failed, op.toString());
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compensated reductions against exact BigDecimal arithmetic, and the IEEE
+// special cases the product tracks in flags.
+class ReductionTest {
+    private static final MathContext EXACT = new MathContext(60);
+
+    @Test
+    void sumCancelsWhereNaiveSummationLosesEverything() {
+        assertEquals(2, Reduction.sum(new double[]{1e100, 1, -1e100, 1}));
+        assertEquals(2, Reduction.sum(Arrays.stream(new double[]{1e100, 1, -1e100, 1})));
+    }
+
+    @Test
+    void sumIsWithinAnUlpOfTheExactSumOnAnySplit() {
+        Random random = new Random(5);
+        double[] values = new double[3 * Reduction.LEAF_SIZE + 17];
+        BigDecimal exact = BigDecimal.ZERO;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * Math.pow(10, random.nextInt(12) - 6);
+            exact = exact.add(new BigDecimal(values[i]));
+        }
+        double expected = exact.doubleValue();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertEquals(expected, Reduction.sum(values, pool), Math.ulp(expected));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(expected, Reduction.sum(values), Math.ulp(expected));
+        assertEquals(expected, Reduction.sum(Arrays.stream(values).parallel()), Math.ulp(expected));
+    }
+
+    @Test
+    void productIsWithinAnUlpOfTheExactProduct() {
+        Random random = new Random(9);
+        double[] values = new double[2000];
+        BigDecimal exact = BigDecimal.ONE;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (random.nextBoolean() ? 1 : -1) * (0.5 + random.nextDouble() * 1.5);
+            exact = exact.multiply(new BigDecimal(values[i]), EXACT);
+        }
+        double expected = exact.doubleValue();
+        assertEquals(expected, Reduction.product(values), 2 * Math.ulp(expected));
+        assertEquals(expected, Reduction.product(Arrays.stream(values).parallel()), 2 * Math.ulp(expected));
+    }
+
+    @Test
+    void productDoesNotOverflowOrUnderflowBeforeTheResult() {
+        assertEquals(1e100, Reduction.product(new double[]{1e200, 1e200, 1e-300}), Math.ulp(1e100));
+        assertEquals(1e-100, Reduction.product(new double[]{1e-200, 1e-300, 1e200, 1e200}),
+                Math.ulp(1e-100));
+        assertEquals(2 * Double.MIN_VALUE, Reduction.product(new double[]{Double.MIN_VALUE, 0x1p60, 0x1p-59}));
+        assertEquals(Double.POSITIVE_INFINITY, Reduction.product(new double[]{1e300, 1e300}));
+        assertEquals(0.0, Reduction.product(new double[]{1e-300, 1e-300}));
+        // 2^100 times over, then 2^-100 as often: far past the double range in between
+        double[] large = new double[4 * Reduction.LEAF_SIZE];
+        Arrays.fill(large, 0, large.length / 2, 0x1p100);
+        Arrays.fill(large, large.length / 2, large.length, 0x1p-100);
+        assertEquals(1, Reduction.product(large));
+    }
+
+    @Test
+    void productSpecialValuesFollowIeee() {
+        assertTrue(Double.isNaN(Reduction.product(new double[]{0, Double.POSITIVE_INFINITY})));
+        assertTrue(Double.isNaN(Reduction.product(new double[]{1, Double.NaN})));
+        assertEquals(Double.NEGATIVE_INFINITY, Reduction.product(new double[]{-2, Double.POSITIVE_INFINITY}));
+        assertEquals(-0.0, Reduction.product(new double[]{3, -0.0}));
+        assertEquals(0.0, Reduction.product(new double[]{-3, -0.0}));
+        assertEquals(1, Reduction.product(new double[0]));
+        assertEquals(0, Reduction.sum(new double[0]));
+        assertEquals(Double.POSITIVE_INFINITY, Reduction.sum(new double[]{Double.MAX_VALUE, Double.MAX_VALUE, -1}));
+    }
+}
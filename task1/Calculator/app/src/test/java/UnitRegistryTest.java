@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Unit conversion through the default table and tables loaded at run time.
+class UnitRegistryTest {
+    private static final double EPSILON = 1e-12;
+
+    private static void assertConverts(UnitRegistry units, double expected, double value, String from, String to) {
+        double actual = units.convert(value, from, to);
+        assertEquals(expected, actual, EPSILON * Math.max(1, Math.abs(expected)), value + " " + from + " to " + to);
+    }
+
+    @Test
+    void originalConverterFormulas() {
+        assertEquals(212, Converter.celsiusToFahrenheit(100), EPSILON);
+        assertEquals(-40, Converter.fahrenheitToCelsius(-40), EPSILON);
+        assertEquals(1, Converter.milesToKilometers(Converter.kilometersToMiles(1)), EPSILON);
+        assertEquals(1.609344, Converter.milesToKilometers(1), EPSILON);
+        assertEquals(85, Converter.usdToEur(100), EPSILON);
+        assertEquals(100, Converter.eurToUsd(85), EPSILON);
+    }
+
+    @Test
+    void defaultTableConversions() {
+        UnitRegistry units = UnitRegistry.defaults();
+        assertConverts(units, 273.15, 0, "C", "K");
+        assertConverts(units, 491.67, 0, "C", "R");
+        assertConverts(units, 32, 273.15, "K", "F");
+        assertConverts(units, 0.0254, 1, "in", "m");
+        assertConverts(units, 63360, 1, "mi", "in");
+        assertConverts(units, 1852, 1, "nmi", "m");
+        assertConverts(units, 16, 1, "lb", "oz");
+        assertConverts(units, 6.35029318, 1, "st", "kg");
+        assertConverts(units, 236.5882365, 1, "cup", "ml");
+        assertConverts(units, 128, 1, "gal", "floz");
+        assertConverts(units, 604800, 1, "wk", "s");
+        assertConverts(units, 2.5, 2.5, "km", "kilometer");
+    }
+
+    @Test
+    void everyPairRoundTrips() {
+        for (UnitDimension dimension : UnitRegistry.defaults().getDimensions()) {
+            for (int from = 0; from < dimension.size(); from++) {
+                for (int to = 0; to < dimension.size(); to++) {
+                    double there = dimension.convert(from, to, 37.5);
+                    assertEquals(37.5, dimension.convert(to, from, there), 1e-9,
+                            dimension.getSymbol(from) + " and " + dimension.getSymbol(to));
+                }
+            }
+        }
+    }
+
+    @Test
+    void lookupAndErrors() {
+        UnitRegistry units = UnitRegistry.defaults();
+        assertSame(units.find("m"), units.find("METER"));
+        assertNull(units.find("M"));
+        assertThrows(IllegalArgumentException.class, () -> units.convert(1, "kg", "m"));
+        assertThrows(IllegalArgumentException.class, () -> units.convert(1, "furlong", "m"));
+    }
+
+    @Test
+    void loadAddsAndReplacesDimensions() throws IOException {
+        UnitRegistry units = UnitRegistry.defaults();
+        int before = units.getDimensions().size();
+        units.load(new StringReader("[area]\nm2 square meter\nha hectare = m2 / 10000 # comment\n"
+                + "a are = ha * 100\n[currency]\nUSD US dollar\nGBP pound = USD * 0.8\n"));
+        assertEquals(before + 1, units.getDimensions().size());
+        assertConverts(units, 100, 1, "ha", "a");
+        assertConverts(units, 80, 100, "USD", "GBP");
+        assertNull(units.find("EUR"));
+    }
+
+    @Test
+    void malformedTablesAreRejectedWithTheirLine() {
+        UnitRegistry units = UnitRegistry.defaults();
+        assertEquals("Unknown unit y at line 3", loadError(units, "[a]\nx\nz = y * 2\n"));
+        assertEquals("Unit outside of a [dimension] section at line 1", loadError(units, "x\n"));
+        assertEquals("Definition of z is not a linear or affine function of x at line 3",
+                loadError(units, "[a]\nx\nz = x * x\n"));
+        // x = b / 5 closes a cycle with b = 4 * x
+        assertEquals("Definition of b contradicts another path between b and a at line 4",
+                loadError(units, "[a]\nx = b / 5\na = x * 2\nb = a * 2\n"));
+        assertEquals("Unit y defined twice at line 3", loadError(units, "[a]\ny\ny\n"));
+        assertTrue(loadError(units, "[a]\nx\ny\n").startsWith("Unit y of a is not connected"));
+    }
+
+    @Test
+    void failedLoadAddsNothing() {
+        UnitRegistry units = UnitRegistry.defaults();
+        int before = units.getDimensions().size();
+        // The first dimension is fine; the second reuses "m" from distance
+        String error = loadError(units, "[area]\nm2 square meter\nha hectare = m2 / 10000\n[bad]\nm meter\n");
+        assertEquals("Unit m of bad is already defined in distance", error);
+        assertEquals(before, units.getDimensions().size());
+        assertNull(units.getDimension("area"));
+        assertNull(units.find("ha"));
+    }
+
+    @Test
+    void copiesLoadIndependently() throws IOException {
+        UnitRegistry units = UnitRegistry.defaults();
+        UnitRegistry copy = units.copy();
+        copy.load(new StringReader("[area]\nm2\nha = m2 / 10000\n"));
+        assertNotNull(copy.find("ha"));
+        assertNull(units.find("ha"));
+        assertSame(units.getDimension("distance"), copy.getDimension("distance"));
+        assertNotNull(Converter.DEFAULT_UNITS.find("km"));
+        assertNull(Converter.DEFAULT_UNITS.find("ha"));
+    }
+
+    private static String loadError(UnitRegistry units, String table) {
+        return assertThrows(IllegalArgumentException.class, () -> units.load(new StringReader(table))).getMessage();
+    }
+}
@@ -0,0 +1,67 @@
+import eniac.bench.HotPaths;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+// HotPaths over a real Calculator whose prompts and messages go to a null
+// stream, so the benchmarks measure the same code the console runs.
+public final class CalculatorHotPaths implements HotPaths {
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final Calculator calculator = new Calculator(new Console(new StringReader(""),
+            new PrintStream(OutputStream.nullOutputStream()), false, false));
+
+    @Override
+    public int operationShifting(String token) {
+        calculator.operationShifting(token);
+        return calculator.getCurrentOperation().ordinal();
+    }
+
+    @Override
+    public boolean checkOperation(String token) {
+        return calculator.checkOperation(token);
+    }
+
+    @Override
+    public int operation(String name) {
+        return Operation.valueOf(name).ordinal();
+    }
+
+    @Override
+    public double performCalculus(int operation, double currentResult, double input) {
+        calculator.load(OPERATIONS[operation], currentResult, input);
+        calculator.performCalculus();
+        return calculator.getCurrentResult();
+    }
+
+    @Override
+    public double celsiusToFahrenheit(double celsius) {
+        return Converter.celsiusToFahrenheit(celsius);
+    }
+
+    @Override
+    public double fahrenheitToCelsius(double fahrenheit) {
+        return Converter.fahrenheitToCelsius(fahrenheit);
+    }
+
+    @Override
+    public double kilometersToMiles(double km) {
+        return Converter.kilometersToMiles(km);
+    }
+
+    @Override
+    public double milesToKilometers(double miles) {
+        return Converter.milesToKilometers(miles);
+    }
+
+    @Override
+    public double usdToEur(double usd) {
+        return Converter.usdToEur(usd);
+    }
+
+    @Override
+    public double eurToUsd(double eur) {
+        return Converter.eurToUsd(eur);
+    }
+}
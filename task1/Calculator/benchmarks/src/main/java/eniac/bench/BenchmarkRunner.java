@@ -0,0 +1,66 @@
+package eniac.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Main class of benchmarks.jar. Takes the usual JMH command line and, unless
+// -rf/-rff say otherwise, writes the results as JSON to
+// jmh-results/<commit>.json so runs of different commits can be compared:
+//
+//   java -jar benchmarks/target/benchmarks.jar                 (everything)
+//   java -jar benchmarks/target/benchmarks.jar Converter -f 1  (a subset)
+//
+// The commit is taken from -Dbench.commit, else from git, else "local".
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        CommandLineOptions cli;
+        try {
+            cli = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Invalid JMH options: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (!cli.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) {
+            Path results = Paths.get("jmh-results", commit() + ".json");
+            Files.createDirectories(results.getParent());
+            options.result(results.toString());
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static String commit() {
+        String commit = System.getProperty("bench.commit");
+        if (commit != null && !commit.isBlank()) return commit;
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(git.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = out.readLine();
+                if (git.waitFor() == 0 && line != null && !line.isBlank()) return line.trim();
+            }
+        } catch (IOException e) {
+            // No git on the PATH
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "local";
+    }
+}
@@ -0,0 +1,62 @@
+package eniac.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Each Converter conversion formula, without the console menus around it
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConverterBenchmark {
+    double value = 36.6;
+
+    private HotPaths paths;
+
+    @Setup
+    public void setup() {
+        paths = HotPaths.load();
+    }
+
+    @Benchmark
+    public double celsiusToFahrenheit() {
+        return paths.celsiusToFahrenheit(value);
+    }
+
+    @Benchmark
+    public double fahrenheitToCelsius() {
+        return paths.fahrenheitToCelsius(value);
+    }
+
+    @Benchmark
+    public double kilometersToMiles() {
+        return paths.kilometersToMiles(value);
+    }
+
+    @Benchmark
+    public double milesToKilometers() {
+        return paths.milesToKilometers(value);
+    }
+
+    @Benchmark
+    public double usdToEur() {
+        return paths.usdToEur(value);
+    }
+
+    @Benchmark
+    public double eurToUsd() {
+        return paths.eurToUsd(value);
+    }
+}
@@ -0,0 +1,38 @@
+package eniac.bench;
+
+// Calls into the application classes for the benchmarks. Calculator, Converter
+// and Operation live in the unnamed package, which code in a named package
+// cannot reference, while JMH refuses benchmarks in the unnamed package; the
+// CalculatorHotPaths bridge sits on that side and is loaded by name.
+public interface HotPaths {
+    // Sets the operation from a token as typed at the prompt; returns the Operation's ordinal
+    int operationShifting(String token);
+
+    boolean checkOperation(String token);
+
+    // Ordinal of the Operation constant with the given name
+    int operation(String name);
+
+    // Runs one performCalculus() step of the given Operation ordinal; returns the new current result
+    double performCalculus(int operation, double currentResult, double input);
+
+    double celsiusToFahrenheit(double celsius);
+
+    double fahrenheitToCelsius(double fahrenheit);
+
+    double kilometersToMiles(double km);
+
+    double milesToKilometers(double miles);
+
+    double usdToEur(double usd);
+
+    double eurToUsd(double eur);
+
+    static HotPaths load() {
+        try {
+            return (HotPaths) Class.forName("CalculatorHotPaths").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("CalculatorHotPaths not on the classpath", e);
+        }
+    }
+}
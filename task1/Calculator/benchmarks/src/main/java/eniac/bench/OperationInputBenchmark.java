@@ -0,0 +1,47 @@
+package eniac.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Parsing of the operation the user types: operationShifting() trims,
+// lower-cases and switches on the string, checkOperation() scans the
+// operations array. Tokens cover the first and last entries, mixed case with
+// padding, and an unknown token that misses every entry.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OperationInputBenchmark {
+    @Param({"+", "=", "sqrt", " LOG ", "pow"})
+    String token;
+
+    private HotPaths paths;
+
+    @Setup
+    public void setup() {
+        paths = HotPaths.load();
+    }
+
+    @Benchmark
+    public int operationShifting() {
+        return paths.operationShifting(token);
+    }
+
+    @Benchmark
+    public boolean checkOperation() {
+        return paths.checkOperation(token);
+    }
+}
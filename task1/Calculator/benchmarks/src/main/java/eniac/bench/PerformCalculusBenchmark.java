@@ -0,0 +1,48 @@
+package eniac.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// One performCalculus() step per Operation, starting each time from the
+// same current result and input so every invocation does the same work.
+// EQUAL includes formatting the result, printed to a null stream.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PerformCalculusBenchmark {
+    @Param({"ADDITION", "SUBTRACTION", "MULTIPLICATION", "DIVISION",
+            "SQUARE_ROOT", "LOGARITHM", "EXPONENTIAL", "EQUAL"})
+    String operation;
+
+    // Non-final so the JIT cannot fold them into the step
+    double currentResult = 12.5;
+    double input = 3.25;
+
+    private HotPaths paths;
+    private int ordinal;
+
+    @Setup
+    public void setup() {
+        paths = HotPaths.load();
+        ordinal = paths.operation(operation);
+    }
+
+    @Benchmark
+    public double performCalculus() {
+        return paths.performCalculus(ordinal, currentResult, input);
+    }
+}
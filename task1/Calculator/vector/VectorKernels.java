@@ -0,0 +1,44 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// jdk.incubator.vector implementation of the OperationKernels transform.
+// Kept apart from the other sources because it only compiles and runs with
+// --add-modules jdk.incubator.vector; OperationKernels picks it up when present.
+// Besides the arithmetic, this gives vectorized LOG and EXP, which C2 does
+// not auto-vectorize from Math.log and Math.exp.
+public final class VectorKernels implements OperationKernels.Kernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void apply(Operation op, double[] in, int inOffset, double[] out, int outOffset,
+                      int length, double operand) {
+        VectorOperators.Unary unary = null;
+        VectorOperators.Binary binary = null;
+        switch (op) {
+            case ADDITION: binary = VectorOperators.ADD; break;
+            case SUBTRACTION: binary = VectorOperators.SUB; break;
+            case MULTIPLICATION: binary = VectorOperators.MUL; break;
+            case DIVISION: binary = VectorOperators.DIV; break;
+            case SQUARE_ROOT: unary = VectorOperators.SQRT; break;
+            case LOGARITHM: unary = VectorOperators.LOG; break;
+            case EXPONENTIAL: unary = VectorOperators.EXP; break;
+            default:
+                OperationKernels.transform(op, in, inOffset, out, outOffset, length, operand);
+                return;
+        }
+
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        if (unary != null) {
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector.fromArray(SPECIES, in, inOffset + i).lanewise(unary).intoArray(out, outOffset + i);
+            }
+        } else {
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector.fromArray(SPECIES, in, inOffset + i).lanewise(binary, operand).intoArray(out, outOffset + i);
+            }
+        }
+        OperationKernels.transform(op, in, inOffset + i, out, outOffset + i, length - i, operand);
+    }
+}
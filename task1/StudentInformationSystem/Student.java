@@ -1,20 +1,28 @@
 import javax.swing.*;
 import javax.swing.border.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class Student extends JFrame {
 
     private JTextField txtId, txtName, txtAge, txtMajor;
     private JTable table;
-    private DefaultTableModel model;
+    private StudentTableModel model;
+    private StudentStore store;
+    private final StudentRepository repository = new StudentRepository();
+    private JButton btnImport, btnExport, btnCancel;
+    private JProgressBar transferProgress;
+    private JLabel transferStatus;
+    private SwingWorker<String, ?> transfer;
     private Color primaryColor = new Color(66, 103, 178);  // Facebook blue
     private Color lightGray = new Color(245, 246, 250);
 
-    public Student() {
+    public Student(Path dataDirectory) {
         setTitle("Student Information System");
-        setSize(950, 600);
+        setSize(950, 780);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
@@ -55,18 +63,24 @@ public class Student extends JFrame {
 
         formPanel.add(Box.createVerticalStrut(10));
 
-        JPanel btnPanel = new JPanel(new GridLayout(2, 2, 10, 10));
+        JPanel btnPanel = new JPanel(new GridLayout(4, 2, 10, 10));
         btnPanel.setBackground(Color.WHITE);
 
         JButton btnAdd = createButton("Add");
         JButton btnUpdate = createButton("Update");
         JButton btnDelete = createButton("Delete");
+        JButton btnFind = createButton("Find by ID");
         JButton btnClear = createButton("Clear");
+        btnImport = createButton("Import CSV");
+        btnExport = createButton("Export CSV");
 
         btnPanel.add(btnAdd);
         btnPanel.add(btnUpdate);
         btnPanel.add(btnDelete);
+        btnPanel.add(btnFind);
         btnPanel.add(btnClear);
+        btnPanel.add(btnImport);
+        btnPanel.add(btnExport);
 
         formPanel.add(btnPanel);
         mainPanel.add(formPanel, BorderLayout.WEST);
@@ -79,9 +93,28 @@ public class Student extends JFrame {
                 new EmptyBorder(10, 10, 10, 10)
         ));
 
-        String[] columns = {"ID", "Name", "Age", "Major"};
-        model = new DefaultTableModel(columns, 0);
+        model = new StudentTableModel();
+        // Loaded before the table is built, so it sees one batch of rows rather than each replayed change
+        try {
+            store = StudentStore.open(dataDirectory, model);
+        } catch (IOException | RuntimeException e) {
+            JOptionPane.showMessageDialog(this, "Cannot load students from " + dataDirectory + ": " + e.getMessage()
+                    + "\nChanges will not be saved.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        StudentRepositorySync.bind(repository, model);
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                if (store == null) return;
+                try {
+                    store.close();
+                } catch (IOException ex) {
+                    System.err.println("Cannot save students: " + ex.getMessage());
+                }
+            }
+        });
         table = new JTable(model);
+        StudentRowSorter sorter = new StudentRowSorter(model);
+        table.setRowSorter(sorter);
         table.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         table.setRowHeight(28);
         table.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 15));
@@ -93,6 +126,65 @@ public class Student extends JFrame {
         tablePanel.add(scrollPane, BorderLayout.CENTER);
         mainPanel.add(tablePanel, BorderLayout.CENTER);
 
+        JPanel searchPanel = new JPanel(new BorderLayout(10, 0));
+        searchPanel.setBackground(Color.WHITE);
+        searchPanel.setBorder(new EmptyBorder(0, 0, 10, 0));
+        JLabel searchLabel = new JLabel("Search name or major:");
+        searchLabel.setFont(new Font("Segoe UI", Font.PLAIN, 15));
+        JTextField txtSearch = new JTextField();
+        txtSearch.setFont(new Font("Segoe UI", Font.PLAIN, 15));
+        txtSearch.setBorder(BorderFactory.createCompoundBorder(
+                new LineBorder(new Color(200, 200, 200), 1, true),
+                new EmptyBorder(5, 10, 5, 10)
+        ));
+        JLabel searchStatus = new JLabel();
+        searchStatus.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        searchStatus.setForeground(Color.GRAY);
+        searchPanel.add(searchLabel, BorderLayout.WEST);
+        searchPanel.add(txtSearch, BorderLayout.CENTER);
+        searchPanel.add(searchStatus, BorderLayout.EAST);
+        tablePanel.add(searchPanel, BorderLayout.NORTH);
+        new StudentSearch(model, sorter, searchStatus::setText).attach(txtSearch);
+
+        JPanel transferPanel = new JPanel(new BorderLayout(10, 0));
+        transferPanel.setBackground(Color.WHITE);
+        transferPanel.setBorder(new EmptyBorder(10, 0, 0, 0));
+        transferStatus = new JLabel();
+        transferStatus.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        transferStatus.setForeground(Color.GRAY);
+        transferProgress = new JProgressBar(0, 100);
+        transferProgress.setStringPainted(true);
+        transferProgress.setVisible(false);
+        btnCancel = new JButton("Cancel");
+        btnCancel.setVisible(false);
+        btnCancel.addActionListener(e -> {
+            if (transfer != null) transfer.cancel(false);
+        });
+        transferPanel.add(transferStatus, BorderLayout.WEST);
+        transferPanel.add(transferProgress, BorderLayout.CENTER);
+        transferPanel.add(btnCancel, BorderLayout.EAST);
+        tablePanel.add(transferPanel, BorderLayout.SOUTH);
+
+        JPanel summaryPanel = new JPanel(new BorderLayout(0, 10));
+        summaryPanel.setBackground(Color.WHITE);
+        summaryPanel.setBorder(new CompoundBorder(
+                new LineBorder(new Color(220, 220, 220), 1, true),
+                new EmptyBorder(10, 10, 10, 10)
+        ));
+        JLabel summaryTitle = new JLabel("Students by Major");
+        summaryTitle.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        summaryTitle.setForeground(primaryColor);
+        JTable summaryTable = new JTable(new StudentMajorSummary(model));
+        summaryTable.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        summaryTable.setRowHeight(24);
+        summaryTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 14));
+        JScrollPane summaryScroll = new JScrollPane(summaryTable);
+        summaryScroll.setBorder(BorderFactory.createEmptyBorder());
+        summaryScroll.setPreferredSize(new Dimension(0, 150));
+        summaryPanel.add(summaryTitle, BorderLayout.NORTH);
+        summaryPanel.add(summaryScroll, BorderLayout.CENTER);
+        mainPanel.add(summaryPanel, BorderLayout.SOUTH);
+
         btnAdd.addActionListener(e -> {
             String id = txtId.getText().trim();
             String name = txtName.getText().trim();
@@ -104,49 +196,91 @@ public class Student extends JFrame {
                 return;
             }
 
-            model.addRow(new Object[]{id, name, age, major});
+            int[] numbers = parseIdAndAge(id, age);
+            if (numbers == null) return;
+            // Upsert: an existing ID is overwritten once the user agrees
+            if (model.findRow(numbers[0]) >= 0 && JOptionPane.showConfirmDialog(this,
+                    "Student ID " + numbers[0] + " already exists. Replace that record?", "Confirm",
+                    JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                return;
+            }
+            model.upsert(numbers[0], name, numbers[1], major);
             clearFields();
         });
       
+        // Updates the selected record, or the one with the ID typed when nothing is selected
         btnUpdate.addActionListener(e -> {
+            int[] numbers = parseIdAndAge(txtId.getText().trim(), txtAge.getText().trim());
+            if (numbers == null) return;
             int row = table.getSelectedRow();
+            row = row != -1 ? table.convertRowIndexToModel(row) : model.findRow(numbers[0]);
             if (row == -1) {
-                JOptionPane.showMessageDialog(this, "Select a record to update.", "Warning", JOptionPane.WARNING_MESSAGE);
+                JOptionPane.showMessageDialog(this, "Select a record or enter an existing Student ID to update.",
+                        "Warning", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            try {
+                model.setRow(row, numbers[0], txtName.getText().trim(), numbers[1], txtMajor.getText().trim());
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage() + ".", "Warning", JOptionPane.WARNING_MESSAGE);
                 return;
             }
-            model.setValueAt(txtId.getText(), row, 0);
-            model.setValueAt(txtName.getText(), row, 1);
-            model.setValueAt(txtAge.getText(), row, 2);
-            model.setValueAt(txtMajor.getText(), row, 3);
             clearFields();
         });
    
+        // Deletes the selected record, or the one with the ID typed when nothing is selected
         btnDelete.addActionListener(e -> {
             int row = table.getSelectedRow();
-            if (row == -1) {
-                JOptionPane.showMessageDialog(this, "Select a record to delete.", "Warning", JOptionPane.WARNING_MESSAGE);
+            if (row != -1) {
+                model.removeRow(table.convertRowIndexToModel(row));
+            } else if (!isInteger(txtId.getText().trim()) || !model.removeId(Integer.parseInt(txtId.getText().trim()))) {
+                JOptionPane.showMessageDialog(this, "Select a record or enter an existing Student ID to delete.",
+                        "Warning", JOptionPane.WARNING_MESSAGE);
                 return;
             }
-            model.removeRow(row);
             clearFields();
         });
 
+        btnFind.addActionListener(e -> findById());
+        txtId.addActionListener(e -> findById());
+
     
         btnClear.addActionListener(e -> clearFields());
 
+        btnImport.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            transferStatus.setText("Importing " + chooser.getSelectedFile().getName());
+            startTransfer(new StudentImport(chooser.getSelectedFile().toPath(), model, this::transferFinished));
+        });
+
+        btnExport.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            transferStatus.setText("Exporting to " + chooser.getSelectedFile().getName());
+            startTransfer(new StudentExport(model, chooser.getSelectedFile().toPath(), this::transferFinished));
+        });
+
    
         table.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
                 int row = table.getSelectedRow();
-                txtId.setText(model.getValueAt(row, 0).toString());
-                txtName.setText(model.getValueAt(row, 1).toString());
-                txtAge.setText(model.getValueAt(row, 2).toString());
-                txtMajor.setText(model.getValueAt(row, 3).toString());
+                if (row == -1) return;
+                row = table.convertRowIndexToModel(row);
+                txtId.setText(String.valueOf(model.getId(row)));
+                txtName.setText(model.getName(row));
+                txtAge.setText(String.valueOf(model.getAge(row)));
+                txtMajor.setText(model.getMajor(row));
             }
         });
     }
 
 
+    // The students shown, for code that works with them off the event dispatch thread
+    public StudentRepository getRepository() {
+        return repository;
+    }
+
     private JTextField createInputField(JPanel formPanel, String placeholder) {
         JLabel label = new JLabel(placeholder + ":");
         label.setFont(new Font("Segoe UI", Font.PLAIN, 15));
@@ -185,6 +319,75 @@ public class Student extends JFrame {
         return button;
     }
 
+    // Runs an import or export, one at a time, with its progress and a Cancel button under the table
+    private void startTransfer(SwingWorker<String, ?> worker) {
+        transfer = worker;
+        btnImport.setEnabled(false);
+        btnExport.setEnabled(false);
+        transferProgress.setValue(0);
+        transferProgress.setVisible(true);
+        btnCancel.setVisible(true);
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) transferProgress.setValue((Integer) e.getNewValue());
+        });
+        worker.execute();
+    }
+
+    private void transferFinished(String summary) {
+        transfer = null;
+        btnImport.setEnabled(true);
+        btnExport.setEnabled(true);
+        transferProgress.setVisible(false);
+        btnCancel.setVisible(false);
+        transferStatus.setText(summary);
+    }
+
+    // Selects, scrolls to and loads the student with the ID typed
+    private void findById() {
+        String id = txtId.getText().trim();
+        int row = isInteger(id) ? model.findRow(Integer.parseInt(id)) : -1;
+        if (row == -1) {
+            JOptionPane.showMessageDialog(this, "No student with ID " + id + ".", "Not found", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        int view = table.convertRowIndexToView(row);
+        // A search that hides the student leaves the selection alone
+        if (view != -1) {
+            table.setRowSelectionInterval(view, view);
+            table.scrollRectToVisible(table.getCellRect(view, 0, true));
+        }
+        txtName.setText(model.getName(row));
+        txtAge.setText(String.valueOf(model.getAge(row)));
+        txtMajor.setText(model.getMajor(row));
+    }
+
+    // ID and age as numbers, or null after telling the user which one is not valid
+    private int[] parseIdAndAge(String id, String age) {
+        int[] numbers;
+        try {
+            numbers = new int[]{Integer.parseInt(id), Integer.parseInt(age)};
+        } catch (NumberFormatException e) {
+            String field = isInteger(id) ? "Age" : "Student ID";
+            JOptionPane.showMessageDialog(this, field + " must be a whole number.", "Warning", JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        if (numbers[1] < 0 || numbers[1] > StudentTableModel.MAX_AGE) {
+            JOptionPane.showMessageDialog(this, "Age must be 0 to " + StudentTableModel.MAX_AGE + ".", "Warning",
+                    JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        return numbers;
+    }
+
+    private static boolean isInteger(String text) {
+        try {
+            Integer.parseInt(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
     private void clearFields() {
         txtId.setText("");
         txtName.setText("");
@@ -193,7 +396,10 @@ public class Student extends JFrame {
         table.clearSelection();
     }
 
+    // Students are kept in the directory given as the argument, by default ~/.student-information-system
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new Student().setVisible(true));
+        Path data = args.length > 0 ? Paths.get(args[0])
+                : Paths.get(System.getProperty("user.home"), ".student-information-system");
+        SwingUtilities.invokeLater(() -> new Student(data).setVisible(true));
     }
 }
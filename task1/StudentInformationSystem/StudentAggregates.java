@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+// Per-major totals for StudentTableModel: number of students, sum of their
+// ages, youngest and oldest. The model calls add() and remove() with the
+// major's dictionary code on every change, so reading a total never scans
+// the rows.
+//
+// Count and sum change in O(1). For the range each major also keeps a
+// histogram of its ages, which the model holds to 0..MAX_AGE; when the last
+// student of the youngest or oldest age leaves, the bound steps through the
+// histogram to the next occupied age, at most MAX_AGE steps however many
+// students there are.
+//
+// Confined to the event dispatch thread, like the model.
+public final class StudentAggregates {
+    private int[] counts = new int[8];
+    private long[] sums = new long[8];
+    private int[] minAges = new int[8];
+    private int[] maxAges = new int[8];
+    // Students per age, allocated with the major's first student
+    private int[][] histograms = new int[8][];
+
+    void add(int major, int age) {
+        if (major >= counts.length) grow(Math.max(major + 1, counts.length * 2));
+        if (histograms[major] == null) histograms[major] = new int[StudentTableModel.MAX_AGE + 1];
+        histograms[major][age]++;
+        if (counts[major]++ == 0) {
+            minAges[major] = age;
+            maxAges[major] = age;
+        } else {
+            minAges[major] = Math.min(minAges[major], age);
+            maxAges[major] = Math.max(maxAges[major], age);
+        }
+        sums[major] += age;
+    }
+
+    // Takes back an earlier add() of the same major and age
+    void remove(int major, int age) {
+        int[] histogram = histograms[major];
+        histogram[age]--;
+        sums[major] -= age;
+        if (--counts[major] == 0 || histogram[age] > 0) return;
+        if (age == minAges[major]) {
+            int next = age;
+            while (histogram[next] == 0) next++;
+            minAges[major] = next;
+        }
+        if (age == maxAges[major]) {
+            int next = age;
+            while (histogram[next] == 0) next--;
+            maxAges[major] = next;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(sums, 0);
+        for (int[] histogram : histograms) {
+            if (histogram != null) Arrays.fill(histogram, 0);
+        }
+    }
+
+    private void grow(int capacity) {
+        counts = Arrays.copyOf(counts, capacity);
+        sums = Arrays.copyOf(sums, capacity);
+        minAges = Arrays.copyOf(minAges, capacity);
+        maxAges = Arrays.copyOf(maxAges, capacity);
+        histograms = Arrays.copyOf(histograms, capacity);
+    }
+
+    // Students in the major; 0 for a code no student ever had
+    public int getCount(int major) {
+        return major < counts.length ? counts[major] : 0;
+    }
+
+    public long getAgeSum(int major) {
+        return major < sums.length ? sums[major] : 0;
+    }
+
+    // Mean age in the major, NaN when it has no students
+    public double getAverageAge(int major) {
+        int count = getCount(major);
+        return count == 0 ? Double.NaN : (double) sums[major] / count;
+    }
+
+    // Youngest age in the major; only meaningful while getCount(major) > 0
+    public int getMinAge(int major) {
+        return minAges[major];
+    }
+
+    public int getMaxAge(int major) {
+        return maxAges[major];
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// The CSV form of Student records, one per line:
+//
+//   ID,Name,Age,Major
+//   1001,"Okafor, Omar",21,Physics
+//
+// The header line is optional on import. A field holding a comma or a double
+// quote is quoted, with its quotes doubled; records never span lines.
+final class StudentCsv {
+    static final String HEADER = "ID,Name,Age,Major";
+
+    private StudentCsv() {
+    }
+
+    // Fields of the line; throws IllegalArgumentException for a quote left open
+    static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) throw new IllegalArgumentException("quote not closed");
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("text after closing quote");
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) end = line.length();
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString().trim());
+            if (i >= line.length()) return fields;
+            i++; // the comma
+        }
+    }
+
+    static boolean isHeader(String line) {
+        return line.replace(" ", "").equalsIgnoreCase(HEADER);
+    }
+
+    // The value as a field, quoted when it needs to be
+    static String field(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
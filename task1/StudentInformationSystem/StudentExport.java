@@ -0,0 +1,91 @@
+import javax.swing.SwingWorker;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+
+// Exports a StudentTableModel as a StudentCsv file without holding up the
+// event dispatch thread. The constructor, called on that thread, copies the
+// model's columns, which takes milliseconds even for a million students;
+// the file is then written from the copy on the worker thread, names straight
+// from their UTF-8 bytes. It goes to a temporary file that replaces the
+// target only once complete, so a cancelled or failed export leaves any
+// existing file as it was.
+public final class StudentExport extends SwingWorker<String, Void> {
+    private final Path file;
+    private final StudentTableModel.Columns columns;
+    private final Consumer<String> finished;
+
+    // finished receives a one-line summary on the event dispatch thread once the export ends
+    public StudentExport(StudentTableModel model, Path file, Consumer<String> finished) {
+        this.file = file;
+        this.columns = model.exportColumns();
+        this.finished = finished;
+    }
+
+    @Override
+    protected String doInBackground() throws IOException {
+        long start = System.nanoTime();
+        byte[][] majors = new byte[columns.majorNames.size()][];
+        for (int code = 0; code < majors.length; code++) {
+            majors[code] = StudentCsv.field(columns.majorNames.get(code)).getBytes(StandardCharsets.UTF_8);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16)) {
+                out.write((StudentCsv.HEADER + "\n").getBytes(StandardCharsets.US_ASCII));
+                int offset = 0;
+                for (int row = 0; row < columns.rows; row++) {
+                    if (row % StudentImport.CHUNK_ROWS == 0) {
+                        if (isCancelled()) return null;
+                        setProgress((int) (100L * row / columns.rows));
+                    }
+                    int length = columns.nameLengths[row];
+                    out.write(Integer.toString(columns.ids[row]).getBytes(StandardCharsets.US_ASCII));
+                    out.write(',');
+                    writeName(out, offset, length);
+                    out.write(',');
+                    out.write(Integer.toString(columns.ages[row]).getBytes(StandardCharsets.US_ASCII));
+                    out.write(',');
+                    out.write(majors[columns.majors[row]]);
+                    out.write('\n');
+                    offset += length;
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return String.format("Exported %,d students in %.1f s", columns.rows, (System.nanoTime() - start) / 1e9);
+    }
+
+    // Commas and quotes are ASCII, so the UTF-8 bytes show whether the name needs quoting
+    private void writeName(OutputStream out, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            if (columns.names[i] == ',' || columns.names[i] == '"') {
+                String name = new String(columns.names, offset, length, StandardCharsets.UTF_8);
+                out.write(StudentCsv.field(name).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        out.write(columns.names, offset, length);
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            finished.accept("Export cancelled");
+            return;
+        }
+        try {
+            finished.accept(get());
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            finished.accept("Export failed: " + cause.getMessage());
+        }
+    }
+}
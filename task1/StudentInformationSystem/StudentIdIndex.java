@@ -0,0 +1,100 @@
+import java.util.Arrays;
+
+// Unique index from student ID to model row for StudentTableModel. Open
+// addressing with linear probing over a single int[] of row numbers (plus
+// one, 0 marks an empty slot); the key of a slot is read back from the
+// model's id column, so the index costs one int per slot and stays at most
+// half full. Removal shifts the following probe run back instead of leaving
+// tombstones, so lookups never slow down after many deletes.
+final class StudentIdIndex {
+    // The id column of the model, read through so the index never holds a stale copy
+    interface Ids {
+        int idAt(int row);
+    }
+
+    private final Ids ids;
+    private int[] slots = new int[32];
+    private int size;
+
+    StudentIdIndex(Ids ids) {
+        this.ids = ids;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Row holding id, or -1
+    int find(int id) {
+        int mask = slots.length - 1;
+        for (int i = hash(id) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            if (ids.idAt(slots[i] - 1) == id) return slots[i] - 1;
+        }
+        return -1;
+    }
+
+    // Adds the row under its current id, which must not be indexed yet
+    void add(int row) {
+        if (2 * (size + 1) > slots.length) rehash(slots.length * 2);
+        insert(slots, row);
+        size++;
+    }
+
+    // Drops id from the index; returns false if it was not there
+    boolean remove(int id) {
+        int mask = slots.length - 1;
+        int i = hash(id) & mask;
+        while (slots[i] != 0 && ids.idAt(slots[i] - 1) != id) i = (i + 1) & mask;
+        if (slots[i] == 0) return false;
+        slots[i] = 0;
+        size--;
+        // Move back every later entry of the run that may no longer be reachable
+        for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            int home = hash(ids.idAt(slots[j] - 1)) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                slots[i] = slots[j];
+                slots[j] = 0;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    // The entry for id moved from one row number to another
+    void move(int id, int from, int to) {
+        int mask = slots.length - 1;
+        for (int i = hash(id) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            if (slots[i] == from + 1) {
+                slots[i] = to + 1;
+                return;
+            }
+        }
+        throw new IllegalStateException("ID " + id + " is not indexed at row " + from);
+    }
+
+    void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] next = new int[capacity];
+        for (int slot : slots) {
+            if (slot != 0) insert(next, slot - 1);
+        }
+        slots = next;
+    }
+
+    private void insert(int[] table, int row) {
+        int mask = table.length - 1;
+        int i = hash(ids.idAt(row)) & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = row + 1;
+    }
+
+    // Sequential IDs would otherwise fill one dense run
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,164 @@
+import javax.swing.SwingWorker;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Imports a StudentCsv file into a StudentTableModel without holding up the
+// event dispatch thread. The file is read line by line on the worker thread
+// and valid students are collected into chunks of CHUNK_ROWS; each chunk is
+// published and upserted on the event dispatch thread with a single
+// upsertAll(), so a million students cost a hundred table events instead of
+// a million. At most IN_FLIGHT chunks wait for the event dispatch thread at
+// a time: when a sorted table makes each batch slower to apply than to
+// parse, the reader waits rather than letting SwingWorker merge the backlog
+// into one long event.
+//
+// A line that does not hold an integer ID, a name, an age from 0 to MAX_AGE and
+// a major is skipped and reported with its number; an ID already in the
+// table is overwritten. Progress is the share of the file's bytes read.
+// Cancelling stops at the next line and keeps the students already imported.
+public final class StudentImport extends SwingWorker<String, StudentImport.Chunk> {
+    static final int CHUNK_ROWS = 10_000;
+    private static final int IN_FLIGHT = 4;
+    private static final int MAX_REPORTED_ERRORS = 5;
+
+    private final Path file;
+    private final StudentTableModel model;
+    private final Consumer<String> finished;
+    // Students handed to publish(); the last chunk may reach the table just after done()
+    private volatile long published;
+    private final Semaphore inFlight = new Semaphore(IN_FLIGHT);
+
+    // finished receives a one-line summary on the event dispatch thread once the import ends
+    public StudentImport(Path file, StudentTableModel model, Consumer<String> finished) {
+        this.file = file;
+        this.model = model;
+        this.finished = finished;
+    }
+
+    static final class Chunk {
+        final int[] ids = new int[CHUNK_ROWS];
+        final String[] names = new String[CHUNK_ROWS];
+        final int[] ages = new int[CHUNK_ROWS];
+        final String[] majors = new String[CHUNK_ROWS];
+        int size;
+    }
+
+    @Override
+    protected String doInBackground() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long size = Math.max(1, Files.size(file));
+        long[] read = new long[1];
+        int invalid = 0;
+        List<String> errors = new ArrayList<>();
+        InputStream counted = new FilterInputStream(Files.newInputStream(file)) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) read[0] += n;
+                return n;
+            }
+        };
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(counted, StandardCharsets.UTF_8), 1 << 16)) {
+            Chunk chunk = new Chunk();
+            int number = 0;
+            for (String line = in.readLine(); line != null && !isCancelled(); line = in.readLine()) {
+                number++;
+                if (number == 1 && line.startsWith("\uFEFF")) line = line.substring(1);
+                if (line.trim().isEmpty() || number == 1 && StudentCsv.isHeader(line)) continue;
+                String error = parse(line, chunk);
+                if (error != null) {
+                    if (invalid++ < MAX_REPORTED_ERRORS) errors.add("line " + number + ": " + error);
+                    continue;
+                }
+                if (chunk.size == CHUNK_ROWS) {
+                    if (!send(chunk)) break;
+                    chunk = new Chunk();
+                    setProgress((int) Math.min(99, 100 * read[0] / size));
+                }
+            }
+            if (chunk.size > 0 && !isCancelled()) send(chunk);
+        }
+        StringBuilder summary = new StringBuilder(String.format(" in %.1f s", (System.nanoTime() - start) / 1e9));
+        if (invalid > 0) {
+            summary.append("; ").append(invalid).append(invalid == 1 ? " invalid line" : " invalid lines")
+                    .append(" skipped (").append(String.join(", ", errors)).append(invalid > errors.size() ? ", ...)" : ")");
+        }
+        return summary.toString();
+    }
+
+    // Publishes the chunk once the event dispatch thread has room for it; false if cancelled meanwhile
+    private boolean send(Chunk chunk) throws InterruptedException {
+        while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+            if (isCancelled()) return false;
+        }
+        published += chunk.size;
+        publish(chunk);
+        return true;
+    }
+
+    // Adds the line's student to the chunk; returns what is wrong with the line, or null
+    private static String parse(String line, Chunk chunk) {
+        List<String> fields;
+        try {
+            fields = StudentCsv.fields(line);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (fields.size() != 4) return "expected 4 fields, found " + fields.size();
+        int id;
+        int age;
+        try {
+            id = Integer.parseInt(fields.get(0));
+        } catch (NumberFormatException e) {
+            return "ID \"" + fields.get(0) + "\" is not a whole number";
+        }
+        try {
+            age = Integer.parseInt(fields.get(2));
+        } catch (NumberFormatException e) {
+            return "age \"" + fields.get(2) + "\" is not a whole number";
+        }
+        if (age < 0 || age > StudentTableModel.MAX_AGE) return "age " + age + " is out of range";
+        if (fields.get(1).isEmpty()) return "name is empty";
+        if (fields.get(3).isEmpty()) return "major is empty";
+        int i = chunk.size++;
+        chunk.ids[i] = id;
+        chunk.names[i] = fields.get(1);
+        chunk.ages[i] = age;
+        chunk.majors[i] = fields.get(3);
+        return null;
+    }
+
+    @Override
+    protected void process(List<Chunk> chunks) {
+        for (Chunk chunk : chunks) {
+            model.upsertAll(chunk.ids, chunk.names, chunk.ages, chunk.majors, chunk.size);
+            inFlight.release();
+        }
+    }
+
+    @Override
+    protected void done() {
+        String count = String.format("%,d", published) + (published == 1 ? " student" : " students");
+        if (isCancelled()) {
+            finished.accept("Import cancelled after " + count);
+            return;
+        }
+        try {
+            finished.accept("Imported " + count + get());
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            finished.accept("Import failed after " + count + ": " + cause.getMessage());
+        }
+    }
+}
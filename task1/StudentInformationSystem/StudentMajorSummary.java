@@ -0,0 +1,91 @@
+import javax.swing.Timer;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+// Table of the students per major, read from the StudentAggregates the
+// model keeps up to date, one row per major that has students and a total
+// row at the end. Every change to the students starts a short timer rather
+// than refreshing at once, so a bulk import redraws the summary a few times a
+// second instead of once per batch; each refresh reads a handful of numbers
+// per major and never the student rows.
+public final class StudentMajorSummary extends AbstractTableModel implements TableModelListener {
+    static final int REFRESH_MS = 250;
+    private static final String[] COLUMNS = {"Major", "Students", "Average age", "Youngest", "Oldest"};
+
+    private final StudentTableModel model;
+    private final Timer refresh;
+    // Values as of the last refresh, so the table never shows a half-applied change
+    private Object[][] cells = new Object[0][];
+
+    public StudentMajorSummary(StudentTableModel model) {
+        this.model = model;
+        this.refresh = new Timer(REFRESH_MS, e -> refresh());
+        this.refresh.setRepeats(false);
+        model.addTableModelListener(this);
+        refresh();
+    }
+
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        if (!refresh.isRunning()) refresh.start();
+    }
+
+    private void refresh() {
+        StudentAggregates aggregates = model.getAggregates();
+        List<Integer> codes = new ArrayList<>();
+        for (int code = 0; code < model.getMajorCount(); code++) {
+            if (aggregates.getCount(code) > 0) codes.add(code);
+        }
+        codes.sort((a, b) -> String.CASE_INSENSITIVE_ORDER.compare(model.getMajorName(a), model.getMajorName(b)));
+        Object[][] next = new Object[codes.size() + 1][];
+        int count = 0;
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < codes.size(); i++) {
+            int code = codes.get(i);
+            next[i] = row(model.getMajorName(code), aggregates.getCount(code), aggregates.getAgeSum(code),
+                    aggregates.getMinAge(code), aggregates.getMaxAge(code));
+            count += aggregates.getCount(code);
+            sum += aggregates.getAgeSum(code);
+            min = Math.min(min, aggregates.getMinAge(code));
+            max = Math.max(max, aggregates.getMaxAge(code));
+        }
+        next[codes.size()] = count == 0 ? new Object[]{"All majors", 0, "", null, null}
+                : row("All majors", count, sum, min, max);
+        cells = next;
+        fireTableDataChanged();
+    }
+
+    private static Object[] row(String major, int count, long sum, int min, int max) {
+        return new Object[]{major, count, String.format("%.1f", (double) sum / count), min, max};
+    }
+
+    @Override
+    public int getRowCount() {
+        return cells.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 || column == 2 ? String.class : Integer.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return cells[row][column];
+    }
+}
@@ -0,0 +1,280 @@
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Compares StudentTableModel with the DefaultTableModel Student used before,
+// filled with the same generated students.
+//
+//   java -Xmx2g StudentModelBenchmark [rows] [rounds]
+//
+// Reports the heap each model holds, the time to fetch every cell of one
+// screen of rows at random scroll positions, as the JTable renderer does,
+// the time to find a student by ID, to filter by a search query, to sort
+// each column through the model's row sorter, to total the students and
+// ages of every major, and to reload every student
+// from disk: CSV text parsed into a DefaultTableModel against StudentStore.
+public final class StudentModelBenchmark {
+    private static final String[] FIRST = {"Amina", "Bilal", "Chen", "Dalia", "Emeka", "Farah", "Goran", "Hana",
+            "Ivan", "Jasmine", "Kofi", "Lena", "Mateo", "Nadia", "Omar", "Priya", "Quentin", "Rosa", "Sami", "Tara"};
+    private static final String[] LAST = {"Ahmed", "Baptiste", "Cohen", "Diallo", "Eriksen", "Fernandes", "Garcia",
+            "Hoang", "Ivanova", "Jensen", "Kowalski", "Laurent", "Mensah", "Nakamura", "Okafor", "Petrov"};
+    private static final String[] MAJORS = {"Computer Science", "Mathematics", "Physics", "Biology", "Chemistry",
+            "Economics", "History", "Philosophy", "Civil Engineering", "Electrical Engineering", "Medicine", "Law"};
+    private static final int SCREEN_ROWS = 25;
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        System.out.printf("%,d students%n", n);
+
+        long before = usedHeap();
+        DefaultTableModel vectors = new DefaultTableModel(new String[]{"ID", "Name", "Age", "Major"}, 0);
+        fill(n, (id, name, age, major) -> vectors.addRow(new Object[]{String.valueOf(id), name, String.valueOf(age), major}));
+        long vectorHeap = usedHeap() - before;
+
+        before = usedHeap();
+        StudentTableModel columns = new StudentTableModel();
+        fill(n, columns::addRow);
+        long columnHeap = usedHeap() - before;
+
+        System.out.printf("%-22s %12s %12s%n", "", "Default", "Columnar");
+        System.out.printf("%-22s %9.1f MB %9.1f MB%n", "heap", vectorHeap / 1e6, columnHeap / 1e6);
+        System.out.printf("%-22s %9.1f us %9.1f us%n", "scroll (one screen)",
+                scroll(vectors, rounds) / 1e3, scroll(columns, rounds) / 1e3);
+        System.out.printf("%-22s %9.1f us %9.1f us%n", "find by ID",
+                findScanning(vectors, n) / 1e3, findIndexed(columns, n) / 1e3);
+        StudentSearchIndex search = new StudentSearchIndex();
+        for (int row = 0; row < n; row++) search.put(columns.getId(row), columns.getName(row), columns.getMajor(row));
+        for (String query : new String[]{"ana", "physics", "jo", "omar okafor"}) {
+            System.out.printf("%-22s %9.1f ms %9.1f ms%n", "search \"" + query + "\"",
+                    regexFilter(vectors, query, rounds) / 1e6, indexSearch(search, columns, query, rounds) / 1e6);
+        }
+        String[] names = {"ID", "Name", "Age", "Major"};
+        for (int column = 0; column < names.length; column++) {
+            long vectorSort = sort(new TableRowSorter<>(vectors), column, rounds);
+            long columnSort = sort(new StudentRowSorter(columns), column, rounds);
+            System.out.printf("%-22s %9.1f ms %9.1f ms%n", "sort by " + names[column], vectorSort / 1e6, columnSort / 1e6);
+        }
+        System.out.printf("%-22s %9.1f us %9.1f us%n", "summary by major",
+                summaryScanning(vectors, rounds) / 1e3, summaryAggregated(columns, rounds) / 1e3);
+        System.out.printf("%-22s %9.1f ms %9.1f ms%n", "reload from disk",
+                reloadCsv(vectors, rounds) / 1e6, reloadStore(columns, rounds) / 1e6);
+        // Keep both models reachable until every measurement is done
+        System.out.println(vectors.getRowCount() + columns.getRowCount() == 2 * n ? "" : "row count mismatch");
+    }
+
+    private interface Sink {
+        void add(int id, String name, int age, String major);
+    }
+
+    private static void fill(int n, Sink sink) {
+        Random random = new Random(7);
+        for (int i = 0; i < n; i++) {
+            String name = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)];
+            // Unique, scattered IDs: i times a constant modulo a prime is a permutation
+            int id = 1_000_000 + (int) (i * 2_654_435_761L % 10_000_019);
+            sink.add(id, name, 17 + random.nextInt(30), MAJORS[random.nextInt(MAJORS.length)]);
+        }
+    }
+
+    // Best time to read every cell of a screen of rows, averaged over 10,000 random scroll positions
+    private static long scroll(TableModel model, int rounds) {
+        Random random = new Random(11);
+        int columns = model.getColumnCount();
+        int positions = 10_000;
+        long best = Long.MAX_VALUE;
+        int sink = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int p = 0; p < positions; p++) {
+                int top = random.nextInt(model.getRowCount() - SCREEN_ROWS);
+                for (int row = top; row < top + SCREEN_ROWS; row++) {
+                    for (int column = 0; column < columns; column++) {
+                        sink += model.getValueAt(row, column).toString().length();
+                    }
+                }
+            }
+            best = Math.min(best, (System.nanoTime() - start) / positions);
+        }
+        if (sink == 42) System.out.println();
+        return best;
+    }
+
+    // Average time to find a student by ID the only way DefaultTableModel allows: scanning
+    private static long findScanning(DefaultTableModel model, int n) {
+        int lookups = 100;
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+            String id = String.valueOf(1_000_000 + (int) ((long) i * (n / lookups) * 2_654_435_761L % 10_000_019));
+            for (int row = 0; row < model.getRowCount(); row++) {
+                if (model.getValueAt(row, 0).equals(id)) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        if (found != lookups) System.out.println("scan missed " + (lookups - found));
+        return (System.nanoTime() - start) / lookups;
+    }
+
+    private static long findIndexed(StudentTableModel model, int n) {
+        int lookups = 1_000_000;
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+            if (model.findRow(1_000_000 + (int) ((long) (i % n) * 2_654_435_761L % 10_000_019)) >= 0) found++;
+        }
+        if (found != lookups) System.out.println("index missed " + (lookups - found));
+        return (System.nanoTime() - start) / lookups;
+    }
+
+    // A case-insensitive regex RowFilter over name and major, as a naive search box would install
+    private static long regexFilter(DefaultTableModel model, String query, int rounds) {
+        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(model);
+        RowFilter<Object, Object> filter = RowFilter.regexFilter("(?i)" + Pattern.quote(query), 1, 3);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            sorter.setRowFilter(null);
+            long start = System.nanoTime();
+            sorter.setRowFilter(filter);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    // The index query plus publishing its IDs to the row sorter, the two steps StudentSearch takes;
+    // cheap enough to run more rounds, so the JIT has compiled both before the best is taken
+    private static long indexSearch(StudentSearchIndex index, StudentTableModel model, String query, int rounds) {
+        StudentRowSorter sorter = new StudentRowSorter(model);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 10 * rounds; round++) {
+            sorter.setFilter(null);
+            long start = System.nanoTime();
+            sorter.setFilter(index.search(query));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static long sort(RowSorter<?> sorter, int column, int rounds) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            sorter.setSortKeys(null);
+            long start = System.nanoTime();
+            sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(column, SortOrder.ASCENDING)));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    // Count, age sum and range per major by reading every row, as a summary over DefaultTableModel must
+    private static long summaryScanning(DefaultTableModel model, int rounds) {
+        long best = Long.MAX_VALUE;
+        int sink = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            Map<Object, long[]> totals = new HashMap<>();
+            for (int row = 0; row < model.getRowCount(); row++) {
+                long[] total = totals.computeIfAbsent(model.getValueAt(row, 3), major -> new long[]{0, 0, 999, -1});
+                int age = Integer.parseInt((String) model.getValueAt(row, 2));
+                total[0]++;
+                total[1] += age;
+                total[2] = Math.min(total[2], age);
+                total[3] = Math.max(total[3], age);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            sink += totals.size();
+        }
+        if (sink == 42) System.out.println();
+        return best;
+    }
+
+    private static long summaryAggregated(StudentTableModel model, int rounds) {
+        StudentAggregates aggregates = model.getAggregates();
+        long best = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < 1000 * rounds; round++) {
+            long start = System.nanoTime();
+            for (int code = 0; code < model.getMajorCount(); code++) {
+                sink += aggregates.getCount(code) + aggregates.getAgeSum(code)
+                        + aggregates.getMinAge(code) + aggregates.getMaxAge(code);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sink == 42) System.out.println();
+        return best;
+    }
+
+    private static long reloadCsv(DefaultTableModel model, int rounds) throws IOException {
+        Path file = Files.createTempFile("students", ".csv");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(file)) {
+                for (int row = 0; row < model.getRowCount(); row++) {
+                    out.write(model.getValueAt(row, 0) + "," + model.getValueAt(row, 1) + ","
+                            + model.getValueAt(row, 2) + "," + model.getValueAt(row, 3));
+                    out.newLine();
+                }
+            }
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                DefaultTableModel loaded = new DefaultTableModel(new String[]{"ID", "Name", "Age", "Major"}, 0);
+                try (BufferedReader in = Files.newBufferedReader(file)) {
+                    for (String line = in.readLine(); line != null; line = in.readLine()) {
+                        String[] cells = line.split(",");
+                        Integer.parseInt(cells[0]);
+                        Integer.parseInt(cells[2]);
+                        loaded.addRow(cells);
+                    }
+                }
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            return best;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Opening a store whose snapshot holds every student
+    private static long reloadStore(StudentTableModel model, int rounds) throws IOException {
+        Path directory = Files.createTempDirectory("students");
+        try {
+            StudentStore store = StudentStore.open(directory, model);
+            store.compact();
+            store.close();
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                StudentStore.open(directory, new StudentTableModel()).close();
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            return best;
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,374 @@
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.event.TableModelEvent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+// Checks StudentTableModel, its aggregates and StudentRowSorter against a
+// map of the records, with no GUI.
+//
+//   java StudentModelCheck [operations] [seed]
+//
+// Random adds, upserts, batch upserts, row and cell edits, removals and
+// clears over a few hundred IDs, each applied to the model and to a plain
+// map from ID to record. Names are built from pieces that differ only in
+// case or share long prefixes, so the name sort has to look past its packed
+// prefix. After every change the model must hold exactly the map's records,
+// findRow() must locate every ID and no removed one, the per-major counts
+// and ages must match a recount, sortedRows() must order every column as a
+// plain sort does, and a sorter fed the model's events the way JTable feeds
+// it must show the same view.
+// Exits with status 1 on the first mismatch.
+public final class StudentModelCheck {
+    private static final String[] PIECES = {"a", "A", "ab", "AB", "abcde", "ABCDE", "z", "ä", "Ä", "Ø", " "};
+    private static final String[] MAJORS = {"Physics", "Biology", "Law", "Art", "History", "Chemistry", "Zoology"};
+    private static final int IDS = 400;
+
+    // The IDs last given to setFilter(), which the sorter does not hand back
+    private static int[] filter;
+
+    private static final class Record {
+        final String name;
+        final int age;
+        final String major;
+
+        Record(String name, int age, String major) {
+            this.name = name;
+            this.age = age;
+            this.major = major;
+        }
+    }
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        StudentTableModel model = new StudentTableModel();
+        StudentRowSorter sorter = new StudentRowSorter(model);
+        model.addTableModelListener(event -> forward(event, sorter));
+        Map<Integer, Record> records = new TreeMap<>();
+        int rejected = 0;
+        for (int op = 0; op < operations; op++) {
+            if (!apply(random, model, records)) rejected++;
+            if (random.nextInt(20) == 0) changeView(random, sorter);
+            checkRecords(model, records);
+            checkIndex(model, records);
+            checkAggregates(model, records);
+            checkSortedRows(model, records);
+            checkView(model, sorter, records);
+        }
+        System.out.printf("model: %,d changes (%,d rejected) agree with the reference, %d rows at the end%n",
+                operations, rejected, model.getRowCount());
+    }
+
+    // One random change to both; false if the model rejected it, as it must have
+    private static boolean apply(SplittableRandom random, StudentTableModel model, Map<Integer, Record> records) {
+        int id = random.nextInt(IDS) - 50;
+        Record record = record(random);
+        int rows = model.getRowCount();
+        int row = rows == 0 ? -1 : random.nextInt(rows);
+        switch (random.nextInt(rows == 0 ? 4 : 9)) {
+            case 0: {
+                boolean valid = !records.containsKey(id) && validAge(record.age);
+                if (!rejects(valid, () -> model.addRow(id, record.name, record.age, record.major))) return false;
+                records.put(id, record);
+                return true;
+            }
+            case 1: {
+                if (!rejects(validAge(record.age), () -> model.upsert(id, record.name, record.age, record.major))) {
+                    return false;
+                }
+                records.put(id, record);
+                return true;
+            }
+            case 2: {
+                int count = 1 + random.nextInt(20);
+                int[] ids = new int[count + 3];
+                String[] names = new String[count + 3];
+                int[] ages = new int[count + 3];
+                String[] majors = new String[count + 3];
+                boolean valid = true;
+                for (int i = 0; i < count; i++) {
+                    Record next = i == 0 ? record : record(random);
+                    ids[i] = i == 0 ? id : random.nextInt(IDS) - 50;
+                    names[i] = next.name;
+                    ages[i] = next.age;
+                    majors[i] = next.major;
+                    valid &= validAge(next.age);
+                }
+                if (!rejects(valid, () -> model.upsertAll(ids, names, ages, majors, count))) return false;
+                for (int i = 0; i < count; i++) records.put(ids[i], new Record(names[i], ages[i], majors[i]));
+                return true;
+            }
+            case 3: {
+                if (random.nextInt(50) != 0) return apply(random, model, records);
+                model.clear();
+                records.clear();
+                return true;
+            }
+            case 4: {
+                int old = model.getId(row);
+                int next = random.nextBoolean() ? old : id;
+                boolean valid = (next == old || !records.containsKey(next)) && validAge(record.age);
+                if (!rejects(valid, () -> model.setRow(row, next, record.name, record.age, record.major))) {
+                    return false;
+                }
+                records.remove(old);
+                records.put(next, record);
+                return true;
+            }
+            case 5:
+                return setValue(random, model, records, row, id, record);
+            case 6: {
+                records.remove(model.getId(row));
+                model.removeRow(row);
+                return true;
+            }
+            default: {
+                if (model.removeId(id) != records.containsKey(id)) fail("removeId(" + id + ") disagrees");
+                records.remove(id);
+                return true;
+            }
+        }
+    }
+
+    // An edit typed into a cell; IDs that are taken and ages that are not numbers or out of range are ignored
+    private static boolean setValue(SplittableRandom random, StudentTableModel model, Map<Integer, Record> records,
+                                    int row, int id, Record record) {
+        int oldId = model.getId(row);
+        Record old = records.get(oldId);
+        int column = random.nextInt(4);
+        switch (column) {
+            case StudentTableModel.ID: {
+                model.setValueAt(" " + id + " ", row, column);
+                if (id != oldId && records.containsKey(id)) return false;
+                records.remove(oldId);
+                records.put(id, old);
+                return true;
+            }
+            case StudentTableModel.NAME:
+                model.setValueAt(record.name, row, column);
+                records.put(oldId, new Record(record.name.trim(), old.age, old.major));
+                return true;
+            case StudentTableModel.AGE: {
+                String text = random.nextInt(10) == 0 ? "old" : String.valueOf(record.age);
+                model.setValueAt(text, row, column);
+                if (text.equals("old") || !validAge(record.age)) return false;
+                records.put(oldId, new Record(old.name, record.age, old.major));
+                return true;
+            }
+            default:
+                model.setValueAt(record.major, row, column);
+                records.put(oldId, new Record(old.name, old.age, record.major));
+                return true;
+        }
+    }
+
+    // Runs the change, which must throw IllegalArgumentException exactly when it is not valid
+    private static boolean rejects(boolean valid, Runnable change) {
+        try {
+            change.run();
+        } catch (IllegalArgumentException e) {
+            if (valid) fail("valid change rejected: " + e.getMessage());
+            return false;
+        }
+        if (!valid) fail("invalid change accepted");
+        return true;
+    }
+
+    private static Record record(SplittableRandom random) {
+        StringBuilder name = new StringBuilder();
+        int parts = 1 + random.nextInt(6);
+        for (int i = 0; i < parts; i++) name.append(PIECES[random.nextInt(PIECES.length)]);
+        int age = random.nextInt(40);
+        if (random.nextInt(30) == 0) age = random.nextBoolean() ? -1 : StudentTableModel.MAX_AGE + 1;
+        return new Record(name.toString(), age, MAJORS[random.nextInt(MAJORS.length)]);
+    }
+
+    private static boolean validAge(int age) {
+        return age >= 0 && age <= StudentTableModel.MAX_AGE;
+    }
+
+    private static void changeView(SplittableRandom random, StudentRowSorter sorter) {
+        if (random.nextInt(3) == 0) {
+            int[] ids = null;
+            if (random.nextBoolean()) {
+                // Distinct, like the search results the filter is given
+                ids = random.ints(random.nextInt(100), -50, IDS - 50).distinct().toArray();
+            }
+            filter = ids;
+            sorter.setFilter(ids);
+        } else if (random.nextInt(4) == 0) {
+            sorter.setSortKeys(null);
+        } else {
+            SortOrder order = random.nextBoolean() ? SortOrder.ASCENDING : SortOrder.DESCENDING;
+            sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(random.nextInt(4), order)));
+        }
+    }
+
+    // What JTable does with each model event when it has a row sorter
+    private static void forward(TableModelEvent event, StudentRowSorter sorter) {
+        if (event.getFirstRow() == TableModelEvent.HEADER_ROW) {
+            sorter.modelStructureChanged();
+        } else if (event.getLastRow() == Integer.MAX_VALUE) {
+            sorter.allRowsChanged();
+        } else if (event.getType() == TableModelEvent.INSERT) {
+            sorter.rowsInserted(event.getFirstRow(), event.getLastRow());
+        } else if (event.getType() == TableModelEvent.DELETE) {
+            sorter.rowsDeleted(event.getFirstRow(), event.getLastRow());
+        } else if (event.getColumn() == TableModelEvent.ALL_COLUMNS) {
+            sorter.rowsUpdated(event.getFirstRow(), event.getLastRow());
+        } else {
+            sorter.rowsUpdated(event.getFirstRow(), event.getLastRow(), event.getColumn());
+        }
+    }
+
+    private static void checkRecords(StudentTableModel model, Map<Integer, Record> records) {
+        if (model.getRowCount() != records.size()) {
+            fail(model.getRowCount() + " rows, expected " + records.size());
+        }
+        for (int row = 0; row < model.getRowCount(); row++) {
+            Record record = records.get(model.getId(row));
+            if (record == null) fail("row " + row + " has unknown ID " + model.getId(row));
+            if (!model.getName(row).equals(record.name) || model.getAge(row) != record.age
+                    || !model.getMajor(row).equals(record.major)) {
+                fail("row " + row + " is " + model.getName(row) + "/" + model.getAge(row) + "/" + model.getMajor(row)
+                        + ", expected " + record.name + "/" + record.age + "/" + record.major);
+            }
+            if (!model.getValueAt(row, StudentTableModel.ID).equals(model.getId(row))) fail("getValueAt ID");
+        }
+    }
+
+    // findRow() of every ID that could occur: the row holding it, or -1 for the rest
+    private static void checkIndex(StudentTableModel model, Map<Integer, Record> records) {
+        for (int id = -50; id < IDS - 50; id++) {
+            int row = model.findRow(id);
+            if (!records.containsKey(id)) {
+                if (row != -1) fail("findRow(" + id + ") is " + row + " for a removed ID");
+            } else if (row < 0 || row >= model.getRowCount() || model.getId(row) != id) {
+                fail("findRow(" + id + ") is " + row);
+            }
+        }
+    }
+
+    // Count, age sum, mean, youngest and oldest of every major, recomputed from the map
+    private static void checkAggregates(StudentTableModel model, Map<Integer, Record> records) {
+        StudentAggregates aggregates = model.getAggregates();
+        for (int code = 0; code < model.getMajorCount(); code++) {
+            String major = model.getMajorName(code);
+            int count = 0;
+            long sum = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (Record record : records.values()) {
+                if (!record.major.equals(major)) continue;
+                count++;
+                sum += record.age;
+                min = Math.min(min, record.age);
+                max = Math.max(max, record.age);
+            }
+            if (aggregates.getCount(code) != count || aggregates.getAgeSum(code) != sum) {
+                fail(major + " has " + aggregates.getCount(code) + " students aged " + aggregates.getAgeSum(code)
+                        + " in all, expected " + count + " aged " + sum);
+            }
+            if (count == 0) {
+                if (!Double.isNaN(aggregates.getAverageAge(code))) fail(major + " has a mean age but no students");
+            } else if (aggregates.getMinAge(code) != min || aggregates.getMaxAge(code) != max
+                    || aggregates.getAverageAge(code) != (double) sum / count) {
+                fail(major + " ages " + aggregates.getMinAge(code) + " to " + aggregates.getMaxAge(code)
+                        + ", mean " + aggregates.getAverageAge(code) + ", expected " + min + " to " + max);
+            }
+        }
+        if (aggregates.getCount(model.getMajorCount()) != 0) fail("a major with no code has students");
+    }
+
+    private static void checkSortedRows(StudentTableModel model, Map<Integer, Record> records) {
+        for (int column = 0; column < 4; column++) {
+            for (boolean ascending : new boolean[]{true, false}) {
+                int[] expected = expectedOrder(model, records, null, column, ascending);
+                int[] sorted = StudentRowSorter.sortedRows(model, column, ascending);
+                if (!Arrays.equals(expected, sorted)) {
+                    fail("sortedRows column " + column + (ascending ? " ascending " : " descending ")
+                            + Arrays.toString(sorted) + ", expected " + Arrays.toString(expected));
+                }
+            }
+        }
+    }
+
+    private static void checkView(StudentTableModel model, StudentRowSorter sorter, Map<Integer, Record> records) {
+        List<? extends RowSorter.SortKey> keys = sorter.getSortKeys();
+        int[] expected;
+        if (keys.isEmpty()) {
+            expected = expectedOrder(model, records, filter, -1, true);
+        } else {
+            expected = expectedOrder(model, records, filter, keys.get(0).getColumn(),
+                    keys.get(0).getSortOrder() == SortOrder.ASCENDING);
+        }
+        int[] view = new int[sorter.getViewRowCount()];
+        for (int i = 0; i < view.length; i++) view[i] = sorter.convertRowIndexToModel(i);
+        if (!Arrays.equals(expected, view)) {
+            fail("view " + keys + " is " + Arrays.toString(view) + ", expected " + Arrays.toString(expected));
+        }
+        for (int i = 0; i < view.length; i++) {
+            if (sorter.convertRowIndexToView(view[i]) != i) fail("convertRowIndexToView(" + view[i] + ")");
+        }
+    }
+
+    // Model rows of the students in filter, or all of them for null, by column then row; -1 leaves them in row order
+    private static int[] expectedOrder(StudentTableModel model, Map<Integer, Record> records, int[] filter,
+                                       int column, boolean ascending) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (filter == null || contains(filter, model.getId(row))) rows.add(row);
+        }
+        Comparator<Integer> byRow = Comparator.naturalOrder();
+        Comparator<Integer> byKey;
+        switch (column) {
+            case -1: byKey = (a, b) -> 0; break;
+            case StudentTableModel.ID: byKey = Comparator.comparingInt(model::getId); break;
+            case StudentTableModel.NAME:
+                byKey = (a, b) -> compareNames(records.get(model.getId(a)).name, records.get(model.getId(b)).name);
+                break;
+            case StudentTableModel.AGE: byKey = Comparator.comparingInt(row -> records.get(model.getId(row)).age); break;
+            default: byKey = Comparator.comparing(row -> records.get(model.getId(row)).major); break;
+        }
+        rows.sort(byKey.thenComparing(byRow));
+        if (!ascending) Collections.reverse(rows);
+        return rows.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // UTF-8 bytes compared unsigned with ASCII letters folded to lower case, the shorter name first on a tie
+    private static int compareNames(String a, String b) {
+        byte[] x = a.getBytes(StandardCharsets.UTF_8);
+        byte[] y = b.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < Math.min(x.length, y.length); i++) {
+            int c = Integer.compare(fold(x[i]), fold(y[i]));
+            if (c != 0) return c;
+        }
+        return Integer.compare(x.length, y.length);
+    }
+
+    private static int fold(byte b) {
+        int c = b & 0xff;
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id) return true;
+        }
+        return false;
+    }
+
+    private static void fail(String message) {
+        System.out.println("model: FAILED, " + message);
+        System.exit(1);
+    }
+}
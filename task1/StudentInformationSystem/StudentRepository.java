@@ -0,0 +1,353 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+
+// Students by ID for any thread, with no Swing in it: services, batch jobs
+// and tests use it directly, and the window mirrors it into its
+// StudentTableModel through StudentRepositorySync.
+//
+// Records are immutable and sit in an open-addressing table keyed by their
+// ID. A read takes an optimistic StampedLock stamp, probes the table and
+// validates the stamp; only a read that overlapped a write probes again
+// under the read lock. Readers therefore write no shared memory and never
+// wait for each other, where every access to a Vector takes its monitor.
+//
+// Writes are batched. A writer that finds the write lock taken queues its
+// changes and waits for it, and whoever holds the lock applies every change
+// queued so far, so under contention one lock hold and one listener call
+// cover many writers; apply() hands in a whole batch at once. A writer
+// returns only after its changes are applied, so it reads its own writes.
+//
+// Listeners receive the changes that took effect (putting an identical
+// record or removing a missing ID is left out), batch by batch in the order
+// they were applied, on the writing thread and while writers are held off.
+// They must hand the changes on rather than call back into the repository.
+public final class StudentRepository {
+    // One student; never changes once created
+    public static final class Record {
+        private final int id;
+        private final String name;
+        private final int age;
+        private final String major;
+
+        Record(int id, String name, int age, String major) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+            this.major = major;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public String getMajor() {
+            return major;
+        }
+
+        boolean sameAs(Record other) {
+            return id == other.id && age == other.age && name.equals(other.name) && major.equals(other.major);
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + name + ", " + age + ", " + major;
+        }
+    }
+
+    // A put, removal or clear, validated when created
+    public static final class Change {
+        public enum Kind { PUT, REMOVE, CLEAR }
+
+        private static final Change CLEAR_ALL = new Change(Kind.CLEAR, 0, null);
+
+        private final Kind kind;
+        private final int id;
+        private final Record record;
+
+        private Change(Kind kind, int id, Record record) {
+            this.kind = kind;
+            this.id = id;
+            this.record = record;
+        }
+
+        // Adds the student or replaces the one with the same ID; throws IllegalArgumentException
+        // if the age is out of range or a field is missing
+        public static Change put(int id, String name, int age, String major) {
+            if (name == null || major == null) throw new IllegalArgumentException("Name and major are required");
+            if (age < 0 || age > StudentTableModel.MAX_AGE) {
+                throw new IllegalArgumentException("Age must be 0 to " + StudentTableModel.MAX_AGE);
+            }
+            return new Change(Kind.PUT, id, new Record(id, name, age, major));
+        }
+
+        public static Change remove(int id) {
+            return new Change(Kind.REMOVE, id, null);
+        }
+
+        public static Change clear() {
+            return CLEAR_ALL;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        // The student put, null for a removal or clear
+        public Record getRecord() {
+            return record;
+        }
+    }
+
+    public interface Listener {
+        void changed(List<Change> changes);
+    }
+
+    // Changes queued by one writer, marked done by whichever writer applied them
+    private static final class Pending {
+        final List<Change> changes;
+        boolean done;
+        int effective;
+
+        Pending(List<Change> changes) {
+            this.changes = changes;
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final StampedLock lock = new StampedLock();
+    // Read optimistically; replaced, never resized in place
+    private Record[] records = new Record[INITIAL_CAPACITY];
+    private int size;
+    // Under the write lock only: one String per distinct major
+    private final Map<String, String> majors = new HashMap<>();
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // The student with this ID, or null
+    public Record get(int id) {
+        long stamp = lock.tryOptimisticRead();
+        Record record = find(records, id);
+        if (lock.validate(stamp)) return record;
+        stamp = lock.readLock();
+        try {
+            return find(records, id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int result = size;
+        if (lock.validate(stamp)) return result;
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Every student, in no particular order, as of one moment
+    public List<Record> getAll() {
+        long stamp = lock.readLock();
+        try {
+            List<Record> all = new ArrayList<>(size);
+            for (Record record : records) {
+                if (record != null) all.add(record);
+            }
+            return all;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Adds the student or replaces the one with the same ID; throws IllegalArgumentException
+    // if the age is out of range or a field is missing
+    public void put(int id, String name, int age, String major) {
+        write(Collections.singletonList(Change.put(id, name, age, major)));
+    }
+
+    // Removes the student with this ID; returns false if there is none
+    public boolean remove(int id) {
+        return write(Collections.singletonList(Change.remove(id))) > 0;
+    }
+
+    public void clear() {
+        write(Collections.singletonList(Change.clear()));
+    }
+
+    // Applies the changes in order, all in one batch; returns how many took effect
+    public int apply(List<Change> changes) {
+        return changes.isEmpty() ? 0 : write(new ArrayList<>(changes));
+    }
+
+    private int write(List<Change> changes) {
+        // Uncontended, the changes go straight in; otherwise they wait in the queue for a lock holder
+        long stamp = lock.tryWriteLock();
+        Pending own = null;
+        if (stamp == 0) {
+            own = new Pending(changes);
+            queue.add(own);
+            stamp = lock.writeLock();
+            if (own.done) {
+                lock.unlockWrite(stamp);
+                return own.effective;
+            }
+        }
+        List<Change> applied = listeners.isEmpty() ? null : new ArrayList<>();
+        for (Pending pending = queue.poll(); pending != null; pending = queue.poll()) {
+            pending.effective = applyAll(pending.changes, applied);
+            pending.done = true;
+        }
+        int effective = own != null ? own.effective : applyAll(changes, applied);
+        if (applied == null || applied.isEmpty()) {
+            lock.unlockWrite(stamp);
+            return effective;
+        }
+        // Readers may go on while listeners run; other writers wait, which keeps batches in order
+        stamp = lock.tryConvertToReadLock(stamp);
+        try {
+            List<Change> batch = Collections.unmodifiableList(applied);
+            for (Listener listener : listeners) listener.changed(batch);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return effective;
+    }
+
+    // Returns how many of the changes took effect, adding those to applied unless it is null
+    private int applyAll(List<Change> changes, List<Change> applied) {
+        int effective = 0;
+        for (Change change : changes) {
+            change = applyChange(change);
+            if (change == null) continue;
+            effective++;
+            if (applied != null) applied.add(change);
+        }
+        return effective;
+    }
+
+    // The change as applied, or null if it changed nothing
+    private Change applyChange(Change change) {
+        switch (change.kind) {
+            case PUT:
+                Record record = change.record;
+                String major = majors.putIfAbsent(record.major, record.major);
+                if (major != null && major != record.major) {
+                    record = new Record(record.id, record.name, record.age, major);
+                    change = new Change(Change.Kind.PUT, record.id, record);
+                }
+                return store(record) ? change : null;
+            case REMOVE:
+                return delete(change.id) ? change : null;
+            default:
+                if (size == 0) return null;
+                records = new Record[INITIAL_CAPACITY];
+                size = 0;
+                return change;
+        }
+    }
+
+    // Returns false if an identical record was already there
+    private boolean store(Record record) {
+        int mask = records.length - 1;
+        int i = hash(record.id) & mask;
+        while (records[i] != null && records[i].id != record.id) i = (i + 1) & mask;
+        if (records[i] != null) {
+            if (records[i].sameAs(record)) return false;
+            records[i] = record;
+            return true;
+        }
+        if (2 * (size + 1) > records.length) {
+            rehash(records.length * 2);
+            mask = records.length - 1;
+            i = hash(record.id) & mask;
+            while (records[i] != null) i = (i + 1) & mask;
+        }
+        records[i] = record;
+        size++;
+        return true;
+    }
+
+    // Clears the slot and moves back every later entry of the run that may no longer be reachable
+    private boolean delete(int id) {
+        int mask = records.length - 1;
+        int i = hash(id) & mask;
+        while (records[i] != null && records[i].id != id) i = (i + 1) & mask;
+        if (records[i] == null) return false;
+        records[i] = null;
+        size--;
+        for (int j = (i + 1) & mask; records[j] != null; j = (j + 1) & mask) {
+            int home = hash(records[j].id) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                records[i] = records[j];
+                records[j] = null;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        Record[] next = new Record[capacity];
+        int mask = capacity - 1;
+        for (Record record : records) {
+            if (record == null) continue;
+            int i = hash(record.id) & mask;
+            while (next[i] != null) i = (i + 1) & mask;
+            next[i] = record;
+        }
+        records = next;
+    }
+
+    // May see a table a writer is changing; the caller validates its stamp before trusting the
+    // result, and the probe is bounded so a torn table cannot keep it looping
+    private static Record find(Record[] table, int id) {
+        int mask = table.length - 1;
+        int i = hash(id) & mask;
+        for (int probes = 0; probes < table.length; probes++, i = (i + 1) & mask) {
+            Record record = table[i];
+            if (record == null) return null;
+            if (record.id == id) return record;
+        }
+        return null;
+    }
+
+    // Same mix as StudentIdIndex, so sequential IDs do not fill one dense run
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+// Mixed read and write load on StudentRepository from several threads, with
+// no GUI, against the same students in a HashMap behind one monitor, which
+// is how every access to a Vector is serialized.
+//
+//   java StudentRepositoryBenchmark [threads] [operations] [students]
+//
+// Each mix runs the operations (10 million by default) split evenly over the
+// threads; a read looks a random student up by ID, a write replaces a random
+// student. Reports the best of three runs, after one to warm up, as
+// throughput and average time per operation.
+public final class StudentRepositoryBenchmark {
+    private static final String[] NAMES = {"Amina Ahmed", "Bilal Cohen", "Chen Diallo", "Dalia Garcia",
+            "Emeka Hoang", "Farah Jensen", "Goran Laurent", "Hana Mensah", "Ivan Okafor", "Jasmine Petrov"};
+    private static final String[] MAJORS = {"Computer Science", "Mathematics", "Physics", "Biology", "Chemistry",
+            "Economics", "History", "Philosophy"};
+    private static final int[] WRITE_PERCENTS = {0, 5, 20, 50};
+
+    private interface Students {
+        Object get(int id);
+
+        void put(int id, String name, int age, String major);
+    }
+
+    private static final class Monitor implements Students {
+        private final Map<Integer, Object[]> rows = new HashMap<>();
+
+        @Override
+        public synchronized Object get(int id) {
+            return rows.get(id);
+        }
+
+        @Override
+        public synchronized void put(int id, String name, int age, String major) {
+            rows.put(id, new Object[]{id, name, age, major});
+        }
+    }
+
+    private static final class Repository implements Students {
+        private final StudentRepository repository = new StudentRepository();
+
+        @Override
+        public Object get(int id) {
+            return repository.get(id);
+        }
+
+        @Override
+        public void put(int id, String name, int age, String major) {
+            repository.put(id, name, age, major);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        long operations = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000;
+        int students = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int[] ids = new int[students];
+        for (int i = 0; i < students; i++) ids[i] = 1_000_000 + (int) (i * 2_654_435_761L % 10_000_019);
+        System.out.printf("%,d students, %,d operations on %d threads (%d CPUs)%n", students, operations, threads,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-12s %20s %20s%n", "writes", "Monitor", "StudentRepository");
+        for (int percent : WRITE_PERCENTS) {
+            long monitor = best(new Monitor(), ids, threads, operations, percent);
+            long repository = best(new Repository(), ids, threads, operations, percent);
+            System.out.printf("%-12s %8.1f M/s %5.0f ns %8.1f M/s %5.0f ns%n", percent + "%",
+                    operations * 1e3 / monitor, (double) monitor * threads / operations,
+                    operations * 1e3 / repository, (double) repository * threads / operations);
+        }
+    }
+
+    // Best wall time in nanoseconds of three runs, after filling the students and one warm-up run
+    private static long best(Students students, int[] ids, int threads, long operations, int writePercent)
+            throws InterruptedException {
+        for (int i = 0; i < ids.length; i++) students.put(ids[i], NAMES[i % NAMES.length], 18 + i % 30, MAJORS[i % MAJORS.length]);
+        run(students, ids, threads, operations / 10, writePercent);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) best = Math.min(best, run(students, ids, threads, operations, writePercent));
+        return best;
+    }
+
+    private static long run(Students students, int[] ids, int threads, long operations, int writePercent)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        long[] found = new long[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            long share = operations / threads + (t < operations % threads ? 1 : 0);
+            workers[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(worker);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < share; i++) {
+                    int id = ids[random.nextInt(ids.length)];
+                    if (random.nextInt(100) < writePercent) {
+                        students.put(id, NAMES[random.nextInt(NAMES.length)], 18 + random.nextInt(30),
+                                MAJORS[random.nextInt(MAJORS.length)]);
+                    } else if (students.get(id) != null) {
+                        found[worker]++;
+                    }
+                }
+            }, "benchmark-" + t);
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) worker.join();
+        long elapsed = System.nanoTime() - begin;
+        long reads = 0;
+        for (long f : found) reads += f;
+        if (reads == 0 && writePercent < 100) System.out.println("no reads found a student");
+        return elapsed;
+    }
+}
@@ -0,0 +1,287 @@
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Checks StudentRepository, alone and mirrored into a StudentTableModel, with
+// no GUI.
+//
+//   java StudentRepositoryCheck [operations] [threads] [seed]
+//
+// Sequential: random puts, removals, clears and batches against a HashMap;
+// each must report whether it took effect, lookups of every ID, size() and
+// getAll() must match the map, and a listener rebuilding the students from
+// the changes it is told of must end up with the same map.
+//
+// Concurrent: writers each own a range of IDs and check that they read
+// their own writes, while readers check that every record they find is
+// whole: its ID and name belong together. At the end the repository must
+// hold what each writer last wrote, as must the listener's copy.
+//
+// Sync: the same writers run against a repository bound to a model, while
+// the event dispatch thread edits the model, some of it the same IDs. Once
+// everything has been delivered the two must hold the same students. Exits
+// with status 1 on the first mismatch.
+public final class StudentRepositoryCheck {
+    private static final String[] MAJORS = {"Physics", "Biology", "Law", "Art History"};
+    private static final int RANGE = 1000;
+
+    // Applies each change it is told of to its own map; the repository calls it one batch at a time
+    private static final class Mirror implements StudentRepository.Listener {
+        final Map<Integer, String> students = new HashMap<>();
+        int changes;
+
+        @Override
+        public void changed(List<StudentRepository.Change> batch) {
+            for (StudentRepository.Change change : batch) {
+                changes++;
+                switch (change.getKind()) {
+                    case PUT: students.put(change.getId(), student(change.getRecord())); break;
+                    case REMOVE: students.remove(change.getId()); break;
+                    default: students.clear(); break;
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        sequential(new SplittableRandom(seed), operations);
+        concurrent(seed, operations, threads);
+        sync(seed, operations, threads);
+    }
+
+    private static void sequential(SplittableRandom random, int operations) {
+        StudentRepository repository = new StudentRepository();
+        Mirror mirror = new Mirror();
+        repository.addListener(mirror);
+        Map<Integer, String> students = new HashMap<>();
+        int effective = 0;
+        for (int op = 0; op < operations; op++) {
+            int id = random.nextInt(300) - 20;
+            int kind = random.nextInt(100);
+            int expected;
+            int before = mirror.changes;
+            if (kind < 50) {
+                String[] fields = fields(random, id, op);
+                expected = apply(students, put(id, fields)) ? 1 : 0;
+                repository.put(id, fields[0], Integer.parseInt(fields[1]), fields[2]);
+            } else if (kind < 75) {
+                expected = apply(students, StudentRepository.Change.remove(id)) ? 1 : 0;
+                if (repository.remove(id) != (expected == 1)) fail("remove(" + id + ") disagrees");
+            } else if (kind < 76) {
+                expected = apply(students, StudentRepository.Change.clear()) ? 1 : 0;
+                repository.clear();
+            } else {
+                List<StudentRepository.Change> batch = new ArrayList<>();
+                expected = 0;
+                for (int i = random.nextInt(20); i >= 0; i--) {
+                    int other = random.nextInt(300) - 20;
+                    StudentRepository.Change change = random.nextInt(4) == 0 ? StudentRepository.Change.remove(other)
+                            : random.nextInt(100) == 0 ? StudentRepository.Change.clear()
+                            : put(other, fields(random, other, op));
+                    batch.add(change);
+                    if (apply(students, change)) expected++;
+                }
+                if (repository.apply(batch) != expected) fail("apply() of change " + op + " disagrees");
+            }
+            // The listener hears of exactly the changes that took effect
+            int actual = mirror.changes - before;
+            if (actual != expected) fail("change " + op + " took effect " + actual + " times, expected " + expected);
+            effective += expected;
+            if (repository.size() != students.size()) {
+                fail("size " + repository.size() + ", expected " + students.size());
+            }
+            for (int other = -20; other < 280; other++) {
+                StudentRepository.Record record = repository.get(other);
+                if (!String.valueOf(students.get(other)).equals(record == null ? "null" : student(record))) {
+                    fail("get(" + other + ") is " + record + ", expected " + students.get(other));
+                }
+                if (repository.contains(other) != (record != null)) fail("contains(" + other + ")");
+            }
+        }
+        Map<Integer, String> all = new HashMap<>();
+        for (StudentRepository.Record record : repository.getAll()) all.put(record.getId(), student(record));
+        if (!all.equals(students)) fail("getAll() differs from the reference");
+        if (!mirror.students.equals(students)) fail("the listener's copy differs from the reference");
+        System.out.printf("repository: %,d operations (%,d changes took effect) agree with the reference%n",
+                operations, effective);
+    }
+
+    // Applies the change to the map; false if it changed nothing, as the repository reports it
+    private static boolean apply(Map<Integer, String> students, StudentRepository.Change change) {
+        switch (change.getKind()) {
+            case PUT:
+                String student = student(change.getRecord());
+                return !student.equals(students.put(change.getId(), student));
+            case REMOVE: return students.remove(change.getId()) != null;
+            default:
+                boolean any = !students.isEmpty();
+                students.clear();
+                return any;
+        }
+    }
+
+    private static void concurrent(long seed, int operations, int threads) throws InterruptedException {
+        StudentRepository repository = new StudentRepository();
+        Mirror mirror = new Mirror();
+        repository.addListener(mirror);
+        List<Map<Integer, String>> written = write(repository, seed, operations, threads);
+        Map<Integer, String> expected = new HashMap<>();
+        for (Map<Integer, String> own : written) expected.putAll(own);
+        Map<Integer, String> all = new HashMap<>();
+        for (StudentRepository.Record record : repository.getAll()) all.put(record.getId(), student(record));
+        if (!all.equals(expected)) fail("after concurrent writes the repository differs from what was written");
+        if (!mirror.students.equals(expected)) fail("after concurrent writes the listener's copy differs");
+        System.out.printf("repository: %d writers and %d readers, %,d changes, end as written%n",
+                threads, threads, operations);
+    }
+
+    private static void sync(long seed, int operations, int threads)
+            throws InterruptedException, InvocationTargetException {
+        StudentRepository repository = new StudentRepository();
+        StudentTableModel model = new StudentTableModel();
+        SwingUtilities.invokeAndWait(() -> {
+            model.upsert(5, "S5-0", 20, "Law");
+            StudentRepositorySync.bind(repository, model);
+        });
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread editor = new Thread(() -> {
+            SplittableRandom random = new SplittableRandom(seed ^ 0x5EED);
+            try {
+                for (int op = 0; writing.get(); op++) {
+                    int id = random.nextInt(threads * RANGE);
+                    String[] fields = fields(random, id, op);
+                    boolean removal = random.nextInt(4) == 0;
+                    SwingUtilities.invokeAndWait(() -> {
+                        if (removal) {
+                            model.removeId(id);
+                        } else {
+                            model.upsert(id, fields[0], Integer.parseInt(fields[1]), fields[2]);
+                        }
+                    });
+                }
+            } catch (InterruptedException | InvocationTargetException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        editor.start();
+        write(repository, seed, operations, threads);
+        writing.set(false);
+        editor.join();
+        // Each round lets queued deliveries run, the way a busy window would
+        AtomicReference<String> difference = new AtomicReference<>();
+        for (int round = 0; round < 1000; round++) {
+            SwingUtilities.invokeAndWait(() -> difference.set(difference(repository, model)));
+            if (difference.get() == null) {
+                System.out.printf("sync: model and repository agree after %,d concurrent changes and %d rounds%n",
+                        operations, round + 1);
+                return;
+            }
+        }
+        fail("model and repository never agree: " + difference.get());
+    }
+
+    // Writers on their own ID ranges and as many readers, until the writers are done;
+    // returns what each writer last wrote
+    private static List<Map<Integer, String>> write(StudentRepository repository, long seed, int operations,
+                                                    int threads) throws InterruptedException {
+        List<Map<Integer, String>> written = new ArrayList<>();
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch writersDone = new CountDownLatch(threads);
+        List<Thread> all = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Map<Integer, String> own = new HashMap<>();
+            written.add(own);
+            int base = t * RANGE;
+            SplittableRandom random = new SplittableRandom(seed + t);
+            SplittableRandom reads = new SplittableRandom(seed - t);
+            all.add(new Thread(() -> {
+                try {
+                    for (int op = 0; op < operations / threads && failure.get() == null; op++) {
+                        int id = base + random.nextInt(RANGE);
+                        if (random.nextInt(4) == 0) {
+                            repository.remove(id);
+                            own.remove(id);
+                        } else if (random.nextInt(10) == 0) {
+                            List<StudentRepository.Change> batch = new ArrayList<>();
+                            for (int i = 0; i < 10; i++) {
+                                int other = base + random.nextInt(RANGE);
+                                StudentRepository.Change change = put(other, fields(random, other, op));
+                                batch.add(change);
+                                own.put(other, student(change.getRecord()));
+                            }
+                            repository.apply(batch);
+                        } else {
+                            String[] fields = fields(random, id, op);
+                            repository.put(id, fields[0], Integer.parseInt(fields[1]), fields[2]);
+                            own.put(id, student(put(id, fields).getRecord()));
+                        }
+                        StudentRepository.Record record = repository.get(id);
+                        String expected = own.get(id);
+                        if (!String.valueOf(expected).equals(record == null ? "null" : student(record))) {
+                            failure.compareAndSet(null, "writer read " + record + " after writing " + expected);
+                        }
+                    }
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+            all.add(new Thread(() -> {
+                while (writersDone.getCount() > 0 && failure.get() == null) {
+                    int id = reads.nextInt(threads * RANGE);
+                    StudentRepository.Record record = repository.get(id);
+                    if (record != null && (record.getId() != id || !record.getName().startsWith("S" + id + "-"))) {
+                        failure.compareAndSet(null, "get(" + id + ") returned " + record);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : all) thread.start();
+        for (Thread thread : all) thread.join();
+        if (failure.get() != null) fail(failure.get());
+        return written;
+    }
+
+    // A name that names its ID, so a reader can tell a record that was torn or misfiled
+    private static String[] fields(SplittableRandom random, int id, int op) {
+        return new String[]{"S" + id + "-" + op % 7, String.valueOf(random.nextInt(StudentTableModel.MAX_AGE + 1)),
+                MAJORS[random.nextInt(MAJORS.length)]};
+    }
+
+    private static StudentRepository.Change put(int id, String[] fields) {
+        return StudentRepository.Change.put(id, fields[0], Integer.parseInt(fields[1]), fields[2]);
+    }
+
+    private static String student(StudentRepository.Record record) {
+        return record.getId() + " / " + record.getName() + " / " + record.getAge() + " / " + record.getMajor();
+    }
+
+    // The first student the two disagree on, or null
+    private static String difference(StudentRepository repository, StudentTableModel model) {
+        if (repository.size() != model.getRowCount()) {
+            return repository.size() + " students against " + model.getRowCount() + " rows";
+        }
+        for (int row = 0; row < model.getRowCount(); row++) {
+            StudentRepository.Record record = repository.get(model.getId(row));
+            if (record == null || record.getAge() != model.getAge(row) || !record.getName().equals(model.getName(row))
+                    || !record.getMajor().equals(model.getMajor(row))) {
+                return "ID " + model.getId(row) + " is " + record + " against row " + model.getName(row);
+            }
+        }
+        return null;
+    }
+
+    private static void fail(String message) {
+        System.out.println("repository: FAILED, " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,167 @@
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keeps a StudentTableModel and a StudentRepository holding the same
+// students, so the window shows what services write to the repository and
+// services see what the user edits.
+//
+// Repository batches arrive on the writing thread and are queued for the
+// event dispatch thread, which applies up to CHUNK changes per event, runs
+// of puts through one upsertAll() with only each ID's last put. Changes the
+// model makes meanwhile, by an edit, an import or the store loading, are
+// collected per event and handed to the repository as one batch. Changes
+// coming from the repository are not sent back, and a put the repository
+// reports that the model already holds, usually the model's own change
+// returning, is skipped so the store does not log it twice. Whatever the
+// order of concurrent writes, both sides end with the repository's value.
+public final class StudentRepositorySync implements StudentRepository.Listener, StudentTableModel.RecordListener {
+    static final int CHUNK = StudentImport.CHUNK_ROWS;
+
+    private final StudentRepository repository;
+    private final StudentTableModel model;
+    private final ConcurrentLinkedQueue<List<StudentRepository.Change>> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // Event dispatch thread only
+    private List<StudentRepository.Change> current;
+    private int position;
+    private List<StudentRepository.Change> outgoing = new ArrayList<>();
+    private boolean applying;
+
+    private StudentRepositorySync(StudentRepository repository, StudentTableModel model) {
+        this.repository = repository;
+        this.model = model;
+    }
+
+    // Replaces the repository's students with the model's, then keeps the two in step; call on
+    // the event dispatch thread
+    public static StudentRepositorySync bind(StudentRepository repository, StudentTableModel model) {
+        StudentRepositorySync sync = new StudentRepositorySync(repository, model);
+        List<StudentRepository.Change> all = new ArrayList<>(model.getRowCount() + 1);
+        all.add(StudentRepository.Change.clear());
+        for (int row = 0; row < model.getRowCount(); row++) {
+            all.add(StudentRepository.Change.put(model.getId(row), model.getName(row), model.getAge(row),
+                    model.getMajor(row)));
+        }
+        repository.apply(all);
+        repository.addListener(sync);
+        model.addRecordListener(sync);
+        return sync;
+    }
+
+    // Stops mirroring; changes already queued are dropped
+    public void unbind() {
+        repository.removeListener(this);
+        model.removeRecordListener(this);
+        incoming.clear();
+    }
+
+    // Repository side, on the writing thread
+    @Override
+    public void changed(List<StudentRepository.Change> changes) {
+        incoming.add(changes);
+        if (scheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(this::applyIncoming);
+    }
+
+    private void applyIncoming() {
+        scheduled.set(false);
+        applying = true;
+        try {
+            int budget = CHUNK;
+            while (budget > 0) {
+                if (current == null || position == current.size()) {
+                    current = incoming.poll();
+                    position = 0;
+                    if (current == null) return;
+                }
+                budget -= applyRun(budget);
+            }
+        } finally {
+            applying = false;
+        }
+        // More than one event's worth queued: let other events through first
+        if (scheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(this::applyIncoming);
+    }
+
+    // Applies a removal or clear, or up to limit puts in a row; returns how many changes it consumed
+    private int applyRun(int limit) {
+        StudentRepository.Change first = current.get(position);
+        if (first.getKind() == StudentRepository.Change.Kind.REMOVE) {
+            model.removeId(first.getId());
+            position++;
+            return 1;
+        }
+        if (first.getKind() == StudentRepository.Change.Kind.CLEAR) {
+            model.clear();
+            position++;
+            return 1;
+        }
+        int end = position;
+        while (end < current.size() && end - position < limit
+                && current.get(end).getKind() == StudentRepository.Change.Kind.PUT) {
+            end++;
+        }
+        int[] ids = new int[end - position];
+        String[] names = new String[ids.length];
+        int[] ages = new int[ids.length];
+        String[] majors = new String[ids.length];
+        // Only an ID's last put counts; the model is compared with that, not with one it replaces
+        boolean[] superseded = new boolean[ids.length];
+        Set<Integer> seen = new HashSet<>();
+        for (int i = end - 1; i >= position; i--) superseded[i - position] = !seen.add(current.get(i).getId());
+        int count = 0;
+        for (int i = position; i < end; i++) {
+            StudentRepository.Record record = current.get(i).getRecord();
+            if (superseded[i - position] || holds(record)) continue;
+            ids[count] = record.getId();
+            names[count] = record.getName();
+            ages[count] = record.getAge();
+            majors[count] = record.getMajor();
+            count++;
+        }
+        if (count > 0) model.upsertAll(ids, names, ages, majors, count);
+        int consumed = end - position;
+        position = end;
+        return consumed;
+    }
+
+    private boolean holds(StudentRepository.Record record) {
+        int row = model.findRow(record.getId());
+        return row >= 0 && model.getAge(row) == record.getAge() && model.getMajor(row).equals(record.getMajor())
+                && model.getName(row).equals(record.getName());
+    }
+
+    // Model side, on the event dispatch thread
+    @Override
+    public void recordPut(int id, String name, int age, String major) {
+        if (!applying) send(StudentRepository.Change.put(id, name, age, major));
+    }
+
+    @Override
+    public void recordRemoved(int id) {
+        if (!applying) send(StudentRepository.Change.remove(id));
+    }
+
+    @Override
+    public void recordsCleared() {
+        if (applying) return;
+        // Nothing queued before a clear can matter to the repository
+        outgoing.clear();
+        send(StudentRepository.Change.clear());
+    }
+
+    private void send(StudentRepository.Change change) {
+        if (outgoing.isEmpty()) SwingUtilities.invokeLater(this::flush);
+        outgoing.add(change);
+    }
+
+    private void flush() {
+        List<StudentRepository.Change> changes = outgoing;
+        outgoing = new ArrayList<>();
+        repository.apply(changes);
+    }
+}
@@ -0,0 +1,302 @@
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Sorts a StudentTableModel on one column straight from its primitive
+// columns. TableRowSorter would box every cell of the column through
+// getValueAt() and compare the boxes; here each row becomes one long,
+// sort key in the high bits and row number in the low bits, and a single
+// Arrays.sort(long[]) orders them. Names sort on a five-byte case-folded
+// prefix first, and only rows sharing a prefix are compared in full.
+//
+// Clicking a header sorts ascending, then toggles. A filter, set by student
+// ID so that it survives rows moving, limits the view to the matching rows.
+// Rows appended to an unfiltered model are merged into the sorted view; any
+// other model change resorts.
+public class StudentRowSorter extends RowSorter<StudentTableModel> {
+    private final StudentTableModel model;
+    private List<SortKey> sortKeys = Collections.emptyList();
+    // View row to model row, null while unsorted; modelToView is built on demand
+    private int[] viewToModel;
+    private int[] modelToView;
+    // IDs of the students to show, null to show all
+    private int[] filter;
+
+    public StudentRowSorter(StudentTableModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public StudentTableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        SortOrder order = SortOrder.ASCENDING;
+        if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column
+                && sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+            order = SortOrder.DESCENDING;
+        }
+        setSortKeys(Collections.singletonList(new SortKey(column, order)));
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        return viewToModel == null ? index : viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (viewToModel == null) return index;
+        if (modelToView == null) {
+            // Rows the filter hides have no view index
+            modelToView = new int[model.getRowCount()];
+            Arrays.fill(modelToView, -1);
+            for (int view = 0; view < viewToModel.length; view++) modelToView[viewToModel[view]] = view;
+        }
+        return index < 0 || index >= modelToView.length ? -1 : modelToView[index];
+    }
+
+    // Only the first key is used
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> next = keys == null || keys.isEmpty() || keys.get(0).getSortOrder() == SortOrder.UNSORTED
+                ? Collections.<SortKey>emptyList() : Collections.<SortKey>singletonList(keys.get(0));
+        if (next.equals(sortKeys)) return;
+        sortKeys = next;
+        fireSortOrderChanged();
+        resort();
+    }
+
+    // Shows only the students with these IDs, or everyone for null; unknown IDs are skipped
+    public void setFilter(int[] ids) {
+        if (ids == null && filter == null) return;
+        filter = ids;
+        resort();
+    }
+
+    public boolean isFiltered() {
+        return filter != null;
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? model.getRowCount() : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        if (!sortKeys.isEmpty() || filter != null) resort();
+    }
+
+    // Appended rows, as a bulk import adds them, are sorted on their own and merged into the
+    // view, so each batch costs its own sort plus one pass rather than a sort of every row
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if (filter != null || sortKeys.isEmpty() || viewToModel == null
+                || viewToModel.length != firstRow || endRow != model.getRowCount() - 1) {
+            allRowsChanged();
+            return;
+        }
+        SortKey key = sortKeys.get(0);
+        boolean ascending = key.getSortOrder() == SortOrder.ASCENDING;
+        int[] added = new int[endRow - firstRow + 1];
+        for (int i = 0; i < added.length; i++) added[i] = firstRow + i;
+        sortedRows(model, added, key.getColumn(), ascending);
+        int[] previous = viewToModel;
+        viewToModel = merge(previous, added, rowOrder(model, key.getColumn(), ascending));
+        modelToView = null;
+        fireRowSorterChanged(previous);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        allRowsChanged();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        allRowsChanged();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        if (filter != null || !sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column) resort();
+    }
+
+    private void resort() {
+        int[] previous = viewToModel;
+        int[] rows = filter == null ? null : filteredRows();
+        if (sortKeys.isEmpty()) {
+            viewToModel = rows;
+        } else {
+            SortKey key = sortKeys.get(0);
+            if (rows == null) rows = identity(model.getRowCount());
+            viewToModel = sortedRows(model, rows, key.getColumn(), key.getSortOrder() == SortOrder.ASCENDING);
+        }
+        modelToView = null;
+        fireRowSorterChanged(previous);
+    }
+
+    // Model rows of the filter's students, in model order
+    private int[] filteredRows() {
+        int[] rows = new int[filter.length];
+        int count = 0;
+        for (int id : filter) {
+            int row = model.findRow(id);
+            if (row >= 0) rows[count++] = row;
+        }
+        rows = Arrays.copyOf(rows, count);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    // Model rows in the order of the column's values
+    public static int[] sortedRows(StudentTableModel model, int column, boolean ascending) {
+        return sortedRows(model, identity(model.getRowCount()), column, ascending);
+    }
+
+    // The given model rows, reordered in place by the column's values
+    public static int[] sortedRows(StudentTableModel model, int[] rows, int column, boolean ascending) {
+        int n = rows.length;
+        if (column != StudentTableModel.NAME) {
+            byIntKey(model, rows, column);
+        } else if (model.getRowCount() <= 1 << 24) {
+            byName(model, rows);
+        } else {
+            // Too many rows to pack beside the prefix
+            byComparator(model, rows, 0, n);
+        }
+        if (!ascending) {
+            for (int i = 0, j = n - 1; i < j; i++, j--) {
+                int swap = rows[i];
+                rows[i] = rows[j];
+                rows[j] = swap;
+            }
+        }
+        return rows;
+    }
+
+    private interface RowOrder {
+        int compare(int a, int b);
+    }
+
+    // The order sortedRows() produces, ties broken by row number
+    private static RowOrder rowOrder(StudentTableModel model, int column, boolean ascending) {
+        int[] rank = column == StudentTableModel.MAJOR ? majorRanks(model) : null;
+        RowOrder byKey;
+        switch (column) {
+            case StudentTableModel.ID: byKey = (a, b) -> Integer.compare(model.getId(a), model.getId(b)); break;
+            case StudentTableModel.AGE: byKey = (a, b) -> Integer.compare(model.getAge(a), model.getAge(b)); break;
+            case StudentTableModel.NAME: byKey = model::compareNames; break;
+            default: byKey = (a, b) -> Integer.compare(rank[model.getMajorCode(a)], rank[model.getMajorCode(b)]); break;
+        }
+        return (a, b) -> {
+            int c = byKey.compare(a, b);
+            if (c == 0) c = Integer.compare(a, b);
+            return ascending ? c : -c;
+        };
+    }
+
+    // Binary searches each right row's place in left and copies the runs between them, so a
+    // small batch costs a few comparisons per row plus one array copy
+    private static int[] merge(int[] left, int[] right, RowOrder order) {
+        int[] merged = new int[left.length + right.length];
+        int from = 0;
+        int k = 0;
+        for (int row : right) {
+            int lo = from;
+            int hi = left.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (order.compare(left[mid], row) < 0) lo = mid + 1; else hi = mid;
+            }
+            System.arraycopy(left, from, merged, k, lo - from);
+            k += lo - from;
+            merged[k++] = row;
+            from = lo;
+        }
+        System.arraycopy(left, from, merged, k, left.length - from);
+        return merged;
+    }
+
+    private static void byIntKey(StudentTableModel model, int[] rows, int column) {
+        int n = rows.length;
+        int[] rank = column == StudentTableModel.MAJOR ? majorRanks(model) : null;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            int row = rows[i];
+            int key;
+            switch (column) {
+                case StudentTableModel.ID: key = model.getId(row); break;
+                case StudentTableModel.AGE: key = model.getAge(row); break;
+                default: key = rank[model.getMajorCode(row)]; break;
+            }
+            // Signed key in the high half keeps its order; the row breaks ties, so the sort is stable
+            packed[i] = (long) key << 32 | row;
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < n; i++) rows[i] = (int) packed[i];
+    }
+
+    private static void byName(StudentTableModel model, int[] rows) {
+        int n = rows.length;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            // Flipping the sign bit makes the signed sort order the unsigned prefixes
+            packed[i] = (model.namePrefix(rows[i]) << 24 | rows[i]) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < n; i++) rows[i] = (int) (packed[i] & 0xffffff);
+        // Runs that share a prefix still need the rest of their names compared
+        int start = 0;
+        for (int i = 1; i <= n; i++) {
+            if (i == n || (packed[i] >>> 24) != (packed[start] >>> 24)) {
+                if (i - start > 1) byComparator(model, rows, start, i);
+                start = i;
+            }
+        }
+    }
+
+    private static void byComparator(StudentTableModel model, int[] rows, int from, int to) {
+        Integer[] boxed = new Integer[to - from];
+        for (int i = from; i < to; i++) boxed[i - from] = rows[i];
+        Arrays.sort(boxed, (a, b) -> model.compareNames(a, b));
+        for (int i = from; i < to; i++) rows[i] = boxed[i - from];
+    }
+
+    // Rank of each major code in alphabetical order of the major names
+    private static int[] majorRanks(StudentTableModel model) {
+        Integer[] codes = new Integer[model.getMajorCount()];
+        for (int i = 0; i < codes.length; i++) codes[i] = i;
+        Arrays.sort(codes, Comparator.comparing(model::getMajorName, String.CASE_INSENSITIVE_ORDER));
+        int[] rank = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) rank[codes[i]] = i;
+        return rank;
+    }
+
+    private static int[] identity(int n) {
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) rows[i] = i;
+        return rows;
+    }
+}
@@ -0,0 +1,136 @@
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Search box behaviour for Student. The StudentSearchIndex lives on one
+// background thread: the model's record changes are queued to it, batched
+// per event, and queries run there too, after every change made before
+// them, so the index needs no locks and the event dispatch thread never
+// scans.
+//
+// Typing restarts a short debounce timer; when it fires the query is sent
+// with a generation number, and its result is published to the row sorter
+// only if no newer query was started meanwhile. Changes to the records
+// while a query is shown run it again, so new matches appear.
+public final class StudentSearch implements StudentTableModel.RecordListener {
+    static final int DEBOUNCE_MS = 150;
+
+    private final StudentRowSorter sorter;
+    private final Consumer<String> status;
+    private final StudentSearchIndex index = new StudentSearchIndex();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "student-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timer debounce;
+    // Event dispatch thread only
+    private String query = "";
+    private long generation;
+    private final List<Runnable> changes = new ArrayList<>();
+
+    // status receives a one-line summary of each search, or "" when the filter is cleared
+    public StudentSearch(StudentTableModel model, StudentRowSorter sorter, Consumer<String> status) {
+        this.sorter = sorter;
+        this.status = status;
+        this.debounce = new Timer(DEBOUNCE_MS, e -> run());
+        this.debounce.setRepeats(false);
+        int rows = model.getRowCount();
+        if (rows > 0) {
+            int[] ids = new int[rows];
+            String[] names = new String[rows];
+            String[] majors = new String[rows];
+            for (int row = 0; row < rows; row++) {
+                ids[row] = model.getId(row);
+                names[row] = model.getName(row);
+                majors[row] = model.getMajor(row);
+            }
+            worker.execute(() -> {
+                for (int i = 0; i < ids.length; i++) index.put(ids[i], names[i], majors[i]);
+            });
+        }
+        model.addRecordListener(this);
+    }
+
+    // Searches as the user types in the field
+    public void attach(JTextField field) {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                setQuery(field.getText());
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                setQuery(field.getText());
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                setQuery(field.getText());
+            }
+        });
+    }
+
+    public void setQuery(String text) {
+        query = text.trim();
+        debounce.restart();
+    }
+
+    private void run() {
+        long current = ++generation;
+        String text = query;
+        submitChanges();
+        if (text.isEmpty()) {
+            sorter.setFilter(null);
+            status.accept("");
+            return;
+        }
+        worker.execute(() -> {
+            long start = System.nanoTime();
+            int[] ids = index.search(text);
+            long micros = (System.nanoTime() - start) / 1000;
+            SwingUtilities.invokeLater(() -> {
+                if (current != generation) return; // a newer query is on its way
+                sorter.setFilter(ids);
+                status.accept(ids.length + (ids.length == 1 ? " match" : " matches")
+                        + String.format(" in %.1f ms", micros / 1000.0));
+            });
+        });
+    }
+
+    @Override
+    public void recordPut(int id, String name, int age, String major) {
+        update(() -> index.put(id, name, major));
+    }
+
+    @Override
+    public void recordRemoved(int id) {
+        update(() -> index.remove(id));
+    }
+
+    @Override
+    public void recordsCleared() {
+        update(index::clear);
+    }
+
+    // Changes made while handling one event reach the search thread as one task
+    private void update(Runnable change) {
+        if (changes.isEmpty()) SwingUtilities.invokeLater(this::submitChanges);
+        changes.add(change);
+        if (!query.isEmpty()) debounce.restart();
+    }
+
+    private void submitChanges() {
+        if (changes.isEmpty()) return;
+        Runnable[] batch = changes.toArray(new Runnable[0]);
+        changes.clear();
+        worker.execute(() -> {
+            for (Runnable change : batch) change.run();
+        });
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+// Checks StudentSearchIndex against brute-force matching, with no GUI.
+//
+//   java StudentSearchCheck [operations] [seed]
+//
+// Random puts, renames and removals over a few hundred IDs, with names and
+// majors drawn from a small alphabet so that a query's trigrams often occur
+// in a record apart from each other. After every change a random query,
+// from one to three terms cut out of existing records or made up, must find
+// exactly the IDs that scanning every record finds: for a term of three or
+// more characters the records containing it, for a shorter one the records
+// with a word starting with it. Exits with status 1 on the first mismatch.
+public final class StudentSearchCheck {
+    private static final String[] SYLLABLES = {"an", "na", "ann", "nna", "han", "jo", "o", "ma", "ar", "ri", " "};
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        StudentSearchIndex index = new StudentSearchIndex();
+        Map<Integer, String> texts = new TreeMap<>();
+        int queries = 0;
+        int hits = 0;
+        for (int op = 0; op < operations; op++) {
+            int id = random.nextInt(300);
+            if (random.nextInt(10) == 0) {
+                index.remove(id);
+                texts.remove(id);
+            } else if (random.nextInt(50) == 0) {
+                index.clear();
+                texts.clear();
+            } else {
+                String name = words(random);
+                String major = words(random);
+                index.put(id, name, major);
+                texts.put(id, (name + '\n' + major).toLowerCase(Locale.ROOT));
+            }
+            if (index.size() != texts.size()) fail("size " + index.size() + ", expected " + texts.size());
+
+            String query = query(random, texts);
+            int[] expected = bruteForce(query, texts);
+            int[] found = index.search(query);
+            if (!Arrays.equals(expected, found)) {
+                fail("\"" + query + "\" found " + Arrays.toString(found) + ", expected " + Arrays.toString(expected));
+            }
+            queries++;
+            if (expected.length > 0) hits++;
+        }
+        System.out.printf("search: %,d changes, %,d queries (%,d with matches) agree with brute force%n",
+                operations, queries, hits);
+    }
+
+    private static String words(SplittableRandom random) {
+        StringBuilder text = new StringBuilder();
+        int parts = 1 + random.nextInt(6);
+        for (int i = 0; i < parts; i++) text.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        String word = text.toString().trim();
+        return word.isEmpty() ? "x" : Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    // One to three terms, each a piece of a stored text or of a made-up word
+    private static String query(SplittableRandom random, Map<Integer, String> texts) {
+        List<String> all = new ArrayList<>(texts.values());
+        List<String> terms = new ArrayList<>();
+        int count = 1 + random.nextInt(3);
+        while (terms.size() < count) {
+            String source = all.isEmpty() || random.nextInt(3) == 0 ? words(random).toLowerCase(Locale.ROOT)
+                    : all.get(random.nextInt(all.size()));
+            for (String word : source.split("\\s+")) {
+                if (word.isEmpty()) continue;
+                int from = random.nextInt(word.length());
+                int to = from + 1 + random.nextInt(Math.min(6, word.length() - from));
+                terms.add(random.nextBoolean() ? word.substring(from, to) : word.substring(from, to).toUpperCase(Locale.ROOT));
+                break;
+            }
+        }
+        return String.join(" ", terms);
+    }
+
+    private static int[] bruteForce(String query, Map<Integer, String> texts) {
+        String[] terms = query.toLowerCase(Locale.ROOT).trim().split("\\s+");
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : texts.entrySet()) {
+            boolean all = true;
+            for (String term : terms) all &= matches(entry.getValue(), term);
+            if (all) ids.add(entry.getKey());
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean matches(String text, String term) {
+        if (term.length() >= 3) return text.contains(term);
+        for (int i = 0; i + term.length() <= text.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+            if (wordStart && text.startsWith(term, i)) return true;
+        }
+        return false;
+    }
+
+    private static void fail(String message) {
+        System.out.println("search: FAILED, " + message);
+        System.exit(1);
+    }
+}
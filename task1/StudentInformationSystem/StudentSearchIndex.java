@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Search index over the name and major of every student, keyed by student
+// ID so that rows moving in the model never touch it. Each record's
+// lower-cased text is cut into trigrams, plus the one- and two-letter
+// prefixes of each of its words, and the ID is added to the posting list of
+// every distinct gram. put() and remove() update only the grams of that
+// record, so the index follows edits without ever being rebuilt.
+//
+// A query is split into terms, all of which must match: a term of three or
+// more characters matches a record it occurs in; a shorter term matches only
+// at the start of a word ("jo" finds John, not Major). The posting lists of
+// all the query's grams are intersected, shortest first, by galloping
+// through the sorted lists, so a query costs time in proportion to its
+// rarest gram rather than to the number of students. Holding every trigram
+// of a term of four or more characters does not mean holding the term
+// ("anna" in "Hanne Nnamdi" has ann and nna apart), so for such terms the
+// few records left are checked against their indexed text.
+//
+// Not thread-safe: StudentSearch confines it to its search thread.
+final class StudentSearchIndex {
+    private final Map<Long, Postings> postings = new HashMap<>();
+    // Indexed text per ID, to find the grams to drop when a record changes
+    private final Map<Integer, String> texts = new HashMap<>();
+
+    int size() {
+        return texts.size();
+    }
+
+    // Indexes the student, replacing what was indexed under the same ID
+    void put(int id, String name, String major) {
+        String text = (name + '\n' + major).toLowerCase(Locale.ROOT);
+        String old = texts.put(id, text);
+        if (text.equals(old)) return;
+        if (old != null) unindex(id, old);
+        for (long gram : grams(text)) postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+    }
+
+    void remove(int id) {
+        String old = texts.remove(id);
+        if (old != null) unindex(id, old);
+    }
+
+    // Drops the ID from the postings of every gram of its old text, and lists left empty
+    private void unindex(int id, String old) {
+        for (long gram : grams(old)) {
+            Postings list = postings.get(gram);
+            list.remove(id);
+            if (list.size == 0) postings.remove(gram);
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        texts.clear();
+    }
+
+    // IDs of the students matching every term of the query, in ascending order
+    int[] search(String query) {
+        String[] terms = query.toLowerCase(Locale.ROOT).trim().split("\\s+");
+        List<Postings> lists = new ArrayList<>();
+        for (String term : terms) {
+            if (term.length() < 3) {
+                lists.add(postings.get(prefix(term)));
+            } else {
+                for (int i = 0; i + 3 <= term.length(); i++) lists.add(postings.get(trigram(term, i)));
+            }
+        }
+        if (lists.contains(null)) return new int[0];
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        Postings smallest = lists.get(0);
+        smallest.sort();
+        int[] found = Arrays.copyOf(smallest.ids, smallest.size);
+        int count = found.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) count = lists.get(l).retain(found, count);
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (containsLongTerms(texts.get(found[i]), terms)) found[kept++] = found[i];
+        }
+        return Arrays.copyOf(found, kept);
+    }
+
+    // False if a term the trigrams cannot vouch for is missing from the text
+    private static boolean containsLongTerms(String text, String[] terms) {
+        for (String term : terms) {
+            if (term.length() > 3 && !text.contains(term)) return false;
+        }
+        return true;
+    }
+
+    // Distinct grams of the text, sorted
+    private static long[] grams(String text) {
+        long[] grams = new long[3 * text.length()];
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (i + 3 <= text.length()) grams[count++] = trigram(text, i);
+            if (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1))) {
+                grams[count++] = prefix(text.substring(i, i + 1));
+                if (i + 2 <= text.length()) grams[count++] = prefix(text.substring(i, i + 2));
+            }
+        }
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[i] != grams[distinct - 1]) grams[distinct++] = grams[i];
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    // Grams are up to three UTF-16 chars in the low 48 bits, tagged with their length above
+    private static long trigram(String text, int at) {
+        return 3L << 48 | (long) text.charAt(at) << 32 | (long) text.charAt(at + 1) << 16 | text.charAt(at + 2);
+    }
+
+    private static long prefix(String term) {
+        long key = 0;
+        for (int i = 0; i < term.length(); i++) key = key << 16 | term.charAt(i);
+        return (long) term.length() << 48 | key;
+    }
+
+    // IDs appended unordered and sorted when a query first needs them in order
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+        boolean sorted = true;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            if (size > 0 && ids[size - 1] > id) sorted = false;
+            ids[size++] = id;
+        }
+
+        void remove(int id) {
+            if (sorted) {
+                int at = Arrays.binarySearch(ids, 0, size, id);
+                if (at < 0) return;
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                size--;
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return;
+                }
+            }
+        }
+
+        void sort() {
+            if (sorted) return;
+            Arrays.sort(ids, 0, size);
+            sorted = true;
+        }
+
+        // Keeps in candidates[0, count), ascending, only the IDs also in this list; returns the new count
+        int retain(int[] candidates, int count) {
+            sort();
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count && from < size; i++) {
+                // Gallop forward: the candidates are ascending, so the search never moves back
+                int step = 1;
+                int hi = from;
+                while (hi < size && ids[hi] < candidates[i]) {
+                    from = hi + 1;
+                    hi += step;
+                    step <<= 1;
+                }
+                int at = Arrays.binarySearch(ids, from, Math.min(hi + 1, size), candidates[i]);
+                if (at >= 0) {
+                    candidates[kept++] = candidates[i];
+                    from = at + 1;
+                } else {
+                    from = -at - 1;
+                }
+            }
+            return kept;
+        }
+    }
+}
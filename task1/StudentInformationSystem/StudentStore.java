@@ -0,0 +1,398 @@
+import javax.swing.SwingUtilities;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Keeps a StudentTableModel on disk as a snapshot plus an append-only log.
+// Every change the model reports is appended to the log as one record, so
+// nothing is ever rewritten in place; when the log outgrows the snapshot,
+// the model's columns are copied and written as a new snapshot on a
+// background thread, and the logs it covers are deleted.
+//
+//   students.snapshot   int magic, int version, long generation, int rows,
+//                       int majors, majors as (int length, UTF-8 bytes),
+//                       int[rows] ids, ages, major codes, name lengths,
+//                       int name bytes, names as UTF-8, int CRC32 of all before
+//   students-<g>.log    int magic, int version, long generation g, then records:
+//                       int length, int CRC32, byte op, int id,
+//                       for PUT also int age, name and major as above
+//
+// The snapshot is the model's own column layout, so loading maps the file
+// and copies each column out in bulk, with no parsing per student; only the
+// logs from the snapshot's generation on are replayed. Compaction starts a
+// new log generation before writing the snapshot, so a crash at any point
+// leaves a snapshot and the logs that bring it up to date. A record cut off
+// by a crash fails its length or checksum and is dropped with the rest of
+// that log.
+//
+// Records are gathered while the event dispatch thread handles one event,
+// so a bulk import writes its whole batch at once, and reach the OS as soon
+// as the event is done; they reach the disk on close() or compaction. A
+// crash of the application loses at most the event in progress, a power cut
+// the last few changes. Confined to the event dispatch thread, like the
+// model it listens to.
+public final class StudentStore implements StudentTableModel.RecordListener, Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x53545553; // "STUS"
+    private static final int LOG_MAGIC = 0x5354554C; // "STUL"
+    private static final int VERSION = 1;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final String SNAPSHOT = "students.snapshot";
+    // The log may grow to this or the snapshot's size, whichever is larger, before compaction
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final StudentTableModel model;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "student-store-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ByteBuffer record = ByteBuffer.allocate(1024).order(ByteOrder.nativeOrder());
+    private final CRC32 crc = new CRC32();
+    // Records appended while handling the current event, written when it is done
+    private final ByteBuffer pending = ByteBuffer.allocateDirect(1 << 16);
+    private boolean flushQueued;
+    private FileChannel log;
+    private long generation;
+    private long logBytes;
+    // Written by the compactor thread
+    private volatile long snapshotBytes;
+    private volatile boolean compacting;
+
+    private StudentStore(Path directory, StudentTableModel model) {
+        this.directory = directory;
+        this.model = model;
+    }
+
+    // Loads the directory's students into the model, then records every change the model makes
+    public static StudentStore open(Path directory, StudentTableModel model) throws IOException {
+        Files.createDirectories(directory);
+        StudentStore store = new StudentStore(directory, model);
+        store.load();
+        model.addRecordListener(store);
+        return store;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    private void load() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            generation = readSnapshot(snapshot);
+            snapshotBytes = Files.size(snapshot);
+        }
+        TreeMap<Long, Path> logs = logs();
+        for (Path file : logs.headMap(generation).values()) Files.delete(file);
+        Path current = null;
+        for (Path file : logs.tailMap(generation).values()) {
+            current = file;
+            replay(file);
+        }
+        if (current == null) {
+            startLog(generation);
+        } else {
+            // Keep appending to the newest log, after its last intact record
+            generation = logs.lastKey();
+            log = FileChannel.open(current, StandardOpenOption.WRITE);
+            logBytes = log.size();
+            log.position(logBytes);
+        }
+    }
+
+    // Log files by generation
+    private TreeMap<Long, Path> logs() throws IOException {
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "students-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    logs.put(Long.parseLong(name.substring("students-".length(), name.length() - ".log".length())), file);
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return logs;
+    }
+
+    private long readSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer image = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            image.order(ByteOrder.nativeOrder());
+            if (image.remaining() < 24 || image.getInt() != SNAPSHOT_MAGIC || image.getInt() != VERSION) {
+                throw new IOException(file + " is not a student snapshot");
+            }
+            CRC32 check = new CRC32();
+            check.update(image.duplicate().position(0).limit(image.limit() - 4));
+            if ((int) check.getValue() != image.getInt(image.limit() - 4)) {
+                throw new IOException(file + " is damaged");
+            }
+            long snapshotGeneration = image.getLong();
+            StudentTableModel.Columns columns = new StudentTableModel.Columns();
+            int rows = image.getInt();
+            columns.rows = rows;
+            int majors = image.getInt();
+            columns.majorNames = new ArrayList<>(majors);
+            for (int i = 0; i < majors; i++) columns.majorNames.add(getString(image));
+            columns.ids = getInts(image, rows);
+            columns.ages = getInts(image, rows);
+            columns.majors = getInts(image, rows);
+            columns.nameLengths = getInts(image, rows);
+            columns.names = new byte[image.getInt()];
+            image.get(columns.names);
+            model.importColumns(columns);
+            return snapshotGeneration;
+        }
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Applies the log's intact records to the model and cuts off anything after them
+    private void replay(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Read rather than mapped: a mapped file cannot be truncated on every platform
+            ByteBuffer image = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.nativeOrder());
+            while (image.hasRemaining() && channel.read(image) >= 0) {
+                // Until the whole log is in
+            }
+            image.flip();
+            if (image.remaining() < 16 || image.getInt() != LOG_MAGIC || image.getInt() != VERSION) {
+                throw new IOException(file + " is not a student log");
+            }
+            image.getLong();
+            CRC32 check = new CRC32();
+            int end = image.position();
+            while (image.remaining() >= 8) {
+                int length = image.getInt();
+                int sum = image.getInt();
+                if (length < 5 || length > image.remaining()) break;
+                ByteBuffer body = image.slice().limit(length).order(ByteOrder.nativeOrder());
+                check.reset();
+                check.update(body.duplicate());
+                if ((int) check.getValue() != sum) break;
+                apply(body);
+                image.position(image.position() + length);
+                end = image.position();
+            }
+            if (end < channel.size()) channel.truncate(end);
+        }
+    }
+
+    private void apply(ByteBuffer body) {
+        byte op = body.get();
+        int id = body.getInt();
+        switch (op) {
+            case PUT:
+                int age = body.getInt();
+                String name = getString(body);
+                model.upsert(id, name, age, getString(body));
+                break;
+            case REMOVE:
+                model.removeId(id);
+                break;
+            case CLEAR:
+                model.clear();
+                break;
+            default:
+                throw new IllegalStateException("Unknown log operation " + op);
+        }
+    }
+
+    private void startLog(long logGeneration) throws IOException {
+        Path file = directory.resolve("students-" + logGeneration + ".log");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.nativeOrder());
+        header.putInt(LOG_MAGIC).putInt(VERSION).putLong(logGeneration).flip();
+        while (header.hasRemaining()) channel.write(header);
+        if (log != null) log.close();
+        log = channel;
+        logBytes = 16;
+        generation = logGeneration;
+    }
+
+    @Override
+    public void recordPut(int id, String name, int age, String major) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] majorBytes = major.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = body(17 + nameBytes.length + majorBytes.length);
+        body.put(PUT).putInt(id).putInt(age);
+        body.putInt(nameBytes.length).put(nameBytes);
+        body.putInt(majorBytes.length).put(majorBytes);
+        append(body);
+    }
+
+    @Override
+    public void recordRemoved(int id) {
+        append(body(5).put(REMOVE).putInt(id));
+    }
+
+    @Override
+    public void recordsCleared() {
+        append(body(5).put(CLEAR).putInt(0));
+    }
+
+    // The record buffer, cleared, with room for the header and a body of the given size
+    private ByteBuffer body(int size) {
+        ByteBuffer buffer = size + 8 <= record.capacity() ? record : ByteBuffer.allocate(size + 8);
+        buffer.clear();
+        buffer.order(ByteOrder.nativeOrder()).position(8);
+        return buffer;
+    }
+
+    private void append(ByteBuffer buffer) {
+        int length = buffer.position() - 8;
+        crc.reset();
+        crc.update(buffer.array(), 8, length);
+        buffer.putInt(0, length).putInt(4, (int) crc.getValue()).flip();
+        if (buffer.remaining() > pending.remaining()) flush();
+        if (buffer.remaining() > pending.remaining()) {
+            write(buffer);
+        } else {
+            pending.put(buffer);
+            if (!flushQueued) {
+                flushQueued = true;
+                SwingUtilities.invokeLater(this::flush);
+            }
+        }
+        logBytes += length + 8;
+        if (!compacting && logOutgrown()) compact();
+    }
+
+    // Hands the buffered records to the OS
+    public void flush() {
+        flushQueued = false;
+        if (pending.position() == 0) return;
+        pending.flip();
+        write(pending);
+        pending.clear();
+    }
+
+    private void write(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) log.write(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write student log: " + e.getMessage(), e);
+        }
+    }
+
+    // Starts the next log and writes the model as of now to a snapshot on the compactor thread
+    public void compact() {
+        if (compacting) return;
+        compacting = true;
+        compactor.execute(startCompaction());
+    }
+
+    // Starts the next log; returns the writing of the snapshot that replaces the older ones
+    private Runnable startCompaction() {
+        StudentTableModel.Columns columns = model.exportColumns();
+        long next = generation + 1;
+        flush();
+        try {
+            log.force(false);
+            startLog(next);
+        } catch (IOException e) {
+            compacting = false;
+            throw new IllegalStateException("Cannot start student log: " + e.getMessage(), e);
+        }
+        return () -> {
+            try {
+                snapshotBytes = writeSnapshot(columns, next);
+                for (Path file : logs().headMap(next).values()) Files.delete(file);
+            } catch (IOException e) {
+                // The older logs are still there, so nothing is lost; the next compaction retries
+                System.err.println("Cannot write student snapshot: " + e.getMessage());
+            } finally {
+                compacting = false;
+            }
+        };
+    }
+
+    private boolean logOutgrown() {
+        return logBytes > Math.max(MIN_COMPACT_BYTES, snapshotBytes);
+    }
+
+    private long writeSnapshot(StudentTableModel.Columns columns, long snapshotGeneration) throws IOException {
+        List<byte[]> majors = new ArrayList<>();
+        long size = 32 + 16L * columns.rows + columns.names.length;
+        for (String major : columns.majorNames) {
+            byte[] bytes = major.getBytes(StandardCharsets.UTF_8);
+            majors.add(bytes);
+            size += 4 + bytes.length;
+        }
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer image = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            image.order(ByteOrder.nativeOrder());
+            image.putInt(SNAPSHOT_MAGIC).putInt(VERSION).putLong(snapshotGeneration);
+            image.putInt(columns.rows).putInt(majors.size());
+            for (byte[] major : majors) image.putInt(major.length).put(major);
+            putInts(image, columns.ids, columns.rows);
+            putInts(image, columns.ages, columns.rows);
+            putInts(image, columns.majors, columns.rows);
+            putInts(image, columns.nameLengths, columns.rows);
+            image.putInt(columns.names.length).put(columns.names);
+            CRC32 check = new CRC32();
+            check.update(image.duplicate().flip());
+            image.putInt((int) check.getValue());
+            image.force();
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values, int count) {
+        buffer.asIntBuffer().put(values, 0, count);
+        buffer.position(buffer.position() + 4 * count);
+    }
+
+    // Waits for a running compaction and forces the log to disk. A log that outgrew the
+    // snapshot, as after a large import, is compacted first so the next start stays fast.
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        model.removeRecordListener(this);
+        flush();
+        if (logOutgrown()) startCompaction().run();
+        log.force(false);
+        log.close();
+    }
+}
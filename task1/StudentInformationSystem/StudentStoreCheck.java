@@ -0,0 +1,275 @@
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+// Checks that StudentStore gives back what it was given, with no GUI.
+//
+//   java StudentStoreCheck [crashes] [seed]
+//
+// Round trip: several sessions of random changes, some with compactions
+// in between, each closing the store and opening the directory again into
+// a fresh model, which must hold exactly the students of a reference map.
+//
+// Crash replay: a log of single-record changes is written after a snapshot,
+// noting the log's size and the students after each record. Copies of the
+// directory then have the log cut at a random byte, or one byte of it
+// flipped, as a crash or a bad sector would leave it; opening one must
+// restore the students as of the last intact record, and the store must go
+// on appending after it as if nothing had happened.
+//
+// Runs on the event dispatch thread, which the store is confined to. Exits
+// with status 1 on the first mismatch.
+public final class StudentStoreCheck {
+    private static final String[] NAMES = {"Amina Ahmed", "Bilal Cohen", "Chen Diallo", "Dalia Øst", "Émile Garcia",
+            "Farah Hoang", ""};
+    private static final String[] MAJORS = {"Physics", "Biology", "Law", "Art History", "Mathématiques"};
+    private static final int IDS = 300;
+
+    private interface Check {
+        void run() throws IOException;
+    }
+
+    public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+        int crashes = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        SwingUtilities.invokeAndWait(() -> run(() -> {
+            Path root = Files.createTempDirectory("student-store-check");
+            try {
+                roundTrip(random, root.resolve("sessions"));
+                crashReplay(random, root, crashes);
+            } finally {
+                delete(root);
+            }
+        }));
+    }
+
+    private static void run(Check check) {
+        try {
+            check.run();
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+    }
+
+    private static void roundTrip(SplittableRandom random, Path directory) throws IOException {
+        Map<Integer, String> students = new TreeMap<>();
+        int sessions = 12;
+        int compactions = 0;
+        for (int session = 0; session < sessions; session++) {
+            StudentTableModel model = new StudentTableModel();
+            StudentStore store = StudentStore.open(directory, model);
+            compare("session " + session, model, students);
+            for (int op = 0; op < 400; op++) {
+                change(random, model, students);
+                if (random.nextInt(150) == 0) {
+                    store.compact();
+                    compactions++;
+                }
+            }
+            store.close();
+        }
+        StudentTableModel model = new StudentTableModel();
+        StudentStore.open(directory, model).close();
+        compare("last session", model, students);
+        System.out.printf("store: %d sessions with %d compact() calls reopen as they were left%n",
+                sessions, compactions);
+    }
+
+    private static void crashReplay(SplittableRandom random, Path root, int crashes) throws IOException {
+        Path original = root.resolve("original");
+        StudentTableModel model = new StudentTableModel();
+        StudentStore store = StudentStore.open(original, model);
+        Map<Integer, String> students = new TreeMap<>();
+        for (int op = 0; op < 200; op++) change(random, model, students);
+        store.compact();
+        Path log = original.resolve("students-" + store.getGeneration() + ".log");
+        // Log sizes after each record, and the students as of that record
+        List<Long> ends = new ArrayList<>();
+        List<Map<Integer, String>> states = new ArrayList<>();
+        store.flush();
+        ends.add(Files.size(log));
+        states.add(new TreeMap<>(students));
+        for (int op = 0; op < 300; op++) {
+            record(random, model, students);
+            store.flush();
+            ends.add(Files.size(log));
+            states.add(new TreeMap<>(students));
+        }
+        store.close();
+        if (Files.size(log) != ends.get(ends.size() - 1)) fail("close() compacted a small log");
+
+        int flipped = 0;
+        for (int crash = 0; crash < crashes; crash++) {
+            Path copy = root.resolve("crash-" + crash);
+            copy(original, copy);
+            Path damaged = copy.resolve(log.getFileName());
+            long first = ends.get(0);
+            long position = first + random.nextLong(ends.get(ends.size() - 1) - first + 1);
+            String what;
+            if (random.nextBoolean()) {
+                try (FileChannel channel = FileChannel.open(damaged, StandardOpenOption.WRITE)) {
+                    channel.truncate(position);
+                }
+                what = "log cut at byte " + position;
+            } else {
+                position = Math.min(position, ends.get(ends.size() - 1) - 1);
+                flip(damaged, position, 1 + random.nextInt(255));
+                what = "log byte " + position + " flipped";
+                flipped++;
+            }
+            // The records wholly before the damage survive
+            int intact = 0;
+            while (intact + 1 < ends.size() && ends.get(intact + 1) <= position) intact++;
+            Map<Integer, String> expected = new TreeMap<>(states.get(intact));
+
+            StudentTableModel reopened = new StudentTableModel();
+            StudentStore recovered = StudentStore.open(copy, reopened);
+            compare(what, reopened, expected);
+            if (Files.size(damaged) != ends.get(intact)) {
+                fail(what + ": log is " + Files.size(damaged) + " bytes, expected " + ends.get(intact));
+            }
+            for (int op = 0; op < 20; op++) record(random, reopened, expected);
+            recovered.close();
+            reopened = new StudentTableModel();
+            StudentStore.open(copy, reopened).close();
+            compare(what + ", then appended to", reopened, expected);
+            delete(copy);
+        }
+        System.out.printf("store: %d damaged logs (%d cut, %d flipped) replay up to their last intact record%n",
+                crashes, crashes - flipped, flipped);
+    }
+
+    // Any change the model makes, applied to the map as well
+    private static void change(SplittableRandom random, StudentTableModel model, Map<Integer, String> students) {
+        int rows = model.getRowCount();
+        int id = random.nextInt(IDS);
+        String name = NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(1000);
+        int age = random.nextInt(StudentTableModel.MAX_AGE + 1);
+        String major = MAJORS[random.nextInt(MAJORS.length)];
+        switch (random.nextInt(rows == 0 ? 2 : 6)) {
+            case 0: {
+                int count = 1 + random.nextInt(30);
+                int[] ids = new int[count];
+                String[] names = new String[count];
+                int[] ages = new int[count];
+                String[] majors = new String[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = random.nextInt(IDS);
+                    names[i] = name + i;
+                    ages[i] = (age + i) % (StudentTableModel.MAX_AGE + 1);
+                    majors[i] = MAJORS[random.nextInt(MAJORS.length)];
+                    students.put(ids[i], student(names[i], ages[i], majors[i]));
+                }
+                model.upsertAll(ids, names, ages, majors, count);
+                break;
+            }
+            case 1:
+                record(random, model, students);
+                break;
+            case 2: {
+                int row = random.nextInt(rows);
+                if (model.findRow(id) >= 0 && model.getId(row) != id) break;
+                students.remove(model.getId(row));
+                students.put(id, student(name, age, major));
+                model.setRow(row, id, name, age, major);
+                break;
+            }
+            case 3: {
+                int row = random.nextInt(rows);
+                model.setValueAt(major, row, StudentTableModel.MAJOR);
+                students.put(model.getId(row), student(model.getName(row), model.getAge(row), major));
+                break;
+            }
+            case 4:
+                students.remove(model.getId(0));
+                model.removeRow(0);
+                break;
+            default:
+                students.remove(id);
+                model.removeId(id);
+                break;
+        }
+    }
+
+    // A change the store logs as exactly one record: an upsert, a removal or, rarely, a clear
+    private static void record(SplittableRandom random, StudentTableModel model, Map<Integer, String> students) {
+        int id = random.nextInt(IDS);
+        int kind = random.nextInt(100);
+        if (kind == 0) {
+            model.clear();
+            students.clear();
+        } else if (kind < 25 && model.findRow(id) >= 0) {
+            model.removeId(id);
+            students.remove(id);
+        } else {
+            String name = NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(1000);
+            int age = random.nextInt(StudentTableModel.MAX_AGE + 1);
+            String major = MAJORS[random.nextInt(MAJORS.length)];
+            model.upsert(id, name, age, major);
+            students.put(id, student(name, age, major));
+        }
+    }
+
+    private static String student(String name, int age, String major) {
+        return name + " / " + age + " / " + major;
+    }
+
+    private static void compare(String when, StudentTableModel model, Map<Integer, String> expected) {
+        Map<Integer, String> actual = new TreeMap<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            String previous = actual.put(model.getId(row),
+                    student(model.getName(row), model.getAge(row), model.getMajor(row)));
+            if (previous != null) fail(when + ": ID " + model.getId(row) + " is stored twice");
+        }
+        if (!actual.equals(expected)) {
+            for (Integer id : expected.keySet()) {
+                if (!expected.get(id).equals(actual.get(id))) {
+                    fail(when + ": ID " + id + " is " + actual.get(id) + ", expected " + expected.get(id));
+                }
+            }
+            fail(when + ": " + actual.size() + " students, expected " + expected.size());
+        }
+    }
+
+    private static void flip(Path file, long position, int bits) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ bits)).rewind();
+            channel.write(b, position);
+        }
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(from)) {
+            for (Path file : files) Files.copy(file, to.resolve(file.getFileName()));
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) return;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(file);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println("store: FAILED, " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,459 @@
+import javax.swing.table.AbstractTableModel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Student records stored by column instead of as a Vector of boxed rows:
+//
+//   ids, ages     int[]
+//   majors        int[] codes into a dictionary, each distinct major stored once
+//   names         UTF-8 bytes in one shared array, located by offset and length
+//
+// A row costs 20 bytes plus its name bytes, against a Vector and four Strings
+// in DefaultTableModel. Values are boxed or decoded only in getValueAt(), so
+// only the rows on screen ever allocate. Renaming appends the new name and
+// leaves the old bytes behind; the name array is compacted once more than
+// half of it is garbage.
+//
+// IDs are unique: StudentIdIndex maps each one to its row in O(1), and every
+// add, update and delete keeps it in step. Deleting moves the last row into
+// the gap, so no other row changes number; a sorted view is unaffected.
+//
+// Like every Swing model, it is only touched on the event dispatch thread.
+// RecordListeners hear of each change by student ID, for consumers that keep
+// their own copy of the records and cannot work with shifting row numbers.
+public class StudentTableModel extends AbstractTableModel {
+    // Told of every change on the event dispatch thread, after the model has applied it
+    public interface RecordListener {
+        void recordPut(int id, String name, int age, String major);
+
+        void recordRemoved(int id);
+
+        void recordsCleared();
+    }
+
+    public static final int ID = 0;
+    public static final int NAME = 1;
+    public static final int AGE = 2;
+    public static final int MAJOR = 3;
+    // Ages outside 0..MAX_AGE are rejected
+    public static final int MAX_AGE = 150;
+    private static final String[] COLUMNS = {"ID", "Name", "Age", "Major"};
+
+    private int rows;
+    private int[] ids = new int[16];
+    private int[] ages = new int[16];
+    private int[] majors = new int[16];
+    private int[] nameOffsets = new int[16];
+    private int[] nameLengths = new int[16];
+    private byte[] names = new byte[256];
+    private int namesUsed;
+    private int namesGarbage;
+
+    private final List<String> majorNames = new ArrayList<>();
+    private final Map<String, Integer> majorCodes = new HashMap<>();
+    private final StudentIdIndex index = new StudentIdIndex(row -> ids[row]);
+    private final StudentAggregates aggregates = new StudentAggregates();
+    private final List<RecordListener> recordListeners = new ArrayList<>();
+
+    public void addRecordListener(RecordListener listener) {
+        recordListeners.add(listener);
+    }
+
+    public void removeRecordListener(RecordListener listener) {
+        recordListeners.remove(listener);
+    }
+
+    private void firePut(int row) {
+        if (recordListeners.isEmpty()) return;
+        String name = getName(row);
+        String major = getMajor(row);
+        for (RecordListener listener : recordListeners) listener.recordPut(ids[row], name, ages[row], major);
+    }
+
+    private void fireRemoved(int id) {
+        for (RecordListener listener : recordListeners) listener.recordRemoved(id);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == ID || column == AGE ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case ID: return ids[row];
+            case NAME: return getName(row);
+            case AGE: return ages[row];
+            case MAJOR: return getMajor(row);
+            default: throw new IndexOutOfBoundsException("column " + column);
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return true;
+    }
+
+    // Edits typed into the table; an ID or age that is not a number is ignored
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        String text = String.valueOf(value).trim();
+        try {
+            switch (column) {
+                case ID:
+                    int id = Integer.parseInt(text);
+                    if (id == ids[row] || index.find(id) >= 0) return; // IDs stay unique
+                    changeId(row, id);
+                    break;
+                case NAME: storeName(row, text); break;
+                case AGE:
+                    int age = Integer.parseInt(text);
+                    if (age < 0 || age > MAX_AGE) return;
+                    aggregates.remove(majors[row], ages[row]);
+                    ages[row] = age;
+                    aggregates.add(majors[row], age);
+                    break;
+                case MAJOR:
+                    aggregates.remove(majors[row], ages[row]);
+                    majors[row] = majorCode(text);
+                    aggregates.add(majors[row], ages[row]);
+                    break;
+                default: throw new IndexOutOfBoundsException("column " + column);
+            }
+        } catch (NumberFormatException e) {
+            return;
+        }
+        fireTableCellUpdated(row, column);
+        firePut(row);
+    }
+
+    // Per-major counts and ages, always up to date
+    public StudentAggregates getAggregates() {
+        return aggregates;
+    }
+
+    // Row of the student with this ID, or -1
+    public int findRow(int id) {
+        return index.find(id);
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public int getAge(int row) {
+        return ages[row];
+    }
+
+    public String getName(int row) {
+        return new String(names, nameOffsets[row], nameLengths[row], StandardCharsets.UTF_8);
+    }
+
+    public String getMajor(int row) {
+        return majorNames.get(majors[row]);
+    }
+
+    // Dictionary code of the row's major, see getMajorName(int)
+    public int getMajorCode(int row) {
+        return majors[row];
+    }
+
+    public int getMajorCount() {
+        return majorNames.size();
+    }
+
+    public String getMajorName(int code) {
+        return majorNames.get(code);
+    }
+
+    // Compares the names of two rows byte by byte, ignoring ASCII case, without decoding them
+    public int compareNames(int a, int b) {
+        int offsetA = nameOffsets[a];
+        int offsetB = nameOffsets[b];
+        int length = Math.min(nameLengths[a], nameLengths[b]);
+        for (int i = 0; i < length; i++) {
+            int x = fold(names[offsetA + i]);
+            int y = fold(names[offsetB + i]);
+            if (x != y) return x - y;
+        }
+        return nameLengths[a] - nameLengths[b];
+    }
+
+    // Up to the first five name bytes, case-folded, as an unsigned 40-bit sort key
+    long namePrefix(int row) {
+        long key = 0;
+        int offset = nameOffsets[row];
+        int length = nameLengths[row];
+        for (int i = 0; i < 5; i++) key = key << 8 | (i < length ? fold(names[offset + i]) : 0);
+        return key;
+    }
+
+    private static int fold(byte b) {
+        int c = b & 0xff;
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    // Adds a student; throws IllegalArgumentException if the ID is taken or the age out of range
+    public int addRow(int id, String name, int age, String major) {
+        checkAge(age);
+        if (index.find(id) >= 0) throw new IllegalArgumentException("Student ID " + id + " already exists");
+        int row = append(id, name, age, major);
+        fireTableRowsInserted(row, row);
+        firePut(row);
+        return row;
+    }
+
+    // Stores a new row without telling anyone
+    private int append(int id, String name, int age, String major) {
+        if (rows == ids.length) grow(rows * 2);
+        int row = rows++;
+        ids[row] = id;
+        index.add(row);
+        ages[row] = age;
+        majors[row] = majorCode(major);
+        aggregates.add(majors[row], age);
+        nameLengths[row] = 0;
+        storeName(row, name);
+        return row;
+    }
+
+    private static void checkAge(int age) {
+        if (age < 0 || age > MAX_AGE) throw new IllegalArgumentException("Age must be 0 to " + MAX_AGE);
+    }
+
+    // Upserts the first count students with one insert event for all the new rows and one
+    // update event spanning the overwritten ones, instead of an event per student
+    public void upsertAll(int[] ids, String[] names, int[] ages, String[] majors, int count) {
+        for (int i = 0; i < count; i++) checkAge(ages[i]);
+        int first = rows;
+        ensureCapacity(rows + count);
+        int[] touched = new int[count];
+        int updatedFrom = Integer.MAX_VALUE;
+        int updatedTo = -1;
+        for (int i = 0; i < count; i++) {
+            int row = index.find(ids[i]);
+            if (row < 0) {
+                row = append(ids[i], names[i], ages[i], majors[i]);
+            } else {
+                aggregates.remove(this.majors[row], this.ages[row]);
+                this.ages[row] = ages[i];
+                this.majors[row] = majorCode(majors[i]);
+                aggregates.add(this.majors[row], ages[i]);
+                storeName(row, names[i]);
+                // Rows added earlier in this batch are covered by the insert event
+                if (row < first) {
+                    updatedFrom = Math.min(updatedFrom, row);
+                    updatedTo = Math.max(updatedTo, row);
+                }
+            }
+            touched[i] = row;
+        }
+        if (rows > first) fireTableRowsInserted(first, rows - 1);
+        if (updatedTo >= 0) fireTableRowsUpdated(updatedFrom, updatedTo);
+        for (int row : touched) firePut(row);
+    }
+
+    // Adds the student, or overwrites the one with the same ID; returns its row
+    public int upsert(int id, String name, int age, String major) {
+        int row = index.find(id);
+        if (row < 0) return addRow(id, name, age, major);
+        setRow(row, id, name, age, major);
+        return row;
+    }
+
+    // Overwrites the row; throws IllegalArgumentException if the new ID belongs to another row
+    // or the age is out of range
+    public void setRow(int row, int id, String name, int age, String major) {
+        checkAge(age);
+        if (id != ids[row]) {
+            if (index.find(id) >= 0) throw new IllegalArgumentException("Student ID " + id + " already exists");
+            changeId(row, id);
+        }
+        aggregates.remove(majors[row], ages[row]);
+        ages[row] = age;
+        majors[row] = majorCode(major);
+        aggregates.add(majors[row], age);
+        storeName(row, name);
+        fireTableRowsUpdated(row, row);
+        firePut(row);
+    }
+
+    private void changeId(int row, int id) {
+        int old = ids[row];
+        index.remove(old);
+        ids[row] = id;
+        index.add(row);
+        fireRemoved(old);
+    }
+
+    // Removes the row and moves the last row into its place
+    public void removeRow(int row) {
+        int id = ids[row];
+        namesGarbage += nameLengths[row];
+        index.remove(id);
+        aggregates.remove(majors[row], ages[row]);
+        int last = rows - 1;
+        if (row != last) {
+            ids[row] = ids[last];
+            ages[row] = ages[last];
+            majors[row] = majors[last];
+            nameOffsets[row] = nameOffsets[last];
+            nameLengths[row] = nameLengths[last];
+            index.move(ids[row], last, row);
+        }
+        rows--;
+        fireTableRowsDeleted(last, last);
+        if (row != last) fireTableRowsUpdated(row, row);
+        fireRemoved(id);
+    }
+
+    // Removes the student with this ID; returns false if there is none
+    public boolean removeId(int id) {
+        int row = index.find(id);
+        if (row < 0) return false;
+        removeRow(row);
+        return true;
+    }
+
+    public void clear() {
+        if (rows == 0) return;
+        int last = rows - 1;
+        rows = 0;
+        index.clear();
+        aggregates.clear();
+        namesUsed = 0;
+        namesGarbage = 0;
+        fireTableRowsDeleted(0, last);
+        for (RecordListener listener : recordListeners) listener.recordsCleared();
+    }
+
+    // Every row at once, names packed in row order; the unit StudentStore saves and loads
+    static final class Columns {
+        int rows;
+        int[] ids;
+        int[] ages;
+        int[] majors;
+        int[] nameLengths;
+        byte[] names;
+        List<String> majorNames;
+    }
+
+    // A copy of the rows, safe to hand to another thread
+    Columns exportColumns() {
+        compactNames();
+        Columns columns = new Columns();
+        columns.rows = rows;
+        columns.ids = Arrays.copyOf(ids, rows);
+        columns.ages = Arrays.copyOf(ages, rows);
+        columns.majors = Arrays.copyOf(majors, rows);
+        columns.nameLengths = Arrays.copyOf(nameLengths, rows);
+        columns.names = Arrays.copyOf(names, namesUsed);
+        columns.majorNames = new ArrayList<>(majorNames);
+        return columns;
+    }
+
+    // Replaces every row with the columns, which are taken over rather than copied;
+    // the IDs must be unique
+    void importColumns(Columns columns) {
+        rows = columns.rows;
+        ids = columns.ids;
+        ages = columns.ages;
+        majors = columns.majors;
+        nameLengths = columns.nameLengths;
+        nameOffsets = new int[ids.length];
+        int offset = 0;
+        for (int row = 0; row < rows; row++) {
+            nameOffsets[row] = offset;
+            offset += nameLengths[row];
+        }
+        names = columns.names;
+        namesUsed = offset;
+        namesGarbage = 0;
+        if (ids.length < 16) grow(16);
+        majorNames.clear();
+        majorCodes.clear();
+        for (String major : columns.majorNames) majorCode(major);
+        index.clear();
+        aggregates.clear();
+        for (int row = 0; row < rows; row++) {
+            index.add(row);
+            aggregates.add(majors[row], ages[row]);
+        }
+        fireTableDataChanged();
+        for (RecordListener listener : recordListeners) listener.recordsCleared();
+        if (!recordListeners.isEmpty()) {
+            for (int row = 0; row < rows; row++) firePut(row);
+        }
+    }
+
+    // Sizes the columns for at least capacity rows, e.g. before a bulk load
+    public void ensureCapacity(int capacity) {
+        if (capacity > ids.length) grow(capacity);
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        majors = Arrays.copyOf(majors, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+    }
+
+    private int majorCode(String major) {
+        Integer code = majorCodes.get(major);
+        if (code == null) {
+            code = majorNames.size();
+            majorNames.add(major);
+            majorCodes.put(major, code);
+        }
+        return code;
+    }
+
+    private void storeName(int row, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        namesGarbage += nameLengths[row];
+        nameLengths[row] = 0;
+        if (namesGarbage > namesUsed / 2 && namesGarbage > 4096) compactNames();
+        if (namesUsed + bytes.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, namesUsed + bytes.length));
+        }
+        System.arraycopy(bytes, 0, names, namesUsed, bytes.length);
+        nameOffsets[row] = namesUsed;
+        nameLengths[row] = bytes.length;
+        namesUsed += bytes.length;
+    }
+
+    // Copies the live names to the front of a fresh array in row order
+    private void compactNames() {
+        byte[] compact = new byte[Math.max(256, namesUsed - namesGarbage + (namesUsed >> 2))];
+        int used = 0;
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(names, nameOffsets[row], compact, used, nameLengths[row]);
+            nameOffsets[row] = used;
+            used += nameLengths[row];
+        }
+        names = compact;
+        namesUsed = used;
+        namesGarbage = 0;
+    }
+}
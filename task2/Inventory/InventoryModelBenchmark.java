@@ -0,0 +1,75 @@
+import javax.swing.table.DefaultTableModel;
+import java.math.BigDecimal;
+import java.util.Random;
+
+// Compares InventoryTableModel with the DefaultTableModel of strings
+// InventorySystem used before, filled with the same generated items.
+//
+//   java -Xmx2g InventoryModelBenchmark [items] [rounds]
+//
+// Reports the heap each model holds and the time to report the stock value:
+// parsing every quantity and price against reading the running total.
+public final class InventoryModelBenchmark {
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        System.out.printf("%,d items%n", n);
+
+        long before = usedHeap();
+        DefaultTableModel strings = new DefaultTableModel(new String[]{"Item ID", "Name", "Qty", "Price"}, 0);
+        fill(n, (id, name, quantity, price) -> strings.addRow(new Object[]{id, name, String.valueOf(quantity),
+                InventoryTableModel.formatCents(price)}));
+        long stringHeap = usedHeap() - before;
+
+        before = usedHeap();
+        InventoryTableModel typed = new InventoryTableModel();
+        typed.ensureCapacity(n);
+        fill(n, typed::addRow);
+        long typedHeap = usedHeap() - before;
+
+        long parsed = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int row = 0; row < strings.getRowCount(); row++) {
+                BigDecimal quantity = new BigDecimal((String) strings.getValueAt(row, 2));
+                total = total.add(quantity.multiply(new BigDecimal((String) strings.getValueAt(row, 3))));
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            parsed = total.movePointRight(2).longValueExact();
+        }
+        long scanning = best;
+
+        long running = 0;
+        best = Long.MAX_VALUE;
+        for (int round = 0; round < 1000 * rounds; round++) {
+            long start = System.nanoTime();
+            running = typed.getTotalValue();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.printf("%-22s %12s %12s%n", "", "Strings", "Typed");
+        System.out.printf("%-22s %9.1f MB %9.1f MB%n", "heap", stringHeap / 1e6, typedHeap / 1e6);
+        System.out.printf("%-22s %9.1f ms %9.4f ms%n", "stock value", scanning / 1e6, best / 1e6);
+        if (parsed != running) System.out.println("totals differ: " + parsed + " and " + running);
+        System.out.println(strings.getRowCount() + typed.getRowCount() == 2 * n ? "" : "row count mismatch");
+    }
+
+    private interface Sink {
+        void add(String id, String name, long quantity, long price);
+    }
+
+    private static void fill(int n, Sink sink) {
+        Random random = new Random(7);
+        for (int i = 0; i < n; i++) {
+            sink.add(String.format("SKU-%07d", i), "Item " + i, random.nextInt(500), 99 + random.nextInt(100_000));
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,237 @@
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Checks InventoryTableModel against a map of the items, with no GUI.
+//
+//   java InventoryModelCheck [operations] [seed]
+//
+// Random adds, row updates, cell edits, quantity refreshes and deletes, some
+// with empty fields, negative numbers, IDs that are taken, or quantities and
+// prices big enough that a stock value or a total no longer fits in a long.
+// Each must be accepted exactly when the map, summed with BigInteger, says
+// it is valid, and checkRow() must throw exactly when setRow() would, both
+// leaving the model as it was. After every change the rows, findRow() and
+// the running totals must match the map. Prices are also parsed and
+// formatted, and must survive the round trip. Exits with status 1 on the
+// first mismatch.
+public final class InventoryModelCheck {
+    private static final int IDS = 300;
+
+    private static final class Item {
+        final String name;
+        final long quantity;
+        final long price;
+
+        Item(String name, long quantity, long price) {
+            this.name = name;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        checkPrices(random);
+        InventoryTableModel model = new InventoryTableModel();
+        Map<String, Item> items = new HashMap<>();
+        int rejected = 0;
+        for (int op = 0; op < operations; op++) {
+            if (!apply(random, model, items)) rejected++;
+            compare(model, items);
+        }
+        System.out.printf("inventory: %,d changes (%,d rejected) agree with the reference, %d items at the end%n",
+                operations, rejected, model.getItemCount());
+    }
+
+    // One random change to both; false if the model rejected it, as it must have
+    private static boolean apply(SplittableRandom random, InventoryTableModel model, Map<String, Item> items) {
+        String id = id(random);
+        Item item = item(random);
+        int rows = model.getRowCount();
+        int row = rows == 0 ? -1 : random.nextInt(rows);
+        switch (rows == 0 ? 0 : random.nextInt(8)) {
+            case 0:
+            case 1:
+            case 2: {
+                boolean valid = !items.containsKey(id) && valid(id, item) && fits(items, null, item);
+                if (!rejects(valid, () -> model.addRow(id, item.name, item.quantity, item.price))) return false;
+                items.put(id, item);
+                return true;
+            }
+            case 3: {
+                String old = model.getId(row);
+                String next = random.nextBoolean() ? old : id;
+                boolean valid = (next.equals(old) || !items.containsKey(next)) && valid(next, item)
+                        && fits(items, old, item);
+                if (!rejects(valid, () -> model.checkRow(row, next, item.name, item.quantity, item.price))) {
+                    return false;
+                }
+                // checkRow() changed nothing, so the update goes through
+                model.setRow(row, next, item.name, item.quantity, item.price);
+                items.remove(old);
+                items.put(next, item);
+                return true;
+            }
+            case 4: {
+                String old = model.getId(row);
+                Item current = items.get(old);
+                Item next = new Item(current.name, item.quantity, current.price);
+                boolean valid = item.quantity >= 0 && fits(items, old, next);
+                if (!rejects(valid, () -> model.setQuantity(row, item.quantity))) return false;
+                items.put(old, next);
+                return true;
+            }
+            case 5:
+            case 6:
+                return setValue(random, model, items, row, id, item);
+            default: {
+                items.remove(model.getId(row));
+                model.removeRow(row);
+                return true;
+            }
+        }
+    }
+
+    // An edit typed into a cell, which the model ignores unless it is valid
+    private static boolean setValue(SplittableRandom random, InventoryTableModel model, Map<String, Item> items,
+                                    int row, String id, Item item) {
+        String oldId = model.getId(row);
+        Item old = items.get(oldId);
+        String nextId = oldId;
+        Item next;
+        String text;
+        int column = random.nextInt(4);
+        switch (column) {
+            case InventoryTableModel.ID:
+                text = " " + id + " ";
+                nextId = id;
+                next = old;
+                break;
+            case InventoryTableModel.NAME:
+                text = item.name;
+                next = new Item(item.name.trim(), old.quantity, old.price);
+                break;
+            case InventoryTableModel.QUANTITY:
+                text = random.nextInt(10) == 0 ? "many" : String.valueOf(item.quantity);
+                next = new Item(old.name, text.equals("many") ? -1 : item.quantity, old.price);
+                break;
+            default:
+                text = random.nextInt(10) == 0 ? "1.005" : InventoryTableModel.formatCents(item.price);
+                next = new Item(old.name, old.quantity, text.equals("1.005") ? -1 : item.price);
+                break;
+        }
+        model.setValueAt(text, row, column);
+        boolean valid = (nextId.equals(oldId) || !items.containsKey(nextId)) && valid(nextId, next)
+                && fits(items, oldId, next);
+        if (!valid) return false;
+        items.remove(oldId);
+        items.put(nextId, next);
+        return true;
+    }
+
+    // Runs the change, which must throw IllegalArgumentException exactly when it is not valid
+    private static boolean rejects(boolean valid, Runnable change) {
+        try {
+            change.run();
+        } catch (IllegalArgumentException e) {
+            if (valid) fail("valid change rejected: " + e.getMessage());
+            return false;
+        }
+        if (!valid) fail("invalid change accepted");
+        return true;
+    }
+
+    private static boolean valid(String id, Item item) {
+        return !id.isEmpty() && !item.name.isEmpty() && item.quantity >= 0 && item.price >= 0;
+    }
+
+    // Whether the item's value and both totals fit in a long with the item in place of replaced
+    private static boolean fits(Map<String, Item> items, String replaced, Item item) {
+        BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+        BigInteger value = BigInteger.valueOf(item.quantity).multiply(BigInteger.valueOf(item.price));
+        if (value.compareTo(max) > 0) return false;
+        BigInteger quantity = BigInteger.valueOf(item.quantity);
+        for (Map.Entry<String, Item> entry : items.entrySet()) {
+            if (entry.getKey().equals(replaced)) continue;
+            Item other = entry.getValue();
+            quantity = quantity.add(BigInteger.valueOf(other.quantity));
+            value = value.add(BigInteger.valueOf(other.quantity).multiply(BigInteger.valueOf(other.price)));
+        }
+        return quantity.compareTo(max) <= 0 && value.compareTo(max) <= 0;
+    }
+
+    private static String id(SplittableRandom random) {
+        return random.nextInt(100) == 0 ? "" : "I-" + random.nextInt(IDS);
+    }
+
+    // Mostly ordinary, sometimes empty, negative or big enough to overflow the totals
+    private static Item item(SplittableRandom random) {
+        String name = random.nextInt(100) == 0 ? " " : "Item " + random.nextInt(1000);
+        long quantity = random.nextInt(20) == 0 ? Long.MAX_VALUE / (1 + random.nextInt(4)) : random.nextInt(1000);
+        long price = random.nextInt(20) == 0 ? Long.MAX_VALUE / (1 + random.nextInt(1_000_000))
+                : random.nextInt(100_000);
+        if (random.nextInt(100) == 0) quantity = -1;
+        if (random.nextInt(100) == 0) price = -1;
+        if (random.nextInt(50) == 0) price = 0;
+        return new Item(name.trim().isEmpty() && random.nextBoolean() ? "" : name, quantity, price);
+    }
+
+    private static void compare(InventoryTableModel model, Map<String, Item> items) {
+        if (model.getRowCount() != items.size() || model.getItemCount() != items.size()) {
+            fail(model.getRowCount() + " rows, expected " + items.size());
+        }
+        long quantity = 0;
+        long value = 0;
+        for (int row = 0; row < model.getRowCount(); row++) {
+            Item item = items.get(model.getId(row));
+            if (item == null) fail("row " + row + " has unknown ID " + model.getId(row));
+            if (!model.getName(row).equals(item.name) || model.getQuantity(row) != item.quantity
+                    || model.getPrice(row) != item.price) {
+                fail("row " + row + " is " + model.getName(row) + "/" + model.getQuantity(row) + "/"
+                        + model.getPrice(row) + ", expected " + item.name + "/" + item.quantity + "/" + item.price);
+            }
+            if (model.findRow(model.getId(row)) != row) fail("findRow(" + model.getId(row) + ")");
+            quantity += item.quantity;
+            value += item.quantity * item.price;
+        }
+        for (int n = 0; n < IDS; n++) {
+            if (!items.containsKey("I-" + n) && model.findRow("I-" + n) != -1) fail("findRow(I-" + n + ") of no item");
+        }
+        if (model.getTotalQuantity() != quantity || model.getTotalValue() != value) {
+            fail("totals " + model.getTotalQuantity() + " units worth " + model.getTotalValue() + ", expected "
+                    + quantity + " worth " + value);
+        }
+    }
+
+    private static void checkPrices(SplittableRandom random) {
+        String[][] cases = {{"12", "1200"}, {"12.5", "1250"}, {" 12.50 ", "1250"}, {"0.07", "7"}, {"0", "0"}};
+        for (String[] c : cases) {
+            if (InventoryTableModel.parseCents(c[0]) != Long.parseLong(c[1])) fail("parseCents(\"" + c[0] + "\")");
+        }
+        for (String text : new String[]{"12.345", "abc", "", "1,50", "92233720368547758.08"}) {
+            try {
+                InventoryTableModel.parseCents(text);
+                fail("parseCents(\"" + text + "\") accepted");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        for (int i = 0; i < 100_000; i++) {
+            long cents = i < 3 ? new long[]{0, 5, Long.MAX_VALUE}[i] : random.nextLong(Long.MAX_VALUE);
+            String text = InventoryTableModel.formatCents(cents);
+            if (!text.matches("\\d+\\.\\d\\d") || InventoryTableModel.parseCents(text) != cents) {
+                fail(cents + " formats as " + text);
+            }
+        }
+        System.out.println("inventory: prices parse, and format and parse back exactly");
+    }
+
+    private static void fail(String message) {
+        System.out.println("inventory: FAILED, " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,190 @@
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stock levels shared by every terminal working on one inventory, with no
+// Swing in it and no global lock. Each item has two counters:
+//
+//   available   units free to promise
+//   reserved    units promised to open reservations
+//
+// and its stock on hand is their sum. reserve() takes units out of available
+// with a compare-and-set that fails rather than go below zero, so however
+// many threads pick the same item nothing is ever promised twice. A
+// reservation is then committed, when the units leave, or released, which
+// returns them; either happens once, decided by a compare-and-set on the
+// reservation. adjust() adds or removes units for a delivery, a count or an
+// edit, again never below zero. Threads working on different items share
+// nothing but the item map's lookup.
+//
+// The two counters change one after the other, so a read of stock on hand
+// can be short by a reservation being taken or returned at that moment.
+// Listeners hear the item ID after every change, on the thread that made it.
+public final class InventoryStock {
+    public interface Listener {
+        void stockChanged(String id);
+    }
+
+    private static final class Item {
+        volatile String id;
+        final AtomicLong available;
+        final AtomicLong reserved = new AtomicLong();
+
+        Item(String id, long available) {
+            this.id = id;
+            this.available = new AtomicLong(available);
+        }
+    }
+
+    // Units reserve() set aside; commit or release it exactly once
+    public final class Reservation {
+        private static final int OPEN = 0;
+        private static final int COMMITTED = 1;
+        private static final int RELEASED = 2;
+
+        private final Item item;
+        private final long quantity;
+        private final AtomicInteger state = new AtomicInteger(OPEN);
+
+        private Reservation(Item item, long quantity) {
+            this.item = item;
+            this.quantity = quantity;
+        }
+
+        public String getId() {
+            return item.id;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        // The units leave the stock; returns false if the reservation was already settled
+        public boolean commit() {
+            if (!state.compareAndSet(OPEN, COMMITTED)) return false;
+            item.reserved.addAndGet(-quantity);
+            changed(item);
+            return true;
+        }
+
+        // The units become available again; returns false if the reservation was already settled
+        public boolean release() {
+            if (!state.compareAndSet(OPEN, RELEASED)) return false;
+            item.reserved.addAndGet(-quantity);
+            item.available.addAndGet(quantity);
+            changed(item);
+            return true;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Item> items = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Starts tracking an item; throws IllegalArgumentException if it is tracked already or the
+    // quantity is negative
+    public void add(String id, long onHand) {
+        if (onHand < 0) throw new IllegalArgumentException("Quantity cannot be negative");
+        Item item = new Item(id, onHand);
+        if (items.putIfAbsent(id, item) != null) throw new IllegalArgumentException("Item ID " + id + " already exists");
+        changed(item);
+    }
+
+    // Stops tracking an item; its open reservations can still be settled but change nothing
+    // anyone can see. Returns false if it was not tracked
+    public boolean remove(String id) {
+        return items.remove(id) != null;
+    }
+
+    // Moves the item and its open reservations to a new ID; throws IllegalArgumentException if
+    // the old one is not tracked or the new one is
+    public void rename(String id, String newId) {
+        Item item = item(id);
+        if (id.equals(newId)) return;
+        if (items.putIfAbsent(newId, item) != null) {
+            throw new IllegalArgumentException("Item ID " + newId + " already exists");
+        }
+        item.id = newId;
+        items.remove(id, item);
+    }
+
+    public boolean contains(String id) {
+        return items.containsKey(id);
+    }
+
+    // Sets aside quantity units, or returns null if fewer are available; throws
+    // IllegalArgumentException for an item not tracked or a quantity that is not positive
+    public Reservation reserve(String id, long quantity) {
+        if (quantity <= 0) throw new IllegalArgumentException("Quantity must be positive");
+        Item item = item(id);
+        while (true) {
+            long available = item.available.get();
+            if (available < quantity) return null;
+            if (item.available.compareAndSet(available, available - quantity)) break;
+        }
+        item.reserved.addAndGet(quantity);
+        changed(item);
+        return new Reservation(item, quantity);
+    }
+
+    // Adds delta units, or removes them when negative; returns false, changing nothing, if that
+    // would take the available units below zero. Throws IllegalArgumentException, changing
+    // nothing, if the stock on hand would no longer fit in a long
+    public boolean adjust(String id, long delta) {
+        Item item = item(id);
+        while (true) {
+            long available = item.available.get();
+            long next;
+            try {
+                next = Math.addExact(available, delta);
+                Math.addExact(next, item.reserved.get());
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Quantity is too large");
+            }
+            if (next < 0) return false;
+            if (item.available.compareAndSet(available, next)) break;
+        }
+        changed(item);
+        return true;
+    }
+
+    public long getAvailable(String id) {
+        return item(id).available.get();
+    }
+
+    public long getReserved(String id) {
+        return item(id).reserved.get();
+    }
+
+    // Available plus reserved units; throws IllegalArgumentException if a release racing an
+    // adjust() took them past what a long holds
+    public long getOnHand(String id) {
+        Item item = item(id);
+        try {
+            return Math.addExact(item.available.get(), item.reserved.get());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Quantity is too large");
+        }
+    }
+
+    private Item item(String id) {
+        Item item = items.get(id);
+        if (item == null) throw new IllegalArgumentException("No item with ID " + id);
+        return item;
+    }
+
+    private void changed(Item item) {
+        if (listeners.isEmpty()) return;
+        String id = item.id;
+        for (Listener listener : listeners) listener.stockChanged(id);
+    }
+}
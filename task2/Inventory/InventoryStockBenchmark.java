@@ -0,0 +1,192 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Many picking terminals on a few hot items, with no GUI.
+//
+//   java InventoryStockBenchmark [threads] [operations] [hot items]
+//
+// First a stress run checks InventoryStock under contention: every thread
+// reserves random amounts of random hot items, commits most reservations,
+// releases the rest and now and then restocks, while a watcher keeps
+// reading the counters. Afterwards each item must hold exactly its initial
+// stock plus restocks minus the units committed, with nothing reserved, and
+// no read may have seen a negative count; more reservations are attempted
+// than there is stock, so the rejections are exercised too.
+//
+// Then the same mix is timed against one synchronized map, the global lock
+// the engine avoids, and reported as orders (reserve plus commit or release)
+// per second.
+public final class InventoryStockBenchmark {
+    private static final long INITIAL_STOCK = 1_000;
+
+    private interface Stock {
+        // Reserves and then commits or releases; returns false if too few units were free
+        boolean order(String id, long quantity, boolean commit);
+
+        void restock(String id, long quantity);
+    }
+
+    private static final class Engine implements Stock {
+        final InventoryStock stock = new InventoryStock();
+
+        @Override
+        public boolean order(String id, long quantity, boolean commit) {
+            InventoryStock.Reservation reservation = stock.reserve(id, quantity);
+            if (reservation == null) return false;
+            return commit ? reservation.commit() : reservation.release();
+        }
+
+        @Override
+        public void restock(String id, long quantity) {
+            stock.adjust(id, quantity);
+        }
+    }
+
+    private static final class GlobalLock implements Stock {
+        private final Map<String, long[]> items = new HashMap<>();
+
+        @Override
+        public boolean order(String id, long quantity, boolean commit) {
+            synchronized (this) {
+                long[] counts = items.get(id);
+                if (counts[0] < quantity) return false;
+                counts[0] -= quantity;
+                counts[1] += quantity;
+            }
+            synchronized (this) {
+                long[] counts = items.get(id);
+                counts[1] -= quantity;
+                if (!commit) counts[0] += quantity;
+            }
+            return true;
+        }
+
+        @Override
+        public synchronized void restock(String id, long quantity) {
+            items.get(id)[0] += quantity;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+        long operations = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000;
+        int hot = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        String[] ids = new String[hot];
+        for (int i = 0; i < hot; i++) ids[i] = String.format("SKU-%04d", i);
+        System.out.printf("%,d operations on %d threads over %d hot items (%d CPUs)%n", operations, threads, hot,
+                Runtime.getRuntime().availableProcessors());
+
+        stress(ids, threads, operations / 5);
+
+        Engine engine = new Engine();
+        GlobalLock global = new GlobalLock();
+        for (String id : ids) {
+            engine.stock.add(id, INITIAL_STOCK);
+            global.items.put(id, new long[]{INITIAL_STOCK, 0});
+        }
+        run(engine, ids, threads, operations / 10);
+        run(global, ids, threads, operations / 10);
+        long engineBest = Long.MAX_VALUE;
+        long globalBest = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            engineBest = Math.min(engineBest, run(engine, ids, threads, operations));
+            globalBest = Math.min(globalBest, run(global, ids, threads, operations));
+        }
+        System.out.printf("%-22s %9.1f M orders/s%n", "global lock", operations * 1e3 / globalBest);
+        System.out.printf("%-22s %9.1f M orders/s%n", "InventoryStock", operations * 1e3 / engineBest);
+    }
+
+    private static void stress(String[] ids, int threads, long operations) throws InterruptedException {
+        Engine engine = new Engine();
+        for (String id : ids) engine.stock.add(id, INITIAL_STOCK);
+        AtomicLongArray committed = new AtomicLongArray(ids.length);
+        AtomicLongArray restocked = new AtomicLongArray(ids.length);
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong negative = new AtomicLong();
+        Thread watcher = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                for (String id : ids) {
+                    if (engine.stock.getAvailable(id) < 0 || engine.stock.getReserved(id) < 0) negative.incrementAndGet();
+                }
+                Thread.yield();
+            }
+        }, "stress-watcher");
+        watcher.start();
+        Stock counting = new Stock() {
+            @Override
+            public boolean order(String id, long quantity, boolean commit) {
+                if (!engine.order(id, quantity, commit)) {
+                    rejected.incrementAndGet();
+                    return false;
+                }
+                if (commit) committed.addAndGet(index(ids, id), quantity);
+                return true;
+            }
+
+            @Override
+            public void restock(String id, long quantity) {
+                engine.restock(id, quantity);
+                restocked.addAndGet(index(ids, id), quantity);
+            }
+        };
+        run(counting, ids, threads, operations);
+        watcher.interrupt();
+        watcher.join();
+        boolean ok = negative.get() == 0;
+        for (int i = 0; i < ids.length; i++) {
+            long expected = INITIAL_STOCK + restocked.get(i) - committed.get(i);
+            if (engine.stock.getAvailable(ids[i]) != expected || engine.stock.getReserved(ids[i]) != 0) {
+                System.out.printf("%s: %d available, %d reserved, expected %d and 0%n", ids[i],
+                        engine.stock.getAvailable(ids[i]), engine.stock.getReserved(ids[i]), expected);
+                ok = false;
+            }
+        }
+        System.out.printf("stress: %,d operations, %,d rejected for lack of stock, %s%n", operations, rejected.get(),
+                ok ? "no oversell, counts exact" : "FAILED" + (negative.get() > 0 ? ", negative counts seen" : ""));
+        if (!ok) System.exit(1);
+    }
+
+    private static int index(String[] ids, String id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i].equals(id)) return i;
+        }
+        throw new IllegalArgumentException(id);
+    }
+
+    // Wall time in nanoseconds for the operations split over the threads: one in ten a restock of
+    // up to 40 units, the rest orders of 1 to 5 units, four in five of them committed, which
+    // takes slightly more than is restocked
+    private static long run(Stock stock, String[] ids, int threads, long operations) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            long share = operations / threads + (t < operations % threads ? 1 : 0);
+            workers[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(worker);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < share; i++) {
+                    String id = ids[random.nextInt(ids.length)];
+                    if (random.nextInt(10) == 0) {
+                        stock.restock(id, 1 + random.nextInt(40));
+                    } else {
+                        stock.order(id, 1 + random.nextInt(5), random.nextInt(5) != 0);
+                    }
+                }
+            }, "terminal-" + t);
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) worker.join();
+        return System.nanoTime() - begin;
+    }
+}
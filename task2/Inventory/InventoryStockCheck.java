@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Checks InventoryStock against plain counters, one change at a time, with
+// no GUI; InventoryStockBenchmark covers it under contention.
+//
+//   java InventoryStockCheck [operations] [seed]
+//
+// Random adds, removals, renames, reservations, commits, releases and
+// adjustments, including IDs that are missing or taken, quantities that are
+// not positive, more units than are free, reservations settled twice or
+// after their item was renamed or removed, and stock near Long.MAX_VALUE.
+// Each must succeed, return false or null, or throw exactly as the counters
+// say, changing nothing when it does not succeed, and the listener must
+// hear the item's current ID once per change. After every step the
+// available, reserved and on-hand units of every ID must match. Exits with
+// status 1 on the first mismatch.
+public final class InventoryStockCheck {
+    private static final int IDS = 50;
+    private static final long HUGE = Long.MAX_VALUE - 1000;
+
+    private static final class Counters {
+        String id;
+        long available;
+        long reserved;
+
+        Counters(String id, long available) {
+            this.id = id;
+            this.available = available;
+        }
+    }
+
+    private static final class Open {
+        final InventoryStock.Reservation reservation;
+        final Counters counters;
+        final long quantity;
+        boolean settled;
+
+        Open(InventoryStock.Reservation reservation, Counters counters, long quantity) {
+            this.reservation = reservation;
+            this.counters = counters;
+            this.quantity = quantity;
+        }
+    }
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        InventoryStock stock = new InventoryStock();
+        List<String> heard = new ArrayList<>();
+        stock.addListener(heard::add);
+        Map<String, Counters> items = new HashMap<>();
+        List<Open> reservations = new ArrayList<>();
+        int refused = 0;
+        for (int op = 0; op < operations; op++) {
+            heard.clear();
+            String changed = apply(random, stock, items, reservations);
+            if (changed == null) refused++;
+            List<String> expected = changed == null ? List.of() : List.of(changed);
+            if (!heard.equals(expected)) fail("listener heard " + heard + ", expected " + expected);
+            compare(stock, items);
+            if (reservations.size() > 200) reservations.removeIf(open -> open.settled);
+        }
+        System.out.printf("stock: %,d operations (%,d refused or changing nothing) agree with the counters%n",
+                operations, refused);
+    }
+
+    // One random operation on both; returns the ID the listener must hear, or null if nothing changed
+    private static String apply(SplittableRandom random, InventoryStock stock, Map<String, Counters> items,
+                                List<Open> reservations) {
+        String id = "SKU-" + random.nextInt(IDS);
+        Counters item = items.get(id);
+        long quantity = quantity(random);
+        switch (random.nextInt(10)) {
+            case 0: {
+                boolean valid = item == null && quantity >= 0;
+                if (!throwsUnless(valid, () -> stock.add(id, quantity))) return null;
+                items.put(id, new Counters(id, quantity));
+                return id;
+            }
+            case 1: {
+                if (stock.remove(id) != (item != null)) fail("remove(" + id + ") disagrees");
+                items.remove(id);
+                return null;
+            }
+            case 2: {
+                String newId = "SKU-" + random.nextInt(IDS);
+                boolean valid = item != null && (newId.equals(id) || !items.containsKey(newId));
+                if (!throwsUnless(valid, () -> stock.rename(id, newId))) return null;
+                items.remove(id);
+                items.put(newId, item);
+                item.id = newId;
+                return null;
+            }
+            case 3:
+            case 4: {
+                long wanted = random.nextInt(20) == 0 ? -random.nextInt(2) : 1 + random.nextInt(50);
+                InventoryStock.Reservation[] reservation = new InventoryStock.Reservation[1];
+                if (!throwsUnless(item != null && wanted > 0, () -> reservation[0] = stock.reserve(id, wanted))) {
+                    return null;
+                }
+                if ((reservation[0] != null) != (item.available >= wanted)) {
+                    fail("reserve(" + id + ", " + wanted + ") of " + item.available + " returned " + reservation[0]);
+                }
+                if (reservation[0] == null) return null;
+                if (reservation[0].getQuantity() != wanted) fail("reservation of " + reservation[0].getQuantity());
+                item.available -= wanted;
+                item.reserved += wanted;
+                reservations.add(new Open(reservation[0], item, wanted));
+                return id;
+            }
+            case 5:
+            case 6: {
+                if (reservations.isEmpty()) return null;
+                Open open = reservations.get(random.nextInt(reservations.size()));
+                boolean commit = random.nextBoolean();
+                if (!open.reservation.getId().equals(open.counters.id)) fail("reservation lost its item's ID");
+                boolean settled = commit ? open.reservation.commit() : open.reservation.release();
+                if (settled == open.settled) fail((commit ? "commit" : "release") + " of a settled reservation");
+                if (!settled) return null;
+                open.settled = true;
+                open.counters.reserved -= open.quantity;
+                if (!commit) open.counters.available += open.quantity;
+                return open.counters.id;
+            }
+            default: {
+                long delta = random.nextBoolean() ? quantity : -quantity;
+                boolean[] adjusted = new boolean[1];
+                if (!throwsUnless(item != null && fits(item, delta), () -> adjusted[0] = stock.adjust(id, delta))) {
+                    return null;
+                }
+                if (adjusted[0] != (item.available + delta >= 0)) fail("adjust(" + id + ", " + delta + ") disagrees");
+                if (!adjusted[0]) return null;
+                item.available += delta;
+                return id;
+            }
+        }
+    }
+
+    // Whether available plus delta, and that plus reserved, fit in a long
+    private static boolean fits(Counters item, long delta) {
+        try {
+            Math.addExact(Math.addExact(item.available, delta), item.reserved);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    // Mostly small, sometimes negative, sometimes close to what a long holds
+    private static long quantity(SplittableRandom random) {
+        int kind = random.nextInt(40);
+        if (kind == 0) return -1 - random.nextInt(5);
+        if (kind == 1) return HUGE + random.nextInt(1000);
+        return random.nextInt(200);
+    }
+
+    // Runs the operation, which must throw IllegalArgumentException exactly when it is not valid
+    private static boolean throwsUnless(boolean valid, Runnable operation) {
+        try {
+            operation.run();
+        } catch (IllegalArgumentException e) {
+            if (valid) fail("valid operation refused: " + e.getMessage());
+            return false;
+        }
+        if (!valid) fail("invalid operation accepted");
+        return true;
+    }
+
+    private static void compare(InventoryStock stock, Map<String, Counters> items) {
+        for (int n = 0; n < IDS; n++) {
+            String id = "SKU-" + n;
+            Counters item = items.get(id);
+            if (stock.contains(id) != (item != null)) fail("contains(" + id + ") disagrees");
+            if (item == null) continue;
+            if (stock.getAvailable(id) != item.available || stock.getReserved(id) != item.reserved
+                    || stock.getOnHand(id) != item.available + item.reserved) {
+                fail(id + " has " + stock.getAvailable(id) + " free and " + stock.getReserved(id)
+                        + " reserved, expected " + item.available + " and " + item.reserved);
+            }
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println("stock: FAILED, " + message);
+        System.exit(1);
+    }
+}
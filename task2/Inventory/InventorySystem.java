@@ -1,16 +1,27 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class InventorySystem extends JFrame {
 
     private JTextField txtId, txtName, txtQuantity, txtPrice;
-    private DefaultTableModel model;
+    private InventoryTableModel model;
     private JTable table;
+    private JLabel totals;
+    // Quantities live here, where terminals reserve and pick; the table shows them
+    private final InventoryStock stock = new InventoryStock();
+    private final Set<String> changedStock = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean stockRefreshQueued = new AtomicBoolean();
+    // The item in the form and its quantity when loaded, so an update applies only the change typed
+    private String loadedId;
+    private long loadedQuantity;
 
     private final Color FB_BLUE = new Color(66, 103, 178);
     private final Color FB_LIGHT = new Color(237, 240, 245);
@@ -82,14 +93,29 @@ public class InventorySystem extends JFrame {
         tableTitle.setFont(new Font("SansSerif", Font.BOLD, 18));
         tableTitle.setForeground(FB_BLUE);
 
-        model = new DefaultTableModel(new String[]{"Item ID", "Name", "Qty", "Price"}, 0);
-        table = new JTable(model);
+        model = new InventoryTableModel();
+        // Edits go through the form, so quantities change only through the stock
+        table = new JTable(model) {
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
         styleTable(table);
 
         JScrollPane scroll = new JScrollPane(table);
 
+        totals = new JLabel();
+        totals.setFont(new Font("SansSerif", Font.BOLD, 14));
+        totals.setForeground(FB_BLUE);
+        totals.setBorder(new EmptyBorder(10, 0, 0, 0));
+        // The model keeps running totals, so this reads three numbers whatever the inventory size
+        model.addTableModelListener(e -> updateTotals());
+        updateTotals();
+        stock.addListener(this::stockChanged);
+
         tableCard.add(tableTitle, BorderLayout.NORTH);
         tableCard.add(scroll, BorderLayout.CENTER);
+        tableCard.add(totals, BorderLayout.SOUTH);
 
         mainPanel.add(formCard);
         mainPanel.add(tableCard);
@@ -137,15 +163,54 @@ public class InventorySystem extends JFrame {
     }
 
 
+    private void updateTotals() {
+        totals.setText(String.format("Items: %,d    Units: %,d    Stock value: %s", model.getItemCount(),
+                model.getTotalQuantity(), InventoryTableModel.formatCents(model.getTotalValue())));
+    }
+
+    // The stock shown, for terminals that reserve and pick items from other threads
+    public InventoryStock getStock() {
+        return stock;
+    }
+
+    // Any thread: items whose stock changed are collected and shown in one event
+    private void stockChanged(String id) {
+        changedStock.add(id);
+        if (stockRefreshQueued.compareAndSet(false, true)) SwingUtilities.invokeLater(this::refreshStock);
+    }
+
+    private void refreshStock() {
+        stockRefreshQueued.set(false);
+        StringBuilder failed = new StringBuilder();
+        for (Iterator<String> ids = changedStock.iterator(); ids.hasNext(); ) {
+            String id = ids.next();
+            ids.remove();
+            int row = model.findRow(id);
+            if (row < 0 || !stock.contains(id)) continue;
+            // One item the table cannot hold must not keep the others from showing
+            try {
+                model.setQuantity(row, stock.getOnHand(id));
+            } catch (IllegalArgumentException e) {
+                failed.append("\n").append(id).append(": ").append(e.getMessage());
+            }
+        }
+        if (failed.length() > 0) {
+            JOptionPane.showMessageDialog(this, "Stock changed by another terminal cannot be shown:" + failed,
+                    "Warning", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
     private void addItem() {
-        if (!validateFields()) return;
+        long[] numbers = validateFields();
+        if (numbers == null) return;
 
-        model.addRow(new Object[]{
-                txtId.getText(),
-                txtName.getText(),
-                txtQuantity.getText(),
-                txtPrice.getText()
-        });
+        try {
+            model.addRow(txtId.getText().trim(), txtName.getText().trim(), numbers[0], numbers[1]);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage() + ".");
+            return;
+        }
+        stock.add(txtId.getText().trim(), numbers[0]);
 
         JOptionPane.showMessageDialog(this, "Item added!");
         clearFields();
@@ -157,16 +222,74 @@ public class InventorySystem extends JFrame {
             JOptionPane.showMessageDialog(this, "Select item to update!");
             return;
         }
-        if (!validateFields()) return;
-
-        model.setValueAt(txtId.getText(), row, 0);
-        model.setValueAt(txtName.getText(), row, 1);
-        model.setValueAt(txtQuantity.getText(), row, 2);
-        model.setValueAt(txtPrice.getText(), row, 3);
+        long[] numbers = validateFields();
+        if (numbers == null) return;
+
+        String id = model.getId(row);
+        String newId = txtId.getText().trim();
+        String name = txtName.getText().trim();
+        // Only the change typed is applied, so units other terminals picked meanwhile are not undone
+        long delta = numbers[0] - (id.equals(loadedId) ? loadedQuantity : model.getQuantity(row));
+        // Checked before the stock changes, so an update the table cannot hold leaves both as they were
+        try {
+            long expected;
+            try {
+                expected = Math.addExact(stock.getOnHand(id), delta);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Quantity is too large");
+            }
+            // A removal larger than what is free will be refused, leaving the quantity as it is
+            model.checkRow(row, newId, name, expected < 0 ? stock.getOnHand(id) : expected, numbers[1]);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage() + ".");
+            return;
+        }
+        stock.rename(id, newId);
+        boolean adjusted;
+        try {
+            adjusted = delta == 0 || stock.adjust(newId, delta);
+        } catch (IllegalArgumentException e) {
+            stock.rename(newId, id);
+            JOptionPane.showMessageDialog(this, e.getMessage() + ".");
+            return;
+        }
+        try {
+            model.setRow(row, newId, name, stock.getOnHand(newId), numbers[1]);
+        } catch (IllegalArgumentException e) {
+            // Another terminal added stock since the check; take this update back out of the stock
+            boolean reverted = !adjusted || delta == 0 || revert(newId, delta);
+            stock.rename(newId, id);
+            if (!reverted) {
+                // The units were reserved meanwhile, so the stock keeps them; the row follows the stock
+                stockChanged(id);
+                JOptionPane.showMessageDialog(this, e.getMessage() + ". The stock has already changed by "
+                        + delta + " units and could not take them back.");
+                return;
+            }
+            JOptionPane.showMessageDialog(this, e.getMessage() + ".");
+            return;
+        }
+        loadedId = newId;
+        loadedQuantity = model.getQuantity(row);
+        txtQuantity.setText(String.valueOf(loadedQuantity));
 
+        if (!adjusted) {
+            JOptionPane.showMessageDialog(this, "Only " + stock.getAvailable(newId)
+                    + " units are free now, quantity not changed!");
+            return;
+        }
         JOptionPane.showMessageDialog(this, "Updated!");
     }
 
+    // Takes an adjust() of delta back out of the stock; false if it can no longer be
+    private boolean revert(String id, long delta) {
+        try {
+            return stock.adjust(id, -delta);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     private void deleteItem() {
         int row = table.getSelectedRow();
         if (row < 0) {
@@ -174,6 +297,7 @@ public class InventorySystem extends JFrame {
             return;
         }
 
+        stock.remove(model.getId(row));
         model.removeRow(row);
         JOptionPane.showMessageDialog(this, "Deleted!");
         clearFields();
@@ -184,21 +308,36 @@ public class InventorySystem extends JFrame {
         txtName.setText("");
         txtQuantity.setText("");
         txtPrice.setText("");
+        loadedId = null;
     }
 
     private void loadSelectedRow() {
         int row = table.getSelectedRow();
-        txtId.setText(model.getValueAt(row, 0).toString());
-        txtName.setText(model.getValueAt(row, 1).toString());
-        txtQuantity.setText(model.getValueAt(row, 2).toString());
-        txtPrice.setText(model.getValueAt(row, 3).toString());
+        if (row < 0) return;
+        txtId.setText(model.getId(row));
+        txtName.setText(model.getName(row));
+        txtQuantity.setText(String.valueOf(model.getQuantity(row)));
+        txtPrice.setText(InventoryTableModel.formatCents(model.getPrice(row)));
+        loadedId = model.getId(row);
+        loadedQuantity = model.getQuantity(row);
     }
 
-    private boolean validateFields() {
-        return !(txtId.getText().isEmpty() ||
-                txtName.getText().isEmpty() ||
-                txtQuantity.getText().isEmpty() ||
-                txtPrice.getText().isEmpty());
+    // Quantity and price in cents, or null after telling the user which field is not valid
+    private long[] validateFields() {
+        if (txtId.getText().trim().isEmpty() ||
+                txtName.getText().trim().isEmpty() ||
+                txtQuantity.getText().trim().isEmpty() ||
+                txtPrice.getText().trim().isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please fill in all fields!");
+            return null;
+        }
+        try {
+            return new long[]{InventoryTableModel.parseQuantity(txtQuantity.getText()),
+                    InventoryTableModel.parseCents(txtPrice.getText())};
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage() + ".");
+            return null;
+        }
     }
 
 
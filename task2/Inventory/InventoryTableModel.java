@@ -0,0 +1,265 @@
+import javax.swing.table.AbstractTableModel;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Inventory items stored by column with typed values instead of the strings
+// typed into the form:
+//
+//   ids, names     String[]
+//   quantities     long[] units in stock
+//   prices         long[] unit price in cents, so sums are exact
+//
+// Text is parsed once, when an item is added or edited, and formatted only
+// in getValueAt() for the rows on screen. The number of items, units in
+// stock and stock value (quantity times price, in cents) are kept as
+// running totals, adjusted by every add, update and delete, so reading them
+// costs the same for a million items as for one. A value that would
+// overflow a long is rejected with the change that caused it.
+//
+// Item IDs are unique; a HashMap finds an item's row. Deleting moves the
+// last row into the gap. Like every Swing model, it is only touched on the
+// event dispatch thread.
+public class InventoryTableModel extends AbstractTableModel {
+    public static final int ID = 0;
+    public static final int NAME = 1;
+    public static final int QUANTITY = 2;
+    public static final int PRICE = 3;
+    private static final String[] COLUMNS = {"Item ID", "Name", "Qty", "Price"};
+
+    private int rows;
+    private String[] ids = new String[16];
+    private String[] names = new String[16];
+    private long[] quantities = new long[16];
+    private long[] prices = new long[16];
+    private final Map<String, Integer> index = new HashMap<>();
+
+    private long totalQuantity;
+    private long totalValue;
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == QUANTITY ? Long.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case ID: return ids[row];
+            case NAME: return names[row];
+            case QUANTITY: return quantities[row];
+            case PRICE: return formatCents(prices[row]);
+            default: throw new IndexOutOfBoundsException("column " + column);
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return true;
+    }
+
+    // Edits typed into the table; a value that is not valid for its column is ignored
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        String text = String.valueOf(value).trim();
+        try {
+            switch (column) {
+                case ID: setRow(row, text, names[row], quantities[row], prices[row]); break;
+                case NAME: setRow(row, ids[row], text, quantities[row], prices[row]); break;
+                case QUANTITY: setRow(row, ids[row], names[row], parseQuantity(text), prices[row]); break;
+                case PRICE: setRow(row, ids[row], names[row], quantities[row], parseCents(text)); break;
+                default: throw new IndexOutOfBoundsException("column " + column);
+            }
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+    }
+
+    public int getItemCount() {
+        return rows;
+    }
+
+    // Units in stock over all items
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    // Sum of quantity times price over all items, in cents
+    public long getTotalValue() {
+        return totalValue;
+    }
+
+    // Row of the item with this ID, or -1
+    public int findRow(String id) {
+        Integer row = index.get(id);
+        return row == null ? -1 : row;
+    }
+
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    public String getName(int row) {
+        return names[row];
+    }
+
+    public long getQuantity(int row) {
+        return quantities[row];
+    }
+
+    // Unit price in cents
+    public long getPrice(int row) {
+        return prices[row];
+    }
+
+    // Adds an item; throws IllegalArgumentException if the ID is taken, a field is empty or
+    // negative, or the stock value would overflow
+    public int addRow(String id, String name, long quantity, long price) {
+        check(id, name, quantity, price);
+        if (index.containsKey(id)) throw new IllegalArgumentException("Item ID " + id + " already exists");
+        long nextValue = total(totalValue, value(quantity, price));
+        long nextQuantity = total(totalQuantity, quantity);
+        if (rows == ids.length) grow(rows * 2);
+        int row = rows++;
+        ids[row] = id;
+        names[row] = name;
+        quantities[row] = quantity;
+        prices[row] = price;
+        index.put(id, row);
+        totalQuantity = nextQuantity;
+        totalValue = nextValue;
+        fireTableRowsInserted(row, row);
+        return row;
+    }
+
+    // Overwrites the row; throws IllegalArgumentException like addRow(), or if the new ID belongs
+    // to another row
+    public void setRow(int row, String id, String name, long quantity, long price) {
+        checkRow(row, id, name, quantity, price);
+        long nextValue = totalValue - value(quantities[row], prices[row]) + value(quantity, price);
+        long nextQuantity = totalQuantity - quantities[row] + quantity;
+        if (!id.equals(ids[row])) {
+            index.remove(ids[row]);
+            index.put(id, row);
+            ids[row] = id;
+        }
+        names[row] = name;
+        quantities[row] = quantity;
+        prices[row] = price;
+        totalQuantity = nextQuantity;
+        totalValue = nextValue;
+        fireTableRowsUpdated(row, row);
+    }
+
+    // Throws the IllegalArgumentException setRow() would for these values, changing nothing
+    public void checkRow(int row, String id, String name, long quantity, long price) {
+        check(id, name, quantity, price);
+        if (!id.equals(ids[row]) && index.containsKey(id)) {
+            throw new IllegalArgumentException("Item ID " + id + " already exists");
+        }
+        total(totalValue - value(quantities[row], prices[row]), value(quantity, price));
+        total(totalQuantity - quantities[row], quantity);
+    }
+
+    // Sets the row's units in stock; throws IllegalArgumentException like setRow()
+    public void setQuantity(int row, long quantity) {
+        if (quantity != quantities[row]) setRow(row, ids[row], names[row], quantity, prices[row]);
+    }
+
+    // Removes the row and moves the last row into its place
+    public void removeRow(int row) {
+        index.remove(ids[row]);
+        totalQuantity -= quantities[row];
+        totalValue -= value(quantities[row], prices[row]);
+        int last = rows - 1;
+        if (row != last) {
+            ids[row] = ids[last];
+            names[row] = names[last];
+            quantities[row] = quantities[last];
+            prices[row] = prices[last];
+            index.put(ids[row], row);
+        }
+        ids[last] = null;
+        names[last] = null;
+        rows--;
+        fireTableRowsDeleted(last, last);
+        if (row != last) fireTableRowsUpdated(row, row);
+    }
+
+    // Sizes the columns for at least capacity items, e.g. before a bulk load
+    public void ensureCapacity(int capacity) {
+        if (capacity > ids.length) grow(capacity);
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+    }
+
+    private static void check(String id, String name, long quantity, long price) {
+        if (id.isEmpty() || name.isEmpty()) throw new IllegalArgumentException("Item ID and name are required");
+        if (quantity < 0) throw new IllegalArgumentException("Quantity cannot be negative");
+        if (price < 0) throw new IllegalArgumentException("Price cannot be negative");
+    }
+
+    private static long value(long quantity, long price) {
+        try {
+            return Math.multiplyExact(quantity, price);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Stock value of the item is too large");
+        }
+    }
+
+    private static long total(long sum, long amount) {
+        try {
+            return Math.addExact(sum, amount);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Total is too large");
+        }
+    }
+
+    // A whole number of units; throws IllegalArgumentException otherwise
+    public static long parseQuantity(String text) {
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Quantity must be a whole number");
+        }
+    }
+
+    // An amount such as 12, 12.5 or 12.50 in cents; throws IllegalArgumentException for anything
+    // else, including fractions of a cent
+    public static long parseCents(String text) {
+        try {
+            return new BigDecimal(text.trim()).movePointRight(2).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Price must be an amount with at most two decimals");
+        }
+    }
+
+    // Cents as an amount with two decimals, e.g. 1250 as 12.50
+    public static String formatCents(long cents) {
+        String sign = cents < 0 ? "-" : "";
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        return sign + abs / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
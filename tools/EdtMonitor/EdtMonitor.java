@@ -0,0 +1,240 @@
+import javax.swing.AbstractButton;
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Finds UI freezes in the Swing apps of this repository: an EventQueue
+// pushed in front of the system one times every event the event dispatch
+// thread handles, and a watchdog thread takes the EDT's stack while an
+// event is still running past the threshold, so a report names the code
+// that held the thread and not only the event that started it. The apps
+// need no changes; the monitor launches them:
+//
+//   javac -d out <app sources> ../../tools/EdtMonitor/*.java
+//   java -cp out [-Dedt.threshold=100] [-Dedt.log=stalls.log] EdtMonitor Student [args]
+//
+// Each event that kept the thread longer than the threshold (100 ms by
+// default) is written to the log, standard error by default, with its
+// duration, source and the stack, and committed as an EdtStallEvent for
+// Java Flight Recorder. A summary of all events is written at exit.
+//
+// A modal dialog runs a nested event loop inside the event that opened it.
+// The monitor sees that loop ask it for events, and neither the waits nor
+// the nested events count towards the outer event's own time; the nested
+// events are timed on their own.
+//
+// Timing an event costs two nanoTime() calls and one small allocation on
+// the event dispatch thread; logging is left to the watchdog thread.
+public final class EdtMonitor extends EventQueue {
+    static final long DEFAULT_THRESHOLD_MS = 100;
+    private static final int MAX_STACK_FRAMES = 40;
+
+    // One event being dispatched
+    private static final class Dispatch {
+        final AWTEvent event;
+        final long start;
+        final Thread thread;
+        // Time inside this event that was not its own: nested events and waits for them
+        long excluded;
+        // Since when the event has been running its own code, and whether it is waiting in a nested loop
+        volatile long resumed;
+        volatile boolean waiting;
+        // The EDT's stack, taken by the watchdog while this event ran too long
+        volatile StackTraceElement[] stack;
+
+        Dispatch(AWTEvent event, long start, Thread thread) {
+            this.event = event;
+            this.start = start;
+            this.thread = thread;
+            this.resumed = start;
+        }
+    }
+
+    private static final class Stall {
+        final String event;
+        final long nanos;
+        final StackTraceElement[] stack;
+
+        Stall(String event, long nanos, StackTraceElement[] stack) {
+            this.event = event;
+            this.nanos = nanos;
+            this.stack = stack;
+        }
+    }
+
+    private final long thresholdNanos;
+    private final PrintStream log;
+    // Innermost event being dispatched, null while the thread waits for events
+    private volatile Dispatch current;
+    private final Queue<Stall> stalls = new ConcurrentLinkedQueue<>();
+    // Written on the event dispatch thread only
+    private volatile long events;
+    private volatile long slowEvents;
+    private volatile long longestNanos;
+    private volatile String longestEvent = "";
+
+    private EdtMonitor(long thresholdMillis, PrintStream log) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+        this.log = log;
+    }
+
+    // Puts a monitor in front of the system event queue and starts its watchdog
+    public static EdtMonitor install(long thresholdMillis, PrintStream log) {
+        if (thresholdMillis <= 0) throw new IllegalArgumentException("Threshold must be positive");
+        EdtMonitor monitor = new EdtMonitor(thresholdMillis, log);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor);
+        Thread watchdog = new Thread(monitor::watch, "edt-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(monitor::summarize, "edt-summary"));
+        return monitor;
+    }
+
+    // Installs a monitor configured by system properties, then runs the main class in args[0]
+    public static void main(String[] args) throws Throwable {
+        if (args.length == 0) {
+            System.err.println("Usage: java [-Dedt.threshold=ms] [-Dedt.log=file] EdtMonitor MainClass [args]");
+            System.exit(2);
+        }
+        long threshold = Long.getLong("edt.threshold", DEFAULT_THRESHOLD_MS);
+        String file = System.getProperty("edt.log");
+        PrintStream log = file == null ? System.err : new PrintStream(new FileOutputStream(file, true), true, "UTF-8");
+        install(threshold, log);
+        try {
+            Class.forName(args[0]).getMethod("main", String[].class)
+                    .invoke(null, (Object) Arrays.copyOfRange(args, 1, args.length));
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long start = System.nanoTime();
+        Dispatch outer = current;
+        Dispatch dispatch = new Dispatch(event, start, Thread.currentThread());
+        current = dispatch;
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long end = System.nanoTime();
+            current = outer;
+            if (outer != null) {
+                outer.excluded += end - start;
+                outer.resumed = end;
+            }
+            finished(dispatch, end - start - dispatch.excluded);
+        }
+    }
+
+    // Called with an event in progress only by a nested loop, whose waiting is not that event's time
+    @Override
+    public AWTEvent getNextEvent() throws InterruptedException {
+        Dispatch dispatch = current;
+        if (dispatch == null) return super.getNextEvent();
+        long start = System.nanoTime();
+        dispatch.waiting = true;
+        try {
+            return super.getNextEvent();
+        } finally {
+            long end = System.nanoTime();
+            dispatch.waiting = false;
+            dispatch.excluded += end - start;
+            dispatch.resumed = end;
+        }
+    }
+
+    private void finished(Dispatch dispatch, long own) {
+        events++;
+        if (own > longestNanos) {
+            longestNanos = own;
+            longestEvent = describe(dispatch.event);
+        }
+        if (own < thresholdNanos) return;
+        slowEvents++;
+        Stall stall = new Stall(describe(dispatch.event), own, dispatch.stack);
+        EdtStallEvent jfr = new EdtStallEvent();
+        if (jfr.isEnabled()) {
+            jfr.eventType = dispatch.event.getClass().getName();
+            jfr.source = stall.event;
+            jfr.dispatchTime = own;
+            jfr.edtStack = stall.stack == null ? "" : format(stall.stack);
+            jfr.commit();
+        }
+        stalls.add(stall);
+    }
+
+    // Watchdog thread: samples the innermost event every quarter threshold and logs finished stalls
+    private void watch() {
+        long period = Math.max(1, thresholdNanos / 4_000_000);
+        while (true) {
+            try {
+                Thread.sleep(period);
+            } catch (InterruptedException e) {
+                return;
+            }
+            Dispatch dispatch = current;
+            if (dispatch != null && dispatch.stack == null && !dispatch.waiting
+                    && System.nanoTime() - dispatch.resumed >= thresholdNanos) {
+                StackTraceElement[] stack = dispatch.thread.getStackTrace();
+                // Keep it only if the thread was still in that event's own code
+                if (current == dispatch && !dispatch.waiting) dispatch.stack = stack;
+            }
+            for (Stall stall = stalls.poll(); stall != null; stall = stalls.poll()) write(stall);
+        }
+    }
+
+    private void write(Stall stall) {
+        StringBuilder line = new StringBuilder();
+        line.append(LocalTime.now()).append(" EDT stall ").append(stall.nanos / 1_000_000).append(" ms: ")
+                .append(stall.event).append('\n');
+        if (stall.stack == null) {
+            line.append("    (finished before the watchdog took a stack)\n");
+        } else {
+            line.append(format(stall.stack));
+        }
+        log.print(line);
+        log.flush();
+    }
+
+    private static String format(StackTraceElement[] stack) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < Math.min(stack.length, MAX_STACK_FRAMES); i++) {
+            text.append("    at ").append(stack[i]).append('\n');
+        }
+        if (stack.length > MAX_STACK_FRAMES) text.append("    ... ").append(stack.length - MAX_STACK_FRAMES).append(" more\n");
+        return text.toString();
+    }
+
+    // Event class and what it came from, e.g. ActionEvent from JButton "Import CSV"
+    static String describe(AWTEvent event) {
+        Object source = event.getSource();
+        String from;
+        if (source instanceof AbstractButton && ((AbstractButton) source).getText() != null) {
+            from = source.getClass().getSimpleName() + " \"" + ((AbstractButton) source).getText() + "\"";
+        } else if (source instanceof Component && ((Component) source).getName() != null) {
+            from = source.getClass().getSimpleName() + " " + ((Component) source).getName();
+        } else {
+            from = source == null ? "null" : source.getClass().getName();
+        }
+        String params = event.paramString();
+        if (params.length() > 120) params = params.substring(0, 117) + "...";
+        return event.getClass().getSimpleName() + " from " + from + " [" + params + "]";
+    }
+
+    private void summarize() {
+        for (Stall stall = stalls.poll(); stall != null; stall = stalls.poll()) write(stall);
+        log.printf("EDT monitor: %,d events, %,d over %d ms, longest %d ms (%s)%n", events, slowEvents,
+                thresholdNanos / 1_000_000, longestNanos / 1_000_000, longestEvent);
+        log.flush();
+    }
+}
@@ -0,0 +1,30 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight Recorder event for an event the EDT took longer than EdtMonitor's
+// threshold to handle. The stack recorded with a JFR event would be the
+// monitor's own, so it is switched off and the stack the watchdog took
+// while the handler was running is carried as text instead.
+@Name("swing.EdtStall")
+@Label("EDT Stall")
+@Category({"Swing", "Responsiveness"})
+@Description("An AWT event that kept the event dispatch thread busy past the monitor's threshold")
+@StackTrace(false)
+final class EdtStallEvent extends jdk.jfr.Event {
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Source")
+    String source;
+
+    @Label("Dispatch Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long dispatchTime;
+
+    @Label("EDT Stack")
+    String edtStack;
+}